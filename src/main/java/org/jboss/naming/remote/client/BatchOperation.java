@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.Name;
+import javax.naming.NamingException;
+
+/**
+ * A write operation sent as part of a batch, see {@link ExtendedRemoteNamingStore#batch}.
+ */
+public final class BatchOperation {
+
+    public enum Type {
+        BIND,
+        REBIND,
+        UNBIND
+    }
+
+    private final Type type;
+    private final Name name;
+    private final Object object;
+
+    private BatchOperation(final Type type, final Name name, final Object object) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name is null");
+        }
+        this.type = type;
+        this.name = name;
+        this.object = object;
+    }
+
+    public static BatchOperation bind(final Name name, final Object object) {
+        return new BatchOperation(Type.BIND, name, object);
+    }
+
+    public static BatchOperation rebind(final Name name, final Object object) {
+        return new BatchOperation(Type.REBIND, name, object);
+    }
+
+    public static BatchOperation unbind(final Name name) {
+        return new BatchOperation(Type.UNBIND, name, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Name getName() {
+        return name;
+    }
+
+    /**
+     * @return The object to bind, null for an unbind
+     */
+    public Object getObject() {
+        return object;
+    }
+
+    /**
+     * Get the same operation for another name.
+     */
+    public BatchOperation withName(final Name name) {
+        return new BatchOperation(type, name, object);
+    }
+
+    /**
+     * Apply operations one round trip each, for naming stores which cannot send a batch.
+     *
+     * @param namingStore The naming store
+     * @param operations  The operations, applied in order
+     * @return The outcome of each operation, null for the operations which succeeded
+     */
+    public static List<NamingException> applyEach(final RemoteNamingStore namingStore, final List<BatchOperation> operations) {
+        final List<NamingException> results = new ArrayList<NamingException>(operations.size());
+        for (BatchOperation operation : operations) {
+            try {
+                switch (operation.getType()) {
+                    case BIND:
+                        namingStore.bind(operation.getName(), operation.getObject());
+                        break;
+                    case REBIND:
+                        namingStore.rebind(operation.getName(), operation.getObject());
+                        break;
+                    default:
+                        namingStore.unbind(operation.getName());
+                }
+                results.add(null);
+            } catch (NamingException e) {
+                results.add(e);
+            }
+        }
+        return results;
+    }
+
+    public String toString() {
+        return type + " " + name;
+    }
+}
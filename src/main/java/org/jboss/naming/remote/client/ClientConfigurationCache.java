@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.xnio.OptionMap;
+
+/**
+ * The client configuration derived by the {@link InitialContextFactory}, per class loader.
+ * <p/>
+ * Holds the content of the client properties file visible to the class loader, and the option maps built from the
+ * client properties, so creating a context does not repeat the class path scan and the option parsing every time.
+ * Class loaders are weakly referenced. The configuration is held strongly, so it must never reference anything loaded
+ * by the class loader it is cached for: the file properties are strings, and option maps with options or values of the
+ * class loader are not cached.
+ */
+class ClientConfigurationCache {
+
+    /**
+     * The maximum number of option maps cached per class loader, as the properties they are built from may come from
+     * the environment of every context created.
+     */
+    static final int MAX_OPTION_MAPS = 64;
+
+    private final Map<ClassLoader, Configuration> configurations = new WeakHashMap<ClassLoader, Configuration>();
+
+    Configuration get(final ClassLoader classLoader) {
+        synchronized (configurations) {
+            Configuration configuration = configurations.get(classLoader);
+            if (configuration == null) {
+                configuration = new Configuration();
+                configurations.put(classLoader, configuration);
+            }
+            return configuration;
+        }
+    }
+
+    /**
+     * Forget everything, so the next context created re-reads the client properties file.
+     */
+    void clear() {
+        synchronized (configurations) {
+            configurations.clear();
+        }
+    }
+
+    static final class Configuration {
+        private boolean loaded;
+        private Properties fileProperties;
+
+        /** Keyed by the option prefix, the defaults and the matching properties */
+        final ConcurrentMap<List<Object>, OptionMap> optionMaps = new ConcurrentHashMap<List<Object>, OptionMap>();
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        /**
+         * @return The properties read from the file, or null if there is no file
+         */
+        synchronized Properties getFileProperties() {
+            return fileProperties;
+        }
+
+        synchronized void setFileProperties(final Properties fileProperties) {
+            this.fileProperties = fileProperties;
+            this.loaded = true;
+        }
+    }
+}
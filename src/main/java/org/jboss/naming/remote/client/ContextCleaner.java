@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Runs the close tasks of {@link RemoteContext}s which were never closed, once they became unreachable.
+ * <p/>
+ * Each context with close tasks is tracked by a phantom reference, which a single daemon thread takes from the
+ * reference queue. A context may become unreachable while one of its operations is still running, as nothing keeps
+ * it alive once the operation got hold of the naming store, and pipelines and sub-contexts keep using the store
+ * without it. The close tasks release the store and its connection, so for a {@link HaRemoteNamingStore} they are
+ * only run once no operation is in flight on it. ({@code java.lang.ref.Cleaner} is not available on the Java versions
+ * this client supports.)
+ */
+final class ContextCleaner {
+    private static final Logger log = Logger.getLogger(ContextCleaner.class);
+
+    private static final ReferenceQueue<RemoteContext> queue = new ReferenceQueue<RemoteContext>();
+    /** Keeps the references reachable until they were processed */
+    private static final Set<Cleanup> pending = Collections.newSetFromMap(new ConcurrentHashMap<Cleanup, Boolean>());
+    private static Thread thread;
+
+    private ContextCleaner() {
+    }
+
+    /**
+     * Track a context, so its close tasks run if it is not closed before it becomes unreachable.
+     *
+     * @param context     The context
+     * @param namingStore The naming store of the context
+     * @param closeTasks  The close tasks of the context
+     * @return The cleanup, to be closed when the context is
+     */
+    static Cleanup register(final RemoteContext context, final RemoteNamingStore namingStore, final List<RemoteContext.CloseTask> closeTasks) {
+        final Cleanup cleanup = new Cleanup(context, namingStore, closeTasks);
+        pending.add(cleanup);
+        startThread();
+        return cleanup;
+    }
+
+    private static synchronized void startThread() {
+        if (thread == null) {
+            thread = SecurityActions.createDaemonThread(new Runnable() {
+                public void run() {
+                    processQueue();
+                }
+            }, "naming-client-context-cleaner");
+            thread.start();
+        }
+    }
+
+    private static void processQueue() {
+        for (;;) {
+            try {
+                final Cleanup cleanup = (Cleanup) queue.remove();
+                if (cleanup.namingStore instanceof HaRemoteNamingStore) {
+                    ((HaRemoteNamingStore) cleanup.namingStore).runWhenIdle(new Runnable() {
+                        public void run() {
+                            cleanup.close(true);
+                        }
+                    });
+                } else {
+                    cleanup.close(true);
+                }
+            } catch (InterruptedException e) {
+                // keep going, the thread only ends with the JVM
+            } catch (Throwable t) {
+                log.warn("Failed to close unreachable naming context", t);
+            }
+        }
+    }
+
+    static final class Cleanup extends PhantomReference<RemoteContext> {
+        private final RemoteNamingStore namingStore;
+        private final List<RemoteContext.CloseTask> closeTasks;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Cleanup(final RemoteContext context, final RemoteNamingStore namingStore, final List<RemoteContext.CloseTask> closeTasks) {
+            super(context, queue);
+            this.namingStore = namingStore;
+            this.closeTasks = closeTasks;
+        }
+
+        /**
+         * Run the close tasks, unless they already ran.
+         *
+         * @param unreachable Whether the context became unreachable, rather than being closed
+         */
+        void close(final boolean unreachable) {
+            if (closed.compareAndSet(false, true)) {
+                pending.remove(this);
+                clear();
+                for (RemoteContext.CloseTask closeTask : closeTasks) {
+                    closeTask.close(unreachable);
+                }
+            }
+        }
+    }
+}
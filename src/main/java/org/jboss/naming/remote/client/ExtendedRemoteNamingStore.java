@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.util.List;
+
+import javax.naming.Binding;
+import javax.naming.Name;
+import javax.naming.NamingException;
+
+/**
+ * The operations a naming store may support beyond those of a {@link RemoteNamingStore}. They are kept out of
+ * {@link RemoteNamingStore} so its existing implementations keep working. {@link RemoteContext} checks whether its
+ * store implements this interface, and falls back to the basic operations, or fails, where it does not.
+ */
+public interface ExtendedRemoteNamingStore extends RemoteNamingStore {
+
+    /**
+     * List the bindings below a name.
+     *
+     * @param name The name of the context
+     * @param lazy Whether the objects may be left out of the response, to be looked up when they are first asked for,
+     *             which the server may not support
+     * @return The bindings
+     * @throws NamingException If the context could not be listed
+     */
+    List<Binding> listBindings(Name name, boolean lazy) throws NamingException;
+
+    /**
+     * Load the lookup results of the subtree below a name into the client lookup cache in a single round trip.
+     *
+     * @param name       The root of the subtree
+     * @param maxDepth   The number of levels below the root to load, zero for all of them
+     * @param maxEntries The maximum number of entries to load, zero for no limit
+     * @return The number of entries loaded, zero if there is no cache or the server does not support it
+     * @throws NamingException If the root could not be listed
+     */
+    int prefetch(Name name, int maxDepth, int maxEntries) throws NamingException;
+
+    /**
+     * Look up the target of a relative link. If the target is itself a relative link, the server may follow it and
+     * return the end of the chain instead.
+     *
+     * @param base     The name of the context the link is relative to
+     * @param linkName The link name, without its leading "./"
+     * @return The target
+     * @throws NamingException If the target could not be looked up
+     */
+    Object resolveLink(Name base, String linkName) throws NamingException;
+
+    /**
+     * Find the names below a context matching a pattern, without listing the subtree to the client.
+     *
+     * @param name     The root of the search
+     * @param pattern  The pattern, see {@link org.jboss.naming.remote.server.SearchableContext#search}
+     * @param maxDepth The number of levels below the root to search, zero for all of them
+     * @param limit    The maximum number of matches, zero for no limit
+     * @return The matches, with names relative to the root
+     * @throws NamingException If the root could not be searched, or the server does not support searching
+     */
+    SearchResults search(Name name, String pattern, int maxDepth, int limit) throws NamingException;
+
+    /**
+     * Apply several writes in a single round trip.
+     *
+     * @param operations The writes, applied in order
+     * @param atomic     Whether either all writes have to take effect or none, which the server may not support
+     * @return The outcome of each write, null for the writes which succeeded
+     * @throws NamingException If the batch could not be applied, or an atomic batch failed
+     */
+    List<NamingException> batch(List<BatchOperation> operations, boolean atomic) throws NamingException;
+
+    /**
+     * Create a pipeline, to issue operations without waiting for each one to complete.
+     *
+     * @return The pipeline
+     * @throws NamingException If the store is not connected
+     */
+    NamingPipeline pipeline() throws NamingException;
+}
@@ -17,6 +17,7 @@ import javax.naming.Context;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.sasl.SaslException;
 
@@ -26,8 +27,15 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Remote naming store that has the ability to re-establish a connection to a destination server,
@@ -38,7 +46,7 @@ import java.util.concurrent.TimeUnit;
  *
  * @author Stuart Douglas
  */
-public class HaRemoteNamingStore implements RemoteNamingStore {
+public class HaRemoteNamingStore implements ExtendedRemoteNamingStore {
 
     private static final Logger logger = Logger.getLogger(HaRemoteNamingStore.class);
 
@@ -51,8 +59,20 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
     private volatile int nextServer;
     private volatile RemoteNamingStore currentNamingStore;
     private final EJBClientHandler ejbClientHandler;
+    /**
+     * The client lookup cache, kept across fail overs so it is shared by every naming store this one creates
+     */
+    private final LookupCache lookupCache;
     //should only be accessed under lock
     private Connection connection;
+    //created under lock by the first pipeline
+    private volatile ExecutorService pipelineExecutor;
+    private Semaphore pipelineWindow;
+    /**
+     * The operations currently running, including the ones of pipelines and of contexts which are no longer reachable
+     */
+    private final AtomicInteger operationsInFlight = new AtomicInteger();
+    private final Queue<Runnable> idleTasks = new ConcurrentLinkedQueue<Runnable>();
 
     /**
      * @param channelCreationTimeoutInMillis The channel creation timeout in milli sec
@@ -81,6 +101,23 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
      *                                       <code>connectionURIs</code> for establishing the first connection
      */
     HaRemoteNamingStore(final long channelCreationTimeoutInMillis, final OptionMap channelCreationOptions, final long connectionTimeout, final CallbackHandler callbackHandler, final OptionMap connectOptions, final List<URI> connectionURIs, final Endpoint clientEndpoint, final boolean randomServer, final EJBClientHandler ejbClientHandler) {
+        this(channelCreationTimeoutInMillis, channelCreationOptions, connectionTimeout, callbackHandler, connectOptions, connectionURIs, clientEndpoint, randomServer, ejbClientHandler, null);
+    }
+
+    /**
+     * @param channelCreationTimeoutInMillis The channel creation timeout in milli sec
+     * @param channelCreationOptions         The channel creation options
+     * @param connectionTimeout              The connection creation timeout in milli sec
+     * @param callbackHandler                The callback handler
+     * @param connectOptions                 The connection creation options
+     * @param connectionURIs                 The connection URIs
+     * @param clientEndpoint                 The client Endpoint
+     * @param randomServer                   True if a random connection URI has to be picked, from among the passed
+     *                                       <code>connectionURIs</code> for establishing the first connection
+     * @param ejbClientHandler               The EJB client handler, may be null
+     * @param lookupCache                    The client lookup cache, may be null
+     */
+    HaRemoteNamingStore(final long channelCreationTimeoutInMillis, final OptionMap channelCreationOptions, final long connectionTimeout, final CallbackHandler callbackHandler, final OptionMap connectOptions, final List<URI> connectionURIs, final Endpoint clientEndpoint, final boolean randomServer, final EJBClientHandler ejbClientHandler, final LookupCache lookupCache) {
         if (connectionURIs.isEmpty()) {
             throw new IllegalArgumentException("Cannot create a HA remote naming store without any servers to connect to");
         }
@@ -95,6 +132,7 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
             nextServer = 0;
         }
         this.ejbClientHandler = ejbClientHandler;
+        this.lookupCache = lookupCache;
     }
 
     /**
@@ -113,6 +151,7 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
             nextServer = 0;
         }
         this.ejbClientHandler = null;
+        this.lookupCache = null;
     }
 
 
@@ -127,14 +166,46 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
         if (closed) {
             throw new NamingException("NamingStore has been closed");
         }
-        RemoteNamingStore namingStore = namingStore();
+        operationsInFlight.incrementAndGet();
         try {
-            return operation.operation(namingStore);
-        } catch (NamingIOException e) {
-            synchronized (this) {
-                namingStore = failOverSequence(namingStore);
+            RemoteNamingStore namingStore = namingStore();
+            try {
+                return operation.operation(namingStore);
+            } catch (NamingIOException e) {
+                synchronized (this) {
+                    namingStore = failOverSequence(namingStore);
+                }
+                return operation.operation(namingStore);
+            }
+        } finally {
+            if (operationsInFlight.decrementAndGet() == 0) {
+                runIdleTasks();
+            }
+        }
+    }
+
+    /**
+     * Run a task once no operation is running on this store, straight away if it is idle already. Otherwise the task
+     * runs on the thread completing the last operation in flight.
+     *
+     * @param task The task
+     */
+    void runWhenIdle(final Runnable task) {
+        idleTasks.add(task);
+        // either this sees the last operation complete, or that operation sees the task
+        if (operationsInFlight.get() == 0) {
+            runIdleTasks();
+        }
+    }
+
+    private void runIdleTasks() {
+        Runnable task;
+        while ((task = idleTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Failed to run a task once the naming store became idle", t);
             }
-            return operation.operation(namingStore);
         }
     }
 
@@ -199,7 +270,7 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
                 // open a channel
                 final IoFuture<Channel> futureChannel = connection.openChannel("naming", connectionInfo.getChannelCreationOptions());
                 final Channel channel = IoFutureHelper.get(futureChannel, connectionInfo.getChannelCreationTimeout(), TimeUnit.MILLISECONDS);
-                store = RemoteContextFactory.createVersionedStore(channel, ejbClientHandler);
+                store = RemoteContextFactory.createVersionedStore(channel, ejbClientHandler, lookupCache);
                 this.connection = connection;
                 break;
             } catch (Exception e) {
@@ -345,6 +416,18 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
         );
     }
 
+    @Override
+    public List<Binding> listBindings(final Name name, final boolean lazy) throws NamingException {
+        return namingOperation(
+                new Operation<List<Binding>>() {
+                    @Override
+                    public List<Binding> operation(final RemoteNamingStore store) throws NamingException {
+                        return extended(store).listBindings(name, lazy);
+                    }
+                }
+        );
+    }
+
     @Override
     public void unbind(final Name name) throws NamingException {
         namingOperation(
@@ -395,9 +478,79 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
         );
     }
 
+    @Override
+    public Object resolveLink(final Name base, final String linkName) throws NamingException {
+        return namingOperation(
+                new Operation<Object>() {
+                    @Override
+                    public Object operation(final RemoteNamingStore store) throws NamingException {
+                        return extended(store).resolveLink(base, linkName);
+                    }
+                }
+        );
+    }
+
+    @Override
+    public int prefetch(final Name name, final int maxDepth, final int maxEntries) throws NamingException {
+        return namingOperation(
+                new Operation<Integer>() {
+                    @Override
+                    public Integer operation(final RemoteNamingStore store) throws NamingException {
+                        return extended(store).prefetch(name, maxDepth, maxEntries);
+                    }
+                }
+        );
+    }
+
+    @Override
+    public SearchResults search(final Name name, final String pattern, final int maxDepth, final int limit) throws NamingException {
+        return namingOperation(
+                new Operation<SearchResults>() {
+                    @Override
+                    public SearchResults operation(final RemoteNamingStore store) throws NamingException {
+                        return extended(store).search(name, pattern, maxDepth, limit);
+                    }
+                }
+        );
+    }
+
+    @Override
+    public List<NamingException> batch(final List<BatchOperation> operations, final boolean atomic) throws NamingException {
+        return namingOperation(
+                new Operation<List<NamingException>>() {
+                    @Override
+                    public List<NamingException> operation(final RemoteNamingStore store) throws NamingException {
+                        return extended(store).batch(operations, atomic);
+                    }
+                }
+        );
+    }
+
+    @Override
+    public synchronized NamingPipeline pipeline() throws NamingException {
+        if (closed) {
+            throw new NamingException("NamingStore has been closed");
+        }
+        // the operations go through this store, so they fail over like any other
+        if (pipelineExecutor == null) {
+            pipelineExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                public Thread newThread(final Runnable task) {
+                    return SecurityActions.createDaemonThread(task, "naming-client-pipeline-thread-" + threadNumber.getAndIncrement());
+                }
+            });
+            pipelineWindow = new Semaphore(Math.max(1, NamingPipeline.getWindow(0)));
+        }
+        return new NamingPipeline(this, pipelineExecutor, pipelineWindow);
+    }
+
     @Override
     public synchronized void close() throws NamingException {
         closed = true;
+        if (pipelineExecutor != null) {
+            pipelineExecutor.shutdown();
+        }
         try {
             if (connection != null) {
                 connection.close();
@@ -421,6 +574,10 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
     @Override
     public void closeAsync() {
         closed = true;
+        final ExecutorService pipelineExecutor = this.pipelineExecutor;
+        if (pipelineExecutor != null) {
+            pipelineExecutor.shutdown();
+        }
         if (connection != null) {
             connection.closeAsync();
         }
@@ -439,6 +596,13 @@ public class HaRemoteNamingStore implements RemoteNamingStore {
         // no-op. CurrentEjbClientConnection is a deprecated semantic. We no longer do anything with it
     }
 
+    private static ExtendedRemoteNamingStore extended(final RemoteNamingStore store) throws NamingException {
+        if (store instanceof ExtendedRemoteNamingStore) {
+            return (ExtendedRemoteNamingStore) store;
+        }
+        throw new OperationNotSupportedException("The naming store of the server does not support this operation");
+    }
+
     /**
      * Simple interface used to encapsulate a naming operation.
      *
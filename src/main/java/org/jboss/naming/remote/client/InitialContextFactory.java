@@ -28,10 +28,13 @@ import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.naming.Context;
@@ -54,6 +57,7 @@ import org.xnio.IoFuture;
 import org.xnio.Option;
 import org.xnio.OptionMap;
 import org.xnio.Options;
+import org.xnio.Sequence;
 
 import static org.jboss.naming.remote.client.ClientUtil.namingException;
 
@@ -98,6 +102,8 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
 
     private static final CacheShutdown CACHE_SHUTDOWN = new CacheShutdown(NAMING_STORE_CACHE, ENDPOINT_CACHE);
 
+    private static final ClientConfigurationCache CONFIGURATION_CACHE = new ClientConfigurationCache();
+
     /**
      * Cached class used by the ejb client context integration. Will be null if the ejb client lib
      * is not on the class path
@@ -122,6 +128,14 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
         setupEJBClientContextMethod = method;
     }
 
+    /**
+     * Discard the cached client configuration, so contexts created from now on read the
+     * {@value #CLIENT_PROPS_FILE_NAME} file again, and rebuild the options derived from the client properties.
+     */
+    public static void reloadConfiguration() {
+        CONFIGURATION_CACHE.clear();
+    }
+
     @SuppressWarnings("unchecked")
     public Context getInitialContext(final Hashtable<?, ?> env) throws NamingException {
         try {
@@ -174,10 +188,8 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
     private RemoteNamingStore getOrCreateCachedNamingStore(final Endpoint clientEndpoint, final Properties clientProperties, final List<RemoteContext.CloseTask> closeTasks,
                                                            final OptionMap channelCreationOptions, final long channelCreationTimeoutInMillis, final Hashtable<String, Object> env,
                                                            final EJBClientHandler ejbClientHandler) throws IOException, URISyntaxException, NamingException {
-        // get connect options for the connection
-        final OptionMap connectOptionsFromConfiguration = this.getOptionMapFromProperties(clientProperties, CONNECT_OPTIONS_PREFIX);
-        // merge with defaults
-        final OptionMap connectOptions = this.mergeWithDefaults(DEFAULT_CONNECTION_CREATION_OPTIONS, connectOptionsFromConfiguration);
+        // get connect options for the connection, merged with defaults
+        final OptionMap connectOptions = this.getOptionMap(clientProperties, CONNECT_OPTIONS_PREFIX, DEFAULT_CONNECTION_CREATION_OPTIONS);
 
         long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT_IN_MILLIS;
         final String connectionTimeoutValue = clientProperties.getProperty(CLIENT_PROP_KEY_CONNECT_TIMEOUT);
@@ -195,7 +207,8 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
             throw new NamingException("No provider URL configured for connection");
         }
         boolean randomServer = Boolean.getBoolean(RANDOM_SERVER);
-        return NAMING_STORE_CACHE.getRemoteNamingStore(clientEndpoint, connectionUrl, connectOptions, callbackHandler, connectionTimeout, channelCreationOptions, channelCreationTimeoutInMillis, closeTasks, randomServer, ejbClientHandler);
+        return NAMING_STORE_CACHE.getRemoteNamingStore(clientEndpoint, connectionUrl, connectOptions, callbackHandler, connectionTimeout, channelCreationOptions, channelCreationTimeoutInMillis, closeTasks, randomServer, ejbClientHandler,
+                LookupCacheConfiguration.fromProperties(clientProperties));
     }
 
     private Endpoint getOrCreateEndpoint(final Hashtable<String, Object> env, final Properties clientProperties, final List<RemoteContext.CloseTask> closeTasks) throws IOException {
@@ -213,13 +226,9 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
         if (clientEndpointName == null) {
             clientEndpointName = "config-based-naming-client-endpoint";
         }
-        final OptionMap endPointCreationOptionsFromConfiguration = this.getOptionMapFromProperties(clientProperties, ENDPOINT_CREATION_OPTIONS_PREFIX);
-        // merge with defaults
-        final OptionMap endPointCreationOptions = this.mergeWithDefaults(DEFAULT_ENDPOINT_CREATION_OPTIONS, endPointCreationOptionsFromConfiguration);
-
-
-        final OptionMap remoteConnectionProviderOptionsFromConfiguration = this.getOptionMapFromProperties(clientProperties, REMOTE_CONNECTION_PROVIDER_CREATE_OPTIONS_PREFIX);
-        final OptionMap remoteConnectionProviderOptions = this.mergeWithDefaults(DEFAULT_CONNECTION_PROVIDER_CREATION_OPTIONS, remoteConnectionProviderOptionsFromConfiguration);
+        // merged with defaults
+        final OptionMap endPointCreationOptions = this.getOptionMap(clientProperties, ENDPOINT_CREATION_OPTIONS_PREFIX, DEFAULT_ENDPOINT_CREATION_OPTIONS);
+        final OptionMap remoteConnectionProviderOptions = this.getOptionMap(clientProperties, REMOTE_CONNECTION_PROVIDER_CREATE_OPTIONS_PREFIX, DEFAULT_CONNECTION_PROVIDER_CREATION_OPTIONS);
 
         // create the endpoint
         final Endpoint clientEndpoint = ENDPOINT_CACHE.get(clientEndpointName, endPointCreationOptions, remoteConnectionProviderOptions);
@@ -291,6 +300,54 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
         return null;
     }
 
+    /**
+     * Get the options configured by the properties with a prefix, merged with the defaults.
+     */
+    private OptionMap getOptionMap(final Properties properties, final String propertyPrefix, final OptionMap defaults) {
+        final Map<String, String> configured = new TreeMap<String, String>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(propertyPrefix)) {
+                configured.put(name, properties.getProperty(name));
+            }
+        }
+        final List<Object> key = Arrays.<Object>asList(propertyPrefix, defaults, configured);
+        final ConcurrentMap<List<Object>, OptionMap> optionMaps = CONFIGURATION_CACHE.get(getClientClassLoader()).optionMaps;
+        OptionMap optionMap = optionMaps.get(key);
+        if (optionMap == null) {
+            optionMap = mergeWithDefaults(defaults, getOptionMapFromProperties(properties, propertyPrefix));
+            if (optionMaps.size() < ClientConfigurationCache.MAX_OPTION_MAPS && isLoadedOutsideClient(optionMap)) {
+                optionMaps.put(key, optionMap);
+            }
+        }
+        return optionMap;
+    }
+
+    /**
+     * Whether none of the options, nor their values, were loaded by the client class loader. Only such options can
+     * be cached for the client class loader without the cache keeping it reachable.
+     */
+    private static boolean isLoadedOutsideClient(final OptionMap optionMap) {
+        final ClassLoader classLoader = InitialContextFactory.class.getClassLoader();
+        for (Option<?> option : optionMap) {
+            try {
+                if (Option.fromString(option.toString(), classLoader) != option) {
+                    return false;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            final Object value = optionMap.get(option);
+            final Iterable<?> values = value instanceof Sequence ? (Sequence<?>) value : Collections.singleton(value);
+            for (Object element : values) {
+                final Class<?> type = element instanceof Class ? (Class<?>) element : element.getClass();
+                if (type.getClassLoader() != null && type.getClassLoader() != classLoader && type.getClassLoader() != Option.class.getClassLoader()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private OptionMap getOptionMapFromProperties(final Properties properties, final String propertyPrefix) {
         final ClassLoader classLoader = getClientClassLoader();
         final OptionMap.Builder optionMapBuilder = OptionMap.builder().parseAll(properties, propertyPrefix, classLoader);
@@ -328,9 +385,18 @@ public class InitialContextFactory implements javax.naming.spi.InitialContextFac
 
     private Properties findAndCreateClientProperties(final Hashtable<?, ?> env) {
         // First load the props file if it exists
-        Properties props = findClientProperties();
-        if (props == null) {
-            props = new Properties();
+        final ClientConfigurationCache.Configuration configuration = CONFIGURATION_CACHE.get(getClientClassLoader());
+        final Properties fileProps;
+        synchronized (configuration) {
+            if (!configuration.isLoaded()) {
+                configuration.setFileProperties(findClientProperties());
+            }
+            fileProps = configuration.getFileProperties();
+        }
+        // copied, the cached properties are shared
+        final Properties props = new Properties();
+        if (fileProps != null) {
+            props.putAll(fileProps);
         }
         // Now override with naming env entries
         for (Map.Entry<?, ?> entry : env.entrySet()) {
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Resolves the targets of {@link javax.naming.LinkRef}s which are not relative to the context they were found in.
+ * <p/>
+ * Such links are resolved through a default initial context of the thread context class loader, which is closed
+ * again as soon as the target was looked up. The resolved targets may additionally be cached for a limited time.
+ * <p/>
+ * As with the {@link ObjectFactoryCache}, nothing in here strongly references the class loader or the targets, so
+ * that caching a link target does not keep a deployment from being unloaded.
+ */
+class LinkResolver {
+    private static final Logger log = Logger.getLogger(LinkResolver.class);
+
+    /**
+     * The time in milliseconds the target of a link is cached for, zero (the default) to look it up every time.
+     */
+    static final String LINK_CACHE_TTL = "jboss.naming.client.link.cache.ttl";
+
+    private final long timeToLive;
+    private final Map<ClassLoader, ConcurrentMap<String, CachedTarget>> targets = new WeakHashMap<ClassLoader, ConcurrentMap<String, CachedTarget>>();
+
+    LinkResolver() {
+        long timeToLive = 0;
+        final String value = SecurityActions.getSystemProperty(LINK_CACHE_TTL);
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                timeToLive = Long.parseLong(value.trim());
+            } catch (NumberFormatException nfe) {
+                log.info("Incorrect value " + value + " specified for " + LINK_CACHE_TTL + ". Link targets will not be cached");
+            }
+        }
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Look up the target of a link.
+     *
+     * @param linkName The name the link refers to
+     * @return The target
+     * @throws NamingException If the target could not be looked up
+     */
+    Object resolve(final String linkName) throws NamingException {
+        final ConcurrentMap<String, CachedTarget> cached = timeToLive > 0 ? targets(SecurityActions.getContextClassLoader()) : null;
+        if (cached != null) {
+            final CachedTarget entry = cached.get(linkName);
+            final Object target = entry == null || entry.expires < System.currentTimeMillis() ? null : entry.get();
+            if (target != null) {
+                return target;
+            }
+        }
+        final Object target;
+        final Context context = new InitialContext();
+        try {
+            target = context.lookup(linkName);
+        } finally {
+            try {
+                context.close();
+            } catch (NamingException e) {
+                log.debug("Failed to close initial context", e);
+            }
+        }
+        if (cached != null && target != null) {
+            cached.put(linkName, new CachedTarget(target, System.currentTimeMillis() + timeToLive));
+        }
+        return target;
+    }
+
+    private ConcurrentMap<String, CachedTarget> targets(final ClassLoader classLoader) {
+        synchronized (targets) {
+            ConcurrentMap<String, CachedTarget> cached = targets.get(classLoader);
+            if (cached == null) {
+                cached = new ConcurrentHashMap<String, CachedTarget>();
+                targets.put(classLoader, cached);
+            }
+            return cached;
+        }
+    }
+
+    private static final class CachedTarget extends WeakReference<Object> {
+        private final long expires;
+
+        private CachedTarget(final Object target, final long expires) {
+            super(target);
+            this.expires = expires;
+        }
+    }
+}
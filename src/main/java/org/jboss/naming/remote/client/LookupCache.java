@@ -0,0 +1,425 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.CompositeName;
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+
+/**
+ * A client side cache of lookup responses, shared by all contexts using the same naming store.
+ * <p/>
+ * Responses are kept in their marshalled form, so every lookup served from the cache returns a fresh copy which is
+ * unmarshalled using the caller's class loader. The cache is bounded by the total size of the responses, least
+ * recently used entries are evicted first, and entries expire after a time to live. Operations which change the
+ * namespace through the same naming store invalidate the affected entries, changes made by other clients are only
+ * seen once an entry expired.
+ * <p/>
+ * The cache can be written to a file and loaded again by a later process. A loaded file is memory mapped and only
+ * its index is read up front, the responses are copied out of the mapping when they are first used. Only entries
+ * with a version are written, and loaded entries are not served until the server confirmed they did not change, so
+ * a file written for another server or user can never be served as it is, see {@link #renew(Name, long, long)}.
+ * <p/>
+ * Responses may carry a version issued by the server. Expired entries with a version are kept until they are
+ * evicted, so they can be revalidated with a conditional lookup instead of being fetched again, see
+ * {@link #getVersioned(Name)} and {@link #renew(Name, long, long)}.
+ */
+public class LookupCache {
+    private static final int FILE_MAGIC = 0x4A4E4C43;
+    private static final byte FILE_VERSION = 2;
+    private static final String UTF_8 = "UTF-8";
+
+    private final long maxBytes;
+    private final long timeToLiveMillis;
+
+    private final Map<Name, Entry> entries = new LinkedHashMap<Name, Entry>(16, 0.75f, true);
+    private long currentBytes;
+    private long generation;
+
+    /**
+     * @param maxBytes   The maximum total size of the cached responses
+     * @param timeToLive The time an entry may be used for, zero or less to keep entries until they are invalidated
+     * @param unit       The unit of the time to live
+     */
+    public LookupCache(final long maxBytes, final long timeToLive, final TimeUnit unit) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be greater than zero");
+        }
+        this.maxBytes = maxBytes;
+        this.timeToLiveMillis = timeToLive > 0 ? unit.toMillis(timeToLive) : 0;
+    }
+
+    /**
+     * Get the cached response for a name.
+     *
+     * @param name The absolute name
+     * @return The marshalled response, or null if there is no valid entry, or the entry still has to be revalidated
+     */
+    public synchronized byte[] get(final Name name) {
+        final Entry entry = entries.get(name);
+        if (entry == null || !entry.verified) {
+            return null;
+        }
+        if (entry.expires != 0 && entry.expires < System.currentTimeMillis()) {
+            if (entry.version == 0) {
+                remove(name);
+            }
+            return null;
+        }
+        return entry.getResponse();
+    }
+
+    /**
+     * Get the entry for a name, whether or not it expired, to revalidate it against the server.
+     *
+     * @param name The absolute name
+     * @return The entry, or null if there is none or its response has no version
+     */
+    public synchronized Versioned getVersioned(final Name name) {
+        final Entry entry = entries.get(name);
+        if (entry == null || entry.version == 0) {
+            return null;
+        }
+        return new Versioned(entry.getResponse(), entry.version);
+    }
+
+    /**
+     * Mark an entry as current after the server confirmed it did not change, unless an invalidation happened since
+     * the given generation was read.
+     *
+     * @param name       The absolute name
+     * @param version    The version the server confirmed
+     * @param generation The generation read before the request was sent
+     */
+    public synchronized void renew(final Name name, final long version, final long generation) {
+        final Entry entry = entries.get(name);
+        if (entry == null || entry.version != version || generation != this.generation) {
+            return;
+        }
+        entry.expires = expires();
+        entry.verified = true;
+    }
+
+    /**
+     * Get the current generation, this has to be read before the request whose response is to be cached is sent.
+     *
+     * @return The generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Cache a response, unless an invalidation happened since the given generation was read.
+     *
+     * @param name       The absolute name
+     * @param response   The marshalled response
+     * @param generation The generation read before the request was sent
+     */
+    public synchronized void put(final Name name, final byte[] response, final long generation) {
+        put(name, response, 0, generation);
+    }
+
+    /**
+     * Cache a versioned response, unless an invalidation happened since the given generation was read.
+     *
+     * @param name       The absolute name
+     * @param response   The marshalled response
+     * @param version    The version the server issued for the response, zero if it has none
+     * @param generation The generation read before the request was sent
+     */
+    public synchronized void put(final Name name, final byte[] response, final long version, final long generation) {
+        if (generation != this.generation || response.length > maxBytes) {
+            return;
+        }
+        insert((Name) name.clone(), new Entry(response, null, response.length, version, expires(), true));
+    }
+
+    /**
+     * Invalidate the entry for a name, and every entry below it.
+     *
+     * @param name The absolute name which changed
+     */
+    public synchronized void invalidate(final Name name) {
+        generation++;
+        final Iterator<Map.Entry<Name, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Name, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(name)) {
+                currentBytes -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return currentBytes;
+    }
+
+    /**
+     * Load the entries written to a file by {@link #store(File)}. The loaded entries are added as the least recently
+     * used ones, and are dropped first if they do not all fit.
+     *
+     * @param file The file
+     * @return The number of entries loaded
+     * @throws IOException If the file could not be read or is not a cache file
+     */
+    public int load(final File file) throws IOException {
+        final MappedByteBuffer buffer;
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid once the file is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        try {
+            if (buffer.getInt() != FILE_MAGIC || buffer.get() != FILE_VERSION) {
+                throw new IOException("Not a lookup cache file " + file);
+            }
+            final int count = buffer.getInt();
+            final List<Name> names = new ArrayList<Name>(count);
+            final int[] lengths = new int[count];
+            final long[] versions = new long[count];
+            for (int i = 0; i < count; i++) {
+                final byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                names.add(new CompositeName(new String(name, UTF_8)));
+                lengths[i] = buffer.getInt();
+                versions[i] = buffer.getLong();
+            }
+            final Map<Name, Entry> loaded = new LinkedHashMap<Name, Entry>();
+            int offset = buffer.position();
+            for (int i = 0; i < count; i++) {
+                if (lengths[i] < 0 || offset + lengths[i] > buffer.limit()) {
+                    throw new IOException("Truncated lookup cache file " + file);
+                }
+                buffer.limit(offset + lengths[i]).position(offset);
+                loaded.put(names.get(i), new Entry(null, buffer.slice(), lengths[i], versions[i], expires(), false));
+                buffer.limit(buffer.capacity());
+                offset += lengths[i];
+            }
+            synchronized (this) {
+                // insert ahead of the existing entries, which were used more recently
+                final Map<Name, Entry> existing = new LinkedHashMap<Name, Entry>(entries);
+                entries.clear();
+                currentBytes = 0;
+                for (Map.Entry<Name, Entry> entry : loaded.entrySet()) {
+                    insert(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<Name, Entry> entry : existing.entrySet()) {
+                    insert(entry.getKey(), entry.getValue());
+                }
+            }
+            return loaded.size();
+        } catch (InvalidNameException e) {
+            throw new IOException("Invalid name in lookup cache file " + file, e);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and friends, from a file which was cut short
+            throw new IOException("Corrupt lookup cache file " + file, e);
+        }
+    }
+
+    /**
+     * Write the entries which have a version to a file, to be loaded by a later process. The file is written next to
+     * the target and then moved over it, so readers either see the previous or the new content. Only the owner may
+     * read or write it.
+     *
+     * @param file The file
+     * @throws IOException If the file could not be written
+     */
+    public void store(final File file) throws IOException {
+        final List<Name> names = new ArrayList<Name>();
+        final List<byte[]> responses = new ArrayList<byte[]>();
+        final List<Long> versions = new ArrayList<Long>();
+        synchronized (this) {
+            for (Map.Entry<Name, Entry> entry : entries.entrySet()) {
+                // a loaded entry has to be revalidated before it is used, which takes a version
+                if (entry.getValue().version != 0) {
+                    names.add(entry.getKey());
+                    responses.add(entry.getValue().getResponse());
+                    versions.add(entry.getValue().version);
+                }
+            }
+        }
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        // a name of its own, so processes writing the same cache file do not clobber each other's output
+        final File temp = File.createTempFile(file.getName() + ".tmp", "", directory);
+        boolean moved = false;
+        try {
+            restrictToOwner(temp);
+            final FileOutputStream fos = new FileOutputStream(temp);
+            try {
+                final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fos));
+                output.writeInt(FILE_MAGIC);
+                output.writeByte(FILE_VERSION);
+                output.writeInt(names.size());
+                for (int i = 0; i < names.size(); i++) {
+                    final byte[] name = names.get(i).toString().getBytes(UTF_8);
+                    output.writeInt(name.length);
+                    output.write(name);
+                    output.writeInt(responses.get(i).length);
+                    output.writeLong(versions.get(i));
+                }
+                for (byte[] response : responses) {
+                    output.write(response);
+                }
+                output.flush();
+                fos.getChannel().force(true);
+            } finally {
+                fos.close();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * The responses in a cache file are unmarshalled by the process loading it, so nobody but the owner may read or
+     * change it.
+     */
+    private static void restrictToOwner(final File file) throws IOException {
+        final Path path = file.toPath();
+        if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(path, EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
+        } else if (!file.setReadable(false, false) || !file.setReadable(true, true)
+                || !file.setWritable(false, false) || !file.setWritable(true, true)) {
+            throw new IOException("Could not restrict the permissions of " + file);
+        }
+    }
+
+    private long expires() {
+        return timeToLiveMillis == 0 ? 0 : System.currentTimeMillis() + timeToLiveMillis;
+    }
+
+    private void insert(final Name name, final Entry entry) {
+        remove(name);
+        entries.put(name, entry);
+        currentBytes += entry.length;
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            currentBytes -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    private void remove(final Name name) {
+        final Entry removed = entries.remove(name);
+        if (removed != null) {
+            currentBytes -= removed.length;
+        }
+    }
+
+    private static final class Entry {
+        private byte[] response;
+        /** The response within a mapped cache file, until it is first used */
+        private ByteBuffer mapped;
+        private final int length;
+        private final long version;
+        private long expires;
+        private boolean verified;
+
+        private Entry(final byte[] response, final ByteBuffer mapped, final int length, final long version, final long expires, final boolean verified) {
+            this.response = response;
+            this.mapped = mapped;
+            this.length = length;
+            this.version = version;
+            this.expires = expires;
+            this.verified = verified;
+        }
+
+        private byte[] getResponse() {
+            if (response == null) {
+                response = new byte[length];
+                mapped.get(response);
+                mapped = null;
+            }
+            return response;
+        }
+    }
+
+    /**
+     * A cached response together with the version the server issued for it.
+     */
+    public static final class Versioned {
+        private final byte[] response;
+        private final long version;
+
+        private Versioned(final byte[] response, final long version) {
+            this.response = response;
+            this.version = version;
+        }
+
+        public byte[] getResponse() {
+            return response;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
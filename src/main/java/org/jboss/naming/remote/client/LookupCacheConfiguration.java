@@ -0,0 +1,269 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+
+import org.jboss.logging.Logger;
+
+/**
+ * The client configuration of the {@link LookupCache}, read from the naming client properties.
+ */
+public final class LookupCacheConfiguration {
+    private static final Logger logger = Logger.getLogger(LookupCacheConfiguration.class);
+
+    /**
+     * The maximum total size in bytes of the cached lookup responses. The cache is disabled unless this is set.
+     */
+    public static final String CACHE_SIZE = "jboss.naming.client.cache.size";
+    /**
+     * The time in milliseconds a cached lookup response is used for, zero to keep it until it is invalidated.
+     */
+    public static final String CACHE_TTL = "jboss.naming.client.cache.ttl";
+    /**
+     * A comma separated list of names whose subtrees are loaded into the cache when the naming store is created.
+     */
+    public static final String CACHE_PREFETCH = "jboss.naming.client.cache.prefetch";
+    /**
+     * The number of levels below each prefetched name to load, zero for all of them.
+     */
+    public static final String CACHE_PREFETCH_DEPTH = "jboss.naming.client.cache.prefetch.depth";
+    /**
+     * The maximum number of entries to load for each prefetched name.
+     */
+    public static final String CACHE_PREFETCH_MAX_ENTRIES = "jboss.naming.client.cache.prefetch.max.entries";
+    /**
+     * The file the cache is loaded from when the naming store is created, and written to when it is closed. Each
+     * connection URL and security identity gets a file of its own, named after this one with a digest of both
+     * appended. Entries loaded from a file are only served once the server confirmed they did not change.
+     */
+    public static final String CACHE_FILE = "jboss.naming.client.cache.file";
+
+    private static final long DEFAULT_TTL = 60000;
+    private static final int DEFAULT_PREFETCH_MAX_ENTRIES = 1000;
+
+    private final long size;
+    private final long timeToLive;
+    private final List<Name> prefetch;
+    private final int prefetchDepth;
+    private final int prefetchMaxEntries;
+    private final File file;
+    private final String identity;
+
+    public LookupCacheConfiguration(final long size, final long timeToLive, final List<Name> prefetch, final int prefetchDepth, final int prefetchMaxEntries) {
+        this(size, timeToLive, prefetch, prefetchDepth, prefetchMaxEntries, null, null);
+    }
+
+    public LookupCacheConfiguration(final long size, final long timeToLive, final List<Name> prefetch, final int prefetchDepth, final int prefetchMaxEntries, final File file) {
+        this(size, timeToLive, prefetch, prefetchDepth, prefetchMaxEntries, file, null);
+    }
+
+    /**
+     * @param identity The security identity the naming store connects with, used to keep the cache files of different
+     *                 users apart
+     */
+    public LookupCacheConfiguration(final long size, final long timeToLive, final List<Name> prefetch, final int prefetchDepth, final int prefetchMaxEntries, final File file,
+                                    final String identity) {
+        this.size = size;
+        this.timeToLive = timeToLive;
+        this.prefetch = Collections.unmodifiableList(new ArrayList<Name>(prefetch));
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchMaxEntries = prefetchMaxEntries;
+        this.file = file;
+        this.identity = identity == null ? "" : identity;
+    }
+
+    /**
+     * Read the configuration from the naming client properties.
+     *
+     * @param properties The client properties
+     * @return The configuration, or null if the cache is not enabled
+     */
+    public static LookupCacheConfiguration fromProperties(final Properties properties) {
+        final long size = parseLong(properties, CACHE_SIZE, 0);
+        if (size <= 0) {
+            return null;
+        }
+        final List<Name> prefetch = new ArrayList<Name>();
+        final String names = properties.getProperty(CACHE_PREFETCH);
+        if (names != null) {
+            for (String name : names.split(",")) {
+                if (name.trim().length() > 0) {
+                    try {
+                        prefetch.add(new CompositeName(name.trim()));
+                    } catch (InvalidNameException e) {
+                        logger.warn("Ignoring invalid name " + name + " in " + CACHE_PREFETCH, e);
+                    }
+                }
+            }
+        }
+        final String file = properties.getProperty(CACHE_FILE);
+        return new LookupCacheConfiguration(size, parseLong(properties, CACHE_TTL, DEFAULT_TTL), prefetch,
+                (int) parseLong(properties, CACHE_PREFETCH_DEPTH, 0), (int) parseLong(properties, CACHE_PREFETCH_MAX_ENTRIES, DEFAULT_PREFETCH_MAX_ENTRIES),
+                file == null || file.trim().isEmpty() ? null : new File(file.trim()), identityOf(properties));
+    }
+
+    /**
+     * Describe the identity the client authenticates as. A callback handler class may authenticate as anyone, so its
+     * name is part of the identity as well.
+     */
+    private static String identityOf(final Properties properties) {
+        final StringBuilder identity = new StringBuilder();
+        for (String key : new String[] {InitialContextFactory.CALLBACK_HANDLER_KEY, Context.SECURITY_PRINCIPAL, InitialContextFactory.REALM_KEY}) {
+            final String value = properties.getProperty(key);
+            identity.append(value == null ? "" : value.trim()).append('\n');
+        }
+        return identity.toString();
+    }
+
+    private static long parseLong(final Properties properties, final String key, final long defaultValue) {
+        final String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            logger.info("Incorrect value " + value + " specified for " + key + ". Falling back to default value " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    LookupCache createCache(final String connectionURL) {
+        final LookupCache cache = new LookupCache(size, timeToLive, TimeUnit.MILLISECONDS);
+        final File file = getFile(connectionURL);
+        if (file != null && file.isFile()) {
+            try {
+                final int count = cache.load(file);
+                logger.debugf("Loaded %d cached lookups from %s", count, file);
+            } catch (IOException e) {
+                logger.warn("Ignoring lookup cache file " + file, e);
+            }
+        }
+        return cache;
+    }
+
+    void store(final LookupCache cache, final String connectionURL) {
+        final File file = getFile(connectionURL);
+        if (file != null) {
+            try {
+                cache.store(file);
+            } catch (IOException e) {
+                logger.warn("Failed to write lookup cache file " + file, e);
+            }
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public List<Name> getPrefetch() {
+        return prefetch;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public int getPrefetchMaxEntries() {
+        return prefetchMaxEntries;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Get the file the cache of the naming store for a connection URL is kept in.
+     *
+     * @param connectionURL The connection URL of the naming store
+     * @return The file, or null if the cache is not persisted
+     */
+    public File getFile(final String connectionURL) {
+        if (file == null) {
+            return null;
+        }
+        final StringBuilder name = new StringBuilder(file.getName()).append('-');
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(connectionURL.getBytes("UTF-8"));
+            digest.update((byte) 0);
+            digest.update(identity.getBytes("UTF-8"));
+            final byte[] hash = digest.digest();
+            for (int i = 0; i < 16; i++) {
+                name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return new File(file.getAbsoluteFile().getParentFile(), name.toString());
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final LookupCacheConfiguration that = (LookupCacheConfiguration) o;
+        return size == that.size && timeToLive == that.timeToLive && prefetchDepth == that.prefetchDepth
+                && prefetchMaxEntries == that.prefetchMaxEntries && prefetch.equals(that.prefetch)
+                && (file != null ? file.equals(that.file) : that.file == null) && identity.equals(that.identity);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (size ^ (size >>> 32));
+        result = 31 * result + (int) (timeToLive ^ (timeToLive >>> 32));
+        result = 31 * result + prefetch.hashCode();
+        result = 31 * result + prefetchDepth;
+        result = 31 * result + prefetchMaxEntries;
+        result = 31 * result + (file != null ? file.hashCode() : 0);
+        result = 31 * result + identity.hashCode();
+        return result;
+    }
+}
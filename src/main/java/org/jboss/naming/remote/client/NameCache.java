@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.naming.CompositeName;
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A bounded cache of parsed names, so the string based {@link RemoteContext} operations do not parse the same names
+ * over and over.
+ * <p/>
+ * The cached names are shared, so they cannot be modified. They are only handed to code within the naming client,
+ * and are sent over the wire as plain {@link CompositeName}s.
+ */
+class NameCache {
+    private static final Logger log = Logger.getLogger(NameCache.class);
+
+    /**
+     * The maximum number of parsed names to keep, zero to disable the cache.
+     */
+    static final String NAME_CACHE_SIZE = "jboss.naming.client.name.cache.size";
+
+    private static final int DEFAULT_SIZE = 1024;
+
+    private final int maxSize;
+    private final ConcurrentMap<String, SharedName> names = new ConcurrentHashMap<String, SharedName>();
+
+    NameCache() {
+        int maxSize = DEFAULT_SIZE;
+        final String value = SecurityActions.getSystemProperty(NAME_CACHE_SIZE);
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                maxSize = Integer.parseInt(value.trim());
+            } catch (NumberFormatException nfe) {
+                log.info("Incorrect value " + value + " specified for " + NAME_CACHE_SIZE + ". Falling back to default value " + DEFAULT_SIZE);
+            }
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Parse a name, or get it from the cache.
+     *
+     * @param name The string form of the name
+     * @return The parsed name, which must not be modified
+     * @throws InvalidNameException If the name is not a valid composite name
+     */
+    Name parse(final String name) throws InvalidNameException {
+        if (maxSize <= 0) {
+            return new CompositeName(name);
+        }
+        SharedName parsed = names.get(name);
+        if (parsed == null) {
+            parsed = new SharedName(name);
+            if (names.size() >= maxSize) {
+                // the working set of a client is usually small, a client cycling through more names than fit starts over
+                names.clear();
+            }
+            names.put(name, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Check whether a name is one of the shared names handed out by a cache.
+     */
+    static boolean isShared(final Name name) {
+        return name instanceof SharedName;
+    }
+
+    private static final class SharedName extends CompositeName {
+        private static final long serialVersionUID = -6473938620461487405L;
+
+        private SharedName(final String name) throws InvalidNameException {
+            super(name);
+        }
+
+        @Override
+        public Name add(final String comp) throws InvalidNameException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Name add(final int posn, final String comp) throws InvalidNameException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Name addAll(final Name suffix) throws InvalidNameException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Name addAll(final int posn, final Name n) throws InvalidNameException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object remove(final int posn) throws InvalidNameException {
+            throw new UnsupportedOperationException();
+        }
+
+        private Object writeReplace() {
+            // CompositeName.clone() creates a plain CompositeName
+            return clone();
+        }
+    }
+}
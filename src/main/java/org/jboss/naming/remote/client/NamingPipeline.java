@@ -0,0 +1,284 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import javax.naming.Binding;
+import javax.naming.InterruptedNamingException;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingException;
+
+import org.jboss.logging.Logger;
+
+import static org.jboss.naming.remote.client.ClientUtil.namingException;
+
+/**
+ * Issues operations on a naming store without waiting for the previous ones to complete, so a single thread can
+ * overlap many round trips.
+ * <p/>
+ * Operations are only overlapped with the ones they can not depend on: a read (lookup or listing) starts once every
+ * write issued before it completed, and a write (bind, rebind or unbind) once every operation issued before it
+ * completed. A lookup issued after a bind of the same name therefore sees the binding, while a run of reads is in
+ * flight at the same time. An operation still runs if one it waited for failed.
+ * <p/>
+ * At most a window of operations is in flight at any time, issuing another one blocks until one of them completes.
+ * The window is shared by every pipeline on the same channel. A pipeline is meant to be used by a single thread, the
+ * operations run with its context class loader.
+ */
+public final class NamingPipeline {
+    private static final Logger log = Logger.getLogger(NamingPipeline.class);
+
+    /**
+     * The maximum number of pipelined operations a channel has in flight, if it allows as many outbound messages.
+     */
+    public static final String PIPELINE_WINDOW = "jboss.naming.client.pipeline.window";
+
+    static final int DEFAULT_WINDOW = 32;
+
+    private final RemoteNamingStore namingStore;
+    private final Executor executor;
+    private final Semaphore window;
+    private final Name prefix;
+    private final Issued issued;
+
+    /**
+     * @param namingStore The store the operations are run on
+     * @param executor    The executor running the operations, which has to provide a thread for every operation in
+     *                    flight
+     * @param window      The permits for the operations in flight on the channel, shared by its pipelines
+     */
+    public NamingPipeline(final RemoteNamingStore namingStore, final Executor executor, final Semaphore window) {
+        this(namingStore, executor, window, null, new Issued());
+    }
+
+    private NamingPipeline(final RemoteNamingStore namingStore, final Executor executor, final Semaphore window, final Name prefix, final Issued issued) {
+        this.namingStore = namingStore;
+        this.executor = executor;
+        this.window = window;
+        this.prefix = prefix;
+        this.issued = issued;
+    }
+
+    /**
+     * Get the window size to use for a channel.
+     *
+     * @param maxOutboundMessages The number of messages the channel may have outstanding, zero or less if unknown
+     * @return The configured window, capped by the channel's limit
+     */
+    public static int getWindow(final int maxOutboundMessages) {
+        int window = DEFAULT_WINDOW;
+        final String value = SecurityActions.getSystemProperty(PIPELINE_WINDOW);
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                window = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.info("Incorrect value " + value + " specified for " + PIPELINE_WINDOW + ". Falling back to default value " + DEFAULT_WINDOW);
+            }
+        }
+        return maxOutboundMessages > 0 ? Math.min(window, maxOutboundMessages) : window;
+    }
+
+    /**
+     * Get a pipeline sharing this one's operations, for names relative to a context.
+     */
+    NamingPipeline relativeTo(final Name prefix) {
+        return new NamingPipeline(namingStore, executor, window, prefix, issued);
+    }
+
+    public Future<Object> lookup(final Name name) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(false, new Callable<Object>() {
+            public Object call() throws NamingException {
+                return namingStore.lookup(absoluteName);
+            }
+        });
+    }
+
+    public Future<Void> bind(final Name name, final Object object) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(true, new Callable<Void>() {
+            public Void call() throws NamingException {
+                namingStore.bind(absoluteName, object);
+                return null;
+            }
+        });
+    }
+
+    public Future<Void> rebind(final Name name, final Object object) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(true, new Callable<Void>() {
+            public Void call() throws NamingException {
+                namingStore.rebind(absoluteName, object);
+                return null;
+            }
+        });
+    }
+
+    public Future<Void> unbind(final Name name) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(true, new Callable<Void>() {
+            public Void call() throws NamingException {
+                namingStore.unbind(absoluteName);
+                return null;
+            }
+        });
+    }
+
+    public Future<List<NameClassPair>> list(final Name name) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(false, new Callable<List<NameClassPair>>() {
+            public List<NameClassPair> call() throws NamingException {
+                return namingStore.list(absoluteName);
+            }
+        });
+    }
+
+    public Future<List<Binding>> listBindings(final Name name) throws NamingException {
+        final Name absoluteName = absolute(name);
+        return issue(false, new Callable<List<Binding>>() {
+            public List<Binding> call() throws NamingException {
+                return namingStore.listBindings(absoluteName);
+            }
+        });
+    }
+
+    /**
+     * Wait for every operation issued so far.
+     *
+     * @return The results, in the order the operations were issued
+     * @throws NamingException The failure of the first operation that failed, once all of them completed
+     */
+    public List<Object> awaitAll() throws NamingException {
+        final List<Future<?>> futures;
+        synchronized (issued) {
+            futures = new ArrayList<Future<?>>(issued.awaited);
+            issued.awaited.clear();
+        }
+        final List<Object> results = new ArrayList<Object>(futures.size());
+        NamingException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedNamingException("Interrupted while waiting for pipelined operations");
+            } catch (ExecutionException e) {
+                results.add(null);
+                if (failure == null) {
+                    failure = e.getCause() instanceof NamingException ? (NamingException) e.getCause() : namingException("Pipelined operation failed", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private <T> Future<T> issue(final boolean write, final Callable<T> operation) throws NamingException {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for the pipeline window");
+        }
+        synchronized (issued) {
+            // the last write waited for everything issued before it, so it stands in for those
+            final List<Future<?>> predecessors = new ArrayList<Future<?>>();
+            if (issued.lastWrite != null) {
+                predecessors.add(issued.lastWrite);
+            }
+            if (write) {
+                predecessors.addAll(issued.sinceWrite);
+            }
+            final ClassLoader classLoader = SecurityActions.getContextClassLoader();
+            final FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+                public T call() throws Exception {
+                    awaitCompletion(predecessors);
+                    // results are loaded as if the issuing thread had run the operation
+                    final ClassLoader previous = SecurityActions.getContextClassLoader();
+                    SecurityActions.setContextClassLoader(classLoader);
+                    try {
+                        return operation.call();
+                    } finally {
+                        SecurityActions.setContextClassLoader(previous);
+                    }
+                }
+            }) {
+                protected void done() {
+                    window.release();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                window.release();
+                throw namingException("Failed to issue pipelined operation", e);
+            }
+            if (write) {
+                issued.lastWrite = task;
+                issued.sinceWrite.clear();
+            } else {
+                issued.sinceWrite.add(task);
+            }
+            issued.awaited.add(task);
+            return task;
+        }
+    }
+
+    private static void awaitCompletion(final List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ignored) {
+                // reported by awaitAll, the operations depending on it still run
+            }
+        }
+    }
+
+    private Name absolute(final Name name) throws NamingException {
+        if (prefix == null || prefix.isEmpty()) {
+            return name;
+        }
+        return ((Name) prefix.clone()).addAll(name);
+    }
+
+    /**
+     * The operations issued through a pipeline and the ones relative to it.
+     */
+    private static final class Issued {
+        /** Not yet returned by {@link #awaitAll()} */
+        private final List<Future<?>> awaited = new ArrayList<Future<?>>();
+        /** The reads issued since the last write */
+        private final List<Future<?>> sinceWrite = new ArrayList<Future<?>>();
+        private Future<?> lastWrite;
+    }
+}
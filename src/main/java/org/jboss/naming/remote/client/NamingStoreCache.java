@@ -12,6 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.naming.Name;
 import javax.naming.NamingException;
 import javax.security.auth.callback.CallbackHandler;
 
@@ -70,9 +71,33 @@ public class NamingStoreCache {
     public synchronized RemoteNamingStore getRemoteNamingStore(final Endpoint clientEndpoint, final String connectionURL, final OptionMap connectOptions, final CallbackHandler callbackHandler, final long connectionTimeout,
                                                                final OptionMap channelCreationOptions, final long channelCreationTimeoutInMillis, final List<RemoteContext.CloseTask> contextCloseTasks, boolean randomServer,
                                                                final EJBClientHandler ejbClientHandler) throws IOException, NamingException, URISyntaxException {
-        final CacheKey key = new CacheKey(clientEndpoint, callbackHandler, connectOptions, connectionURL, ejbClientHandler);
+        return getRemoteNamingStore(clientEndpoint, connectionURL, connectOptions, callbackHandler, connectionTimeout, channelCreationOptions, channelCreationTimeoutInMillis, contextCloseTasks, randomServer, ejbClientHandler, null);
+    }
+
+    /**
+     * Returns a {@link Channel} for the passed connection properties. If the connection is already created
+     * and cached for the passed connection properties, then the cached channel will be returned. Else a new
+     * connection and channel will be created and that new channel returned.
+     *
+     * @param clientEndpoint                 The {@link org.jboss.remoting3.Endpoint} that will be used to open a connection
+     * @param connectionURL                  The connection URL
+     * @param connectOptions                 The options to be used for connection creation
+     * @param callbackHandler                The callback handler to be used for connection creation
+     * @param connectionTimeout              The connection timeout in milli seconds that will be used while creating a connection
+     * @param channelCreationOptions         The {@link org.xnio.OptionMap options} that will be used if/when the channel is created
+     * @param channelCreationTimeoutInMillis The timeout in milli seconds, that will be used while opening a channel
+     * @param contextCloseTasks              The tasks to be performed when the context is closed
+     * @param lookupCacheConfiguration       The configuration of the client lookup cache, null if lookups are not cached
+     * @return
+     * @throws IOException
+     */
+    public synchronized RemoteNamingStore getRemoteNamingStore(final Endpoint clientEndpoint, final String connectionURL, final OptionMap connectOptions, final CallbackHandler callbackHandler, final long connectionTimeout,
+                                                               final OptionMap channelCreationOptions, final long channelCreationTimeoutInMillis, final List<RemoteContext.CloseTask> contextCloseTasks, boolean randomServer,
+                                                               final EJBClientHandler ejbClientHandler, final LookupCacheConfiguration lookupCacheConfiguration) throws IOException, NamingException, URISyntaxException {
+        final CacheKey key = new CacheKey(clientEndpoint, callbackHandler, connectOptions, connectionURL, ejbClientHandler, lookupCacheConfiguration);
         CacheEntry cacheEntry = cache.get(key);
         if (cacheEntry == null) {
+            final LookupCache lookupCache = lookupCacheConfiguration == null ? null : lookupCacheConfiguration.createCache(connectionURL);
             RemoteNamingStore store;
             if (connectionURL.contains(",")) {
                 //HA context
@@ -81,13 +106,16 @@ public class NamingStoreCache {
                 for (final String url : urls) {
                     connectionUris.add(new URI(url.trim()));
                 }
-                store = new HaRemoteNamingStore(channelCreationTimeoutInMillis, channelCreationOptions, connectionTimeout, callbackHandler, connectOptions, connectionUris, clientEndpoint, randomServer, ejbClientHandler);
+                store = new HaRemoteNamingStore(channelCreationTimeoutInMillis, channelCreationOptions, connectionTimeout, callbackHandler, connectOptions, connectionUris, clientEndpoint, randomServer, ejbClientHandler, lookupCache);
             } else {
                 store = new HaRemoteNamingStore(channelCreationTimeoutInMillis, channelCreationOptions, connectionTimeout,
                         callbackHandler, connectOptions, Collections.singletonList(new URI(connectionURL.trim())),
-                        clientEndpoint, randomServer, ejbClientHandler);
+                        clientEndpoint, randomServer, ejbClientHandler, lookupCache);
             }
-            cacheEntry = new CacheEntry(store);
+            if (lookupCache != null) {
+                prefetch(store, lookupCacheConfiguration);
+            }
+            cacheEntry = new CacheEntry(store, lookupCache, lookupCacheConfiguration, connectionURL);
             cache.put(key, cacheEntry);
 
         }
@@ -103,12 +131,27 @@ public class NamingStoreCache {
         return cacheEntry.namingStore;
     }
 
+    private static void prefetch(final RemoteNamingStore store, final LookupCacheConfiguration configuration) {
+        if (!(store instanceof ExtendedRemoteNamingStore)) {
+            return;
+        }
+        for (Name name : configuration.getPrefetch()) {
+            try {
+                final int count = ((ExtendedRemoteNamingStore) store).prefetch(name, configuration.getPrefetchDepth(), configuration.getPrefetchMaxEntries());
+                logger.debugf("Prefetched %d entries below %s", count, name);
+            } catch (NamingException e) {
+                logger.warn("Failed to prefetch the bindings below " + name, e);
+            }
+        }
+    }
+
     public synchronized void release(final CacheKey connectionHash, final boolean async) {
         final CacheEntry cacheEntry = cache.get(connectionHash);
         if (cacheEntry == null) {
             return;
         }
         if (cacheEntry.referenceCount.decrementAndGet() == 0) {
+            cacheEntry.storeLookupCache();
             try {
                 if (async) {
                     cacheEntry.namingStore.closeAsync();
@@ -126,6 +169,7 @@ public class NamingStoreCache {
 
     public synchronized void shutdown() {
         for (Map.Entry<CacheKey, CacheEntry> entry : cache.entrySet()) {
+            entry.getValue().storeLookupCache();
             final RemoteNamingStore namingStore = entry.getValue().namingStore;
             try {
                 namingStore.close();
@@ -138,9 +182,21 @@ public class NamingStoreCache {
     private class CacheEntry {
         private final AtomicInteger referenceCount = new AtomicInteger(0);
         private final RemoteNamingStore namingStore;
+        private final LookupCache lookupCache;
+        private final LookupCacheConfiguration lookupCacheConfiguration;
+        private final String connectionURL;
 
-        private CacheEntry(final RemoteNamingStore namingStore) {
+        private CacheEntry(final RemoteNamingStore namingStore, final LookupCache lookupCache, final LookupCacheConfiguration lookupCacheConfiguration, final String connectionURL) {
             this.namingStore = namingStore;
+            this.lookupCache = lookupCache;
+            this.lookupCacheConfiguration = lookupCacheConfiguration;
+            this.connectionURL = connectionURL;
+        }
+
+        private void storeLookupCache() {
+            if (lookupCache != null) {
+                lookupCacheConfiguration.store(lookupCache, connectionURL);
+            }
         }
     }
 
@@ -150,13 +206,15 @@ public class NamingStoreCache {
         final OptionMap connectOptions;
         final CallbackHandler callbackHandler;
         final EJBClientHandler ejbClientHandler;
+        final LookupCacheConfiguration lookupCacheConfiguration;
 
-        private CacheKey(final Endpoint endpoint, final CallbackHandler callbackHandler, final OptionMap connectOptions, final String destination, final EJBClientHandler ejbClientHandler) {
+        private CacheKey(final Endpoint endpoint, final CallbackHandler callbackHandler, final OptionMap connectOptions, final String destination, final EJBClientHandler ejbClientHandler, final LookupCacheConfiguration lookupCacheConfiguration) {
             this.endpoint = endpoint;
             this.callbackHandler = callbackHandler;
             this.connectOptions = connectOptions;
             this.destination = destination;
             this.ejbClientHandler = ejbClientHandler;
+            this.lookupCacheConfiguration = lookupCacheConfiguration;
         }
 
         @Override
@@ -175,6 +233,7 @@ public class NamingStoreCache {
             if (endpoint != null ? !endpoint.equals(cacheKey.endpoint) : cacheKey.endpoint != null) return false;
 
             if (ejbClientHandler != null ? !ejbClientHandler.equals(cacheKey.ejbClientHandler) : cacheKey.ejbClientHandler != null) return false;
+            if (lookupCacheConfiguration != null ? !lookupCacheConfiguration.equals(cacheKey.lookupCacheConfiguration) : cacheKey.lookupCacheConfiguration != null) return false;
 
             return true;
         }
@@ -186,6 +245,7 @@ public class NamingStoreCache {
             result = 31 * result + (connectOptions != null ? connectOptions.hashCode() : 0);
             result = 31 * result + (callbackHandler != null ? callbackHandler.hashCode() : 0);
             result = 31 * result + (ejbClientHandler != null ? ejbClientHandler.hashCode() : 0);
+            result = 31 * result + (lookupCacheConfiguration != null ? lookupCacheConfiguration.hashCode() : 0);
             return result;
         }
     }
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.naming.RefAddr;
+import javax.naming.Reference;
+import javax.naming.spi.ObjectFactory;
+
+/**
+ * Caches the {@link ObjectFactory} instances used to resolve {@link Reference} lookup results, and the objects
+ * resolved from references marked as immutable, per class loader.
+ * <p/>
+ * Class loaders, and the cached factories and objects, are weakly referenced, as the factories and objects will
+ * usually have been loaded by the very class loader they are cached for. A redeployed application therefore does not
+ * keep its old class loader alive. Soft references would keep it until the heap runs short, which metaspace pressure
+ * does not cause. Entries are lost at every collection which finds them unused elsewhere, and are then simply
+ * created again.
+ */
+class ObjectFactoryCache {
+
+    private final Map<ClassLoader, Resolutions> resolutions = new WeakHashMap<ClassLoader, Resolutions>();
+
+    /**
+     * Get a shared instance of an object factory, loading and instantiating it on first use.
+     *
+     * @param classLoader      The class loader to load the factory with
+     * @param factoryClassName The name of the factory class
+     * @return The factory
+     */
+    ObjectFactory getFactory(final ClassLoader classLoader, final String factoryClassName) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+        final ConcurrentMap<String, WeakReference<ObjectFactory>> factories = resolutions(classLoader).factories;
+        final WeakReference<ObjectFactory> ref = factories.get(factoryClassName);
+        ObjectFactory factory = ref == null ? null : ref.get();
+        if (factory == null) {
+            factory = ObjectFactory.class.cast(classLoader.loadClass(factoryClassName).newInstance());
+            factories.put(factoryClassName, new WeakReference<ObjectFactory>(factory));
+        }
+        return factory;
+    }
+
+    /**
+     * Get the object previously resolved from an immutable reference.
+     *
+     * @param classLoader The class loader the object was resolved with
+     * @param reference   The reference
+     * @return The object, or null if it was not cached
+     */
+    Object getResolved(final ClassLoader classLoader, final Reference reference) {
+        final WeakReference<Object> ref = resolutions(classLoader).objects.get(new ReferenceKey(reference));
+        return ref == null ? null : ref.get();
+    }
+
+    void putResolved(final ClassLoader classLoader, final Reference reference, final Object object) {
+        resolutions(classLoader).objects.put(new ReferenceKey(reference), new WeakReference<Object>(object));
+    }
+
+    /**
+     * Check whether the objects resolved from a reference may be shared.
+     *
+     * @param reference The reference
+     * @return true if the reference has an {@link RemoteContext#IMMUTABLE_REFERENCE} address whose content is "true"
+     */
+    static boolean isImmutable(final Reference reference) {
+        final RefAddr addr = reference.get(RemoteContext.IMMUTABLE_REFERENCE);
+        return addr != null && Boolean.parseBoolean(String.valueOf(addr.getContent()));
+    }
+
+    private Resolutions resolutions(final ClassLoader classLoader) {
+        synchronized (resolutions) {
+            Resolutions result = resolutions.get(classLoader);
+            if (result == null) {
+                result = new Resolutions();
+                resolutions.put(classLoader, result);
+            }
+            return result;
+        }
+    }
+
+    private static final class Resolutions {
+        private final ConcurrentMap<String, WeakReference<ObjectFactory>> factories = new ConcurrentHashMap<String, WeakReference<ObjectFactory>>();
+        private final ConcurrentMap<ReferenceKey, WeakReference<Object>> objects = new ConcurrentHashMap<ReferenceKey, WeakReference<Object>>();
+    }
+
+    /**
+     * {@link Reference#equals(Object)} ignores the factory, which has to match as well.
+     */
+    private static final class ReferenceKey {
+        private final Reference reference;
+
+        private ReferenceKey(final Reference reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Reference other = ((ReferenceKey) o).reference;
+            final String factoryClassName = reference.getFactoryClassName();
+            return reference.equals(other) && (factoryClassName != null ? factoryClassName.equals(other.getFactoryClassName()) : other.getFactoryClassName() == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return reference.hashCode();
+        }
+    }
+}
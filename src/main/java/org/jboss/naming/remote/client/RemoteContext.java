@@ -22,22 +22,21 @@
 
 package org.jboss.naming.remote.client;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import javax.naming.Binding;
 import javax.naming.CompositeName;
 import javax.naming.Context;
-import javax.naming.InitialContext;
 import javax.naming.LinkRef;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NameParser;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
 import javax.naming.Reference;
 import javax.naming.spi.ObjectFactory;
 
@@ -54,20 +53,35 @@ import static org.jboss.naming.remote.client.ClientUtil.namingException;
 public class RemoteContext implements Context, NameParser {
     private static final Logger log = Logger.getLogger(RemoteContext.class);
 
-    // Work around JVM's broken finalizer. All code touching these values has a purpose. Do not remove!
+    /**
+     * The type of a {@link javax.naming.RefAddr} marking a {@link Reference} as immutable. If its content is "true",
+     * the object resolved from the reference is cached and returned for every later lookup of an equal reference.
+     */
+    public static final String IMMUTABLE_REFERENCE = "jboss.naming.client.reference.immutable";
+
+    /**
+     * The environment property which, if "true", makes listBindings return the names and class names only, and look
+     * each object up when it is first asked for.
+     */
+    public static final String LAZY_BINDINGS = "jboss.naming.client.bindings.lazy";
+
+    /**
+     * @deprecated Unused, contexts are no longer finalized. Kept for binary compatibility.
+     */
+    @Deprecated
     public static int STATIC_KEEP_ALIVE;
-    private static AtomicIntegerFieldUpdater<RemoteContext> keepAliveUpdater = AtomicIntegerFieldUpdater.newUpdater(RemoteContext.class, "keepAlive");
-    private volatile int keepAlive = STATIC_KEEP_ALIVE;
+
+    private static final ObjectFactoryCache objectFactoryCache = new ObjectFactoryCache();
+    private static final LinkResolver linkResolver = new LinkResolver();
+    private static final NameCache nameCache = new NameCache();
 
     private final Name prefix;
     private final Hashtable<String, Object> environment;
 
-    // All usage of namingStore must be surrounded with an update to keepAlive, to keep the context alive
     private final RemoteNamingStore namingStore;
 
-    private final List<CloseTask> closeTasks;
-
-    private final AtomicBoolean closed = new AtomicBoolean();
+    /** Runs the close tasks if the context is not closed before it becomes unreachable, null if there are none */
+    private final ContextCleaner.Cleanup cleanup;
 
     public RemoteContext(final RemoteNamingStore namingStore, final Hashtable<String, Object> environment) {
         this(namingStore, environment, Collections.<CloseTask>emptyList());
@@ -85,15 +99,11 @@ public class RemoteContext implements Context, NameParser {
         this.prefix = prefix;
         this.namingStore = namingStore;
         this.environment = environment;
-        this.closeTasks = closeTasks;
+        this.cleanup = closeTasks.isEmpty() ? null : ContextCleaner.register(this, namingStore, closeTasks);
     }
 
     public Object lookup(final Name name) throws NamingException {
-        try {
-            return lookupInternal(name);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        return lookupInternal(name);
     }
 
     private Object lookupInternal(Name name) throws NamingException {
@@ -101,7 +111,10 @@ public class RemoteContext implements Context, NameParser {
             return new RemoteContext(prefix, namingStore, environment);
         }
         final Name absoluteName = getAbsoluteName(name);
-        Object result = namingStore.lookup(absoluteName);
+        return resolve(namingStore.lookup(absoluteName), name);
+    }
+
+    private Object resolve(Object result, final Name name) throws NamingException {
         if (result instanceof LinkRef) {
             result = resolveLink((LinkRef)result);
         }
@@ -116,9 +129,21 @@ public class RemoteContext implements Context, NameParser {
 
     private Object getObjectInstance(final Reference reference, final Name name, final Hashtable<?, ?> environment) throws NamingException {
         try {
-            final Class<?> factoryClass = Thread.currentThread().getContextClassLoader().loadClass(reference.getFactoryClassName());
-            ObjectFactory factory = ObjectFactory.class.cast(factoryClass.newInstance());
-            return factory.getObjectInstance(reference, name, this, environment);
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            final boolean immutable = ObjectFactoryCache.isImmutable(reference);
+            if (immutable) {
+                final Object resolved = objectFactoryCache.getResolved(classLoader, reference);
+                if (resolved != null) {
+                    return resolved;
+                }
+            }
+            final ObjectFactory factory = objectFactoryCache.getFactory(classLoader, reference.getFactoryClassName());
+            // the factory gets a name it may modify
+            final Object result = factory.getObjectInstance(reference, NameCache.isShared(name) ? (Name) name.clone() : name, this, environment);
+            if (immutable && result != null) {
+                objectFactoryCache.putResolved(classLoader, reference, result);
+            }
+            return result;
         } catch(NamingException e) {
             throw e;
         } catch(Throwable t) {
@@ -132,9 +157,16 @@ public class RemoteContext implements Context, NameParser {
             final LinkRef linkRef = (LinkRef) result;
             final String referenceName = linkRef.getLinkName();
             if (referenceName.startsWith("./")) {
-                linkResult = lookup(referenceName.substring(2));
+                final String relativeName = referenceName.substring(2);
+                if (relativeName.isEmpty()) {
+                    linkResult = lookup(relativeName);
+                } else if (namingStore instanceof ExtendedRemoteNamingStore) {
+                    linkResult = resolve(((ExtendedRemoteNamingStore) namingStore).resolveLink(prefix, relativeName), nameCache.parse(relativeName));
+                } else {
+                    linkResult = lookup(relativeName);
+                }
             } else {
-                linkResult = new InitialContext().lookup(referenceName);
+                linkResult = linkResolver.resolve(referenceName);
             }
         } catch (Throwable t) {
             throw namingException("failed to deref link",t);
@@ -143,115 +175,168 @@ public class RemoteContext implements Context, NameParser {
     }
   
     public Object lookup(final String name) throws NamingException {
-        return lookup(parse(name));
+        return lookup(nameCache.parse(name));
     }
 
     public void bind(final Name name, final Object object) throws NamingException {
-        try {
-            namingStore.bind(getAbsoluteName(name), object);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        namingStore.bind(getAbsoluteName(name), object);
     }
 
     public void bind(final String name, final Object object) throws NamingException {
-        bind(parse(name), object);
+        bind(nameCache.parse(name), object);
     }
 
     public void rebind(final Name name, final Object object) throws NamingException {
-        try {
-            namingStore.rebind(name, object);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        namingStore.rebind(getAbsoluteName(name), object);
     }
 
     public void rebind(final String name, final Object object) throws NamingException {
-        rebind(parse(name), object);
+        rebind(nameCache.parse(name), object);
     }
 
     public void unbind(final Name name) throws NamingException {
-        try {
-            namingStore.unbind(name);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        namingStore.unbind(getAbsoluteName(name));
     }
 
     public void unbind(final String name) throws NamingException {
-        unbind(parse(name));
+        unbind(nameCache.parse(name));
     }
 
     public void rename(final Name name, final Name newName) throws NamingException {
-        try {
-            namingStore.rename(name, newName);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        namingStore.rename(getAbsoluteName(name), getAbsoluteName(newName));
     }
 
     public void rename(final String name, final String newName) throws NamingException {
-        rename(parse(name), parse(newName));
+        rename(nameCache.parse(name), nameCache.parse(newName));
     }
 
     public NamingEnumeration<NameClassPair> list(final Name name) throws NamingException {
-        try {
-            return namingEnumeration(namingStore.list(name));
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        return namingEnumeration(namingStore.list(getAbsoluteName(name)));
     }
 
     public NamingEnumeration<NameClassPair> list(final String name) throws NamingException {
-        return list(parse(name));
+        return list(nameCache.parse(name));
     }
 
     public NamingEnumeration<Binding> listBindings(final Name name) throws NamingException {
-        try {
-            return namingEnumeration(namingStore.listBindings(name));
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
+        if (namingStore instanceof ExtendedRemoteNamingStore && isLazyBindings()) {
+            return namingEnumeration(((ExtendedRemoteNamingStore) namingStore).listBindings(getAbsoluteName(name), true));
         }
+        return namingEnumeration(namingStore.listBindings(getAbsoluteName(name)));
     }
 
     public NamingEnumeration<Binding> listBindings(final String name) throws NamingException {
-        return listBindings(parse(name));
+        return listBindings(nameCache.parse(name));
     }
 
     public void destroySubcontext(final Name name) throws NamingException {
-        try {
-            namingStore.destroySubcontext(name);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        namingStore.destroySubcontext(getAbsoluteName(name));
     }
 
     public void destroySubcontext(final String name) throws NamingException {
-        destroySubcontext(parse(name));
+        destroySubcontext(nameCache.parse(name));
     }
 
     public Context createSubcontext(final Name name) throws NamingException {
-        try {
-            return namingStore.createSubcontext(name);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        return namingStore.createSubcontext(getAbsoluteName(name));
     }
 
     public Context createSubcontext(final String name) throws NamingException {
-        return createSubcontext(parse(name));
+        return createSubcontext(nameCache.parse(name));
     }
 
     public Object lookupLink(final Name name) throws NamingException {
-        try {
-            return namingStore.lookupLink(name);
-        } finally {
-            keepAliveUpdater.lazySet(this, keepAlive + 1);
-        }
+        return namingStore.lookupLink(getAbsoluteName(name));
     }
 
     public Object lookupLink(final String name) throws NamingException {
-        return lookupLink(parse(name));
+        return lookupLink(nameCache.parse(name));
+    }
+
+    /**
+     * Load the lookup results of the subtree below a name into the client lookup cache, so later lookups of the
+     * names it contains are answered without a round trip. Does nothing unless the lookup cache is enabled.
+     *
+     * @param name       The root of the subtree, relative to this context
+     * @param maxDepth   The number of levels below the root to load, zero for all of them
+     * @param maxEntries The maximum number of entries to load, zero for no limit
+     * @return The number of entries loaded
+     * @throws NamingException If the root could not be listed
+     */
+    public int prefetch(final Name name, final int maxDepth, final int maxEntries) throws NamingException {
+        if (!(namingStore instanceof ExtendedRemoteNamingStore)) {
+            return 0;
+        }
+        return ((ExtendedRemoteNamingStore) namingStore).prefetch(getAbsoluteName(name), maxDepth, maxEntries);
+    }
+
+    public int prefetch(final String name, final int maxDepth, final int maxEntries) throws NamingException {
+        return prefetch(nameCache.parse(name), maxDepth, maxEntries);
+    }
+
+    /**
+     * Find the names below a context matching a pattern. The search runs on the server, so only the matches are
+     * transferred. In the pattern '*' matches any characters within a name component, '**' any characters including
+     * the '/' separators, and '?' a single character other than a separator.
+     *
+     * @param name     The root of the search, relative to this context
+     * @param pattern  The pattern, matched against the names relative to the root
+     * @param maxDepth The number of levels below the root to search, zero for all of them
+     * @param limit    The maximum number of matches, zero for no limit
+     * @return The matches, with names relative to the root, and whether the limit cut them short
+     * @throws NamingException If the root could not be searched, or the server does not support searching
+     */
+    public SearchResults search(final Name name, final String pattern, final int maxDepth, final int limit) throws NamingException {
+        return extended("search").search(getAbsoluteName(name), pattern, maxDepth, limit);
+    }
+
+    public SearchResults search(final String name, final String pattern, final int maxDepth, final int limit) throws NamingException {
+        return search(nameCache.parse(name), pattern, maxDepth, limit);
+    }
+
+    /**
+     * Apply several binds, rebinds and unbinds in a single round trip.
+     *
+     * @param operations The writes, with names relative to this context, applied in order
+     * @param atomic     Whether either all writes have to take effect or none, which the server may not support
+     * @return The outcome of each write, null for the writes which succeeded
+     * @throws NamingException If the batch could not be applied, or an atomic batch failed
+     */
+    public List<NamingException> batch(final List<BatchOperation> operations, final boolean atomic) throws NamingException {
+        final List<BatchOperation> absolute = new ArrayList<BatchOperation>(operations.size());
+        for (BatchOperation operation : operations) {
+            absolute.add(operation.withName(getAbsoluteName(operation.getName())));
+        }
+        if (namingStore instanceof ExtendedRemoteNamingStore) {
+            return ((ExtendedRemoteNamingStore) namingStore).batch(absolute, atomic);
+        }
+        if (atomic) {
+            throw new OperationNotSupportedException("The naming store does not support atomic batches");
+        }
+        return BatchOperation.applyEach(namingStore, absolute);
+    }
+
+    /**
+     * Create a pipeline, to issue operations without waiting for each one to complete. Names given to the pipeline
+     * are relative to this context.
+     *
+     * @return The pipeline
+     * @throws NamingException If the naming store is not connected
+     */
+    public NamingPipeline pipeline() throws NamingException {
+        return extended("pipelines").pipeline().relativeTo(prefix);
+    }
+
+    private boolean isLazyBindings() {
+        final Object value = environment.get(LAZY_BINDINGS);
+        return value instanceof Boolean ? (Boolean) value : value instanceof String && Boolean.parseBoolean((String) value);
+    }
+
+    private ExtendedRemoteNamingStore extended(final String operations) throws NamingException {
+        if (namingStore instanceof ExtendedRemoteNamingStore) {
+            return (ExtendedRemoteNamingStore) namingStore;
+        }
+        throw new OperationNotSupportedException("The naming store does not support " + operations);
     }
 
     public NameParser getNameParser(Name name) throws NamingException {
@@ -285,19 +370,8 @@ public class RemoteContext implements Context, NameParser {
     }
 
     public void close() throws NamingException {
-        if(closed.compareAndSet(false, true)) {
-            for (CloseTask closeTask : closeTasks) {
-                closeTask.close(false);
-            }
-        }
-    }
-
-    public void finalize() {
-        if(closed.compareAndSet(false, true)) {
-            STATIC_KEEP_ALIVE = keepAlive;
-            for (CloseTask closeTask : closeTasks) {
-                closeTask.close(true);
-            }
+        if (cleanup != null) {
+            cleanup.close(false);
         }
     }
 
@@ -310,8 +384,9 @@ public class RemoteContext implements Context, NameParser {
     }
 
     private Name getAbsoluteName(final Name name) throws NamingException {
-        if (name.isEmpty()) {
-            return composeName(name, prefix);
+        if (prefix.isEmpty() && NameCache.isShared(name)) {
+            // nothing to compose, and nobody can modify the name
+            return name;
         }
         return composeName(name, prefix);
     }
@@ -24,10 +24,13 @@ package org.jboss.naming.remote.client;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.logging.Logger;
 import org.jboss.naming.remote.client.ejb.EJBClientHandler;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
 import org.jboss.naming.remote.protocol.Versions;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.MessageInputStream;
@@ -48,12 +51,27 @@ class RemoteContextFactory {
 
     private static final Logger log = Logger.getLogger(RemoteContextFactory.class);
 
+    /**
+     * A comma separated list of capability names the client should never request, even if the server offers them.
+     */
+    private static final String DISABLED_CAPABILITIES = "jboss.naming.client.capabilities.disabled";
+
+    /**
+     * A comma separated list of marshalling strategy names in order of preference. The first one registered with
+     * {@link MarshallingStrategies} and offered by the server is used, "river" if there is none.
+     */
+    private static final String MARSHALLING_STRATEGIES = "jboss.naming.client.marshalling.strategies";
+
     static RemoteNamingStore createVersionedStore(final Channel channel) throws IOException {
         return createVersionedStore(channel, null);
     }
 
     static RemoteNamingStore createVersionedStore(final Channel channel, final EJBClientHandler ejbClientHandler) throws IOException {
-        IoFuture<byte[]> futureHeader = ClientVersionReceiver.getVersions(channel);
+        return createVersionedStore(channel, ejbClientHandler, null);
+    }
+
+    static RemoteNamingStore createVersionedStore(final Channel channel, final EJBClientHandler ejbClientHandler, final LookupCache cache) throws IOException {
+        IoFuture<ServerHeader> futureHeader = ClientVersionReceiver.getVersions(channel);
         IoFuture.Status result = futureHeader.await(5, TimeUnit.SECONDS);
         switch (result) {
             case DONE:
@@ -64,16 +82,25 @@ class RemoteContextFactory {
                 throw new IOException("Timeout out waiting for header, status=" + result.toString());
         }
 
+        final ServerHeader header = futureHeader.get();
         byte highest = 0x00;
-        for (byte current : futureHeader.get()) {
+        for (byte current : header.versions) {
             if (current > highest) {
                 highest = current;
             }
         }
-        final RemoteNamingStore store = Versions.getRemoteNamingStore(highest, channel, ejbClientHandler);
+        final int capabilities = header.capabilities & clientCapabilities();
+        final String preferredStrategies = SecurityActions.getSystemProperty(MARSHALLING_STRATEGIES);
+        MarshallingStrategies.attach(channel, MarshallingStrategies.choose(header.marshallingStrategies, preferredStrategies));
+        final RemoteNamingStore store = Versions.getRemoteNamingStore(highest, channel, ejbClientHandler, capabilities, cache);
         return store;
     }
 
+    private static int clientCapabilities() {
+        final String disabled = SecurityActions.getSystemProperty(DISABLED_CAPABILITIES);
+        return Capabilities.SUPPORTED & ~Capabilities.parse(disabled);
+    }
+
     /**
      * A Channel.Receiver to receive the list of versions supported by the remote server.
      */
@@ -85,7 +112,7 @@ class RemoteContextFactory {
             this.future = future;
         }
 
-        public static IoFuture<byte[]> getVersions(final Channel channel) {
+        public static IoFuture<ServerHeader> getVersions(final Channel channel) {
             final VersionsIoFuture future = new VersionsIoFuture();
             channel.receiveMessage(new ClientVersionReceiver(future));
             return future;
@@ -110,7 +137,8 @@ class RemoteContextFactory {
                 if(read < versionCount) {
                     throw new IOException("Did not read all versions.");
                 }
-                future.setResult(versions);
+                final int capabilities = Capabilities.read(dis);
+                future.setResult(new ServerHeader(versions, capabilities, MarshallingStrategies.readOffer(dis)));
             } catch (IOException e) {
                 log.error("Unable to negotiate connection.", e);
                 future.setException(e);
@@ -130,8 +158,23 @@ class RemoteContextFactory {
         }
     }
 
-    private static class VersionsIoFuture extends AbstractIoFuture<byte[]> {
-        protected boolean setResult(byte[] result) {
+    /**
+     * The protocol versions and capabilities offered by the remote server.
+     */
+    private static class ServerHeader {
+        private final byte[] versions;
+        private final int capabilities;
+        private final List<String> marshallingStrategies;
+
+        private ServerHeader(final byte[] versions, final int capabilities, final List<String> marshallingStrategies) {
+            this.versions = versions;
+            this.capabilities = capabilities;
+            this.marshallingStrategies = marshallingStrategies;
+        }
+    }
+
+    private static class VersionsIoFuture extends AbstractIoFuture<ServerHeader> {
+        protected boolean setResult(ServerHeader result) {
             return super.setResult(result);
         }
         protected boolean setException(IOException exception) {
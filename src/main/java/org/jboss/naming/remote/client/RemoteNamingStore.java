@@ -44,6 +44,7 @@ public interface RemoteNamingStore {
     Context createSubcontext(Name name) throws NamingException;
     void destroySubcontext(Name name) throws NamingException;
     Object lookupLink(final Name name) throws NamingException;
+
     void close() throws NamingException;
     void closeAsync();
     /**
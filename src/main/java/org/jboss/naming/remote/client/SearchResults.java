@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.client;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.naming.NameClassPair;
+import javax.naming.NamingEnumeration;
+
+/**
+ * The matches of a search, see {@link RemoteContext#search}. Enumerates the matches, and tells whether there were
+ * more than the limit of the search allowed.
+ */
+public final class SearchResults implements NamingEnumeration<NameClassPair> {
+    private final List<NameClassPair> matches;
+    private final boolean truncated;
+    private final Iterator<NameClassPair> iterator;
+
+    public SearchResults(final List<NameClassPair> matches, final boolean truncated) {
+        this.matches = Collections.unmodifiableList(matches);
+        this.truncated = truncated;
+        this.iterator = this.matches.iterator();
+    }
+
+    /**
+     * @return All matches, with names relative to the root of the search
+     */
+    public List<NameClassPair> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return Whether the search stopped at its limit, so more names than returned match the pattern
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public NameClassPair next() {
+        return nextElement();
+    }
+
+    public boolean hasMore() {
+        return hasMoreElements();
+    }
+
+    public void close() {
+    }
+
+    public boolean hasMoreElements() {
+        return iterator.hasNext();
+    }
+
+    public NameClassPair nextElement() {
+        return iterator.next();
+    }
+}
@@ -46,6 +46,54 @@ final class SecurityActions {
         }
     }
 
+    static void setContextClassLoader(final ClassLoader classLoader) {
+        if (System.getSecurityManager() == null) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+        } else {
+            AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                @Override
+                public Void run() {
+                    Thread.currentThread().setContextClassLoader(classLoader);
+                    return null;
+                }
+            });
+        }
+    }
+
+    static String getSystemProperty(final String name) {
+        if (System.getSecurityManager() == null) {
+            return System.getProperty(name);
+        } else {
+            return AccessController.doPrivileged(new PrivilegedAction<String>() {
+                @Override
+                public String run() {
+                    return System.getProperty(name);
+                }
+            });
+        }
+    }
+
+    /**
+     * Create a daemon thread which neither inherits the access control context nor the context class loader of the
+     * caller, as it outlives whatever happened to create it.
+     */
+    static Thread createDaemonThread(final Runnable task, final String name) {
+        final PrivilegedAction<Thread> action = new PrivilegedAction<Thread>() {
+            @Override
+            public Thread run() {
+                final Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                thread.setContextClassLoader(null);
+                return thread;
+            }
+        };
+        if (System.getSecurityManager() == null) {
+            return action.run();
+        } else {
+            return AccessController.doPrivileged(action);
+        }
+    }
+
     private SecurityActions() {
 
     }
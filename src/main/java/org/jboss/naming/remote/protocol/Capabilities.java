@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+
+/**
+ * The set of optional protocol features negotiated for a naming channel.
+ * <p/>
+ * The server appends the capabilities it offers to the version header, and the client appends the subset it wants
+ * to use to its version selection. Peers that pre-date capability negotiation neither write nor read the trailing
+ * bitmap, in which case the negotiated set is empty and the plain protocol for the selected version is used.
+ * <p/>
+ * Once negotiated the capabilities are attached to the {@link Channel}, so both ends can check them for every
+ * message without any additional state being passed around.
+ */
+public final class Capabilities {
+
+    /**
+     * No optional features.
+     */
+    public static final int NONE = 0x00;
+
+    /**
+     * Message bodies above a size threshold may be sent DEFLATE compressed.
+     */
+    public static final int COMPRESSION = 0x01;
+
+    /**
+     * Well known naming exceptions may be sent as a one byte code instead of the marshalled exception.
+     */
+    public static final int ERROR_CODES = 0x02;
+
+    /**
+     * The client may request the lookup results of a whole subtree in a single round trip.
+     */
+    public static final int SNAPSHOT = 0x04;
+
+    /**
+     * Lookup results carry a version, and the client may ask for a result only if it differs from the version it has.
+     */
+    public static final int VERSION_TOKENS = 0x08;
+
+    /**
+     * Chains of relative links may be followed by the server, in a single round trip.
+     */
+    public static final int LINK_RESOLUTION = 0x10;
+
+    /**
+     * Contexts returned by lookups are identified by a handle, which later requests may send names relative to.
+     */
+    public static final int CONTEXT_HANDLES = 0x20;
+
+    /**
+     * Bindings may be listed with their names and class names only, the objects being looked up on demand.
+     */
+    public static final int LAZY_BINDINGS = 0x40;
+
+    /**
+     * The client may ask the server for the names below a context which match a pattern.
+     */
+    public static final int SEARCH = 0x80;
+
+    /**
+     * Several writes may be sent in a single message, with a result for each.
+     */
+    public static final int BATCH = 0x100;
+
+    /**
+     * Several messages written at about the same time may be sent as a single frame.
+     */
+    public static final int FRAMES = 0x200;
+
+    /**
+     * Lookup results which are strings, byte arrays, boxed primitives or null may be sent without marshalling.
+     */
+    public static final int RAW_VALUES = 0x400;
+
+    /**
+     * Every capability understood by this implementation.
+     */
+    public static final int SUPPORTED = COMPRESSION | ERROR_CODES | SNAPSHOT | VERSION_TOKENS | LINK_RESOLUTION | CONTEXT_HANDLES | LAZY_BINDINGS | SEARCH | BATCH | FRAMES | RAW_VALUES;
+
+    public static final Capabilities EMPTY = new Capabilities(NONE);
+
+    private static final Attachments.Key<Capabilities> KEY = new Attachments.Key<Capabilities>(Capabilities.class);
+
+    private static final Map<String, Integer> NAMES = new LinkedHashMap<String, Integer>();
+
+    static {
+        register("compression", COMPRESSION);
+        register("error-codes", ERROR_CODES);
+        register("snapshot", SNAPSHOT);
+        register("version-tokens", VERSION_TOKENS);
+        register("link-resolution", LINK_RESOLUTION);
+        register("context-handles", CONTEXT_HANDLES);
+        register("lazy-bindings", LAZY_BINDINGS);
+        register("search", SEARCH);
+        register("batch", BATCH);
+        register("frames", FRAMES);
+        register("raw-values", RAW_VALUES);
+    }
+
+    private final int flags;
+
+    private Capabilities(final int flags) {
+        this.flags = flags;
+    }
+
+    public static Capabilities of(final int flags) {
+        return flags == NONE ? EMPTY : new Capabilities(flags);
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isEnabled(final int capability) {
+        return (flags & capability) == capability;
+    }
+
+    /**
+     * Get the capabilities negotiated for a channel.
+     *
+     * @param channel The channel
+     * @return The negotiated capabilities, or {@link #EMPTY} if nothing was negotiated
+     */
+    public static Capabilities forChannel(final Channel channel) {
+        final Capabilities capabilities = channel.getAttachments().getAttachment(KEY);
+        return capabilities == null ? EMPTY : capabilities;
+    }
+
+    public void attachTo(final Channel channel) {
+        channel.getAttachments().attach(KEY, this);
+    }
+
+    public static void write(final DataOutput output, final int flags) throws IOException {
+        output.writeInt(flags);
+    }
+
+    /**
+     * Read the capability bitmap trailing a version header.
+     *
+     * @param input The header input
+     * @return The capability flags, or {@link #NONE} if the peer did not send any
+     * @throws IOException If the header could not be read
+     */
+    public static int read(final DataInput input) throws IOException {
+        try {
+            return input.readInt();
+        } catch (EOFException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * Convert a comma separated list of capability names into flags. Unknown names are ignored.
+     *
+     * @param names The capability names, may be null
+     * @return The capability flags
+     */
+    public static int parse(final String names) {
+        int result = NONE;
+        if (names == null) {
+            return result;
+        }
+        for (String name : names.split(",")) {
+            final Integer flag = NAMES.get(name.trim().toLowerCase());
+            if (flag != null) {
+                result |= flag;
+            }
+        }
+        return result;
+    }
+
+    private static void register(final String name, final int flag) {
+        NAMES.put(name, flag);
+    }
+
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (Map.Entry<String, Integer> entry : NAMES.entrySet()) {
+            if (isEnabled(entry.getValue())) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(entry.getKey());
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
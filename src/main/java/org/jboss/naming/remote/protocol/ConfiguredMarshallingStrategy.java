@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol;
+
+import java.io.IOException;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.SimpleClassResolver;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * A {@link MarshallingStrategy} creating its marshallers from a JBoss Marshalling factory and configuration, for
+ * example River with a different buffer size. The class resolver of the configuration is replaced for each
+ * unmarshaller, so classes are resolved with the class loader the caller asks for.
+ */
+public class ConfiguredMarshallingStrategy implements MarshallingStrategy {
+    private final String name;
+    private final MarshallerFactory marshallerFactory;
+    private final MarshallingConfiguration configuration;
+
+    /**
+     * @param name              The name the strategy is negotiated by
+     * @param marshallerFactory The factory creating the marshallers
+     * @param configuration     The configuration, which is copied
+     */
+    public ConfiguredMarshallingStrategy(final String name, final MarshallerFactory marshallerFactory, final MarshallingConfiguration configuration) {
+        if (name == null || marshallerFactory == null || configuration == null) {
+            throw new IllegalArgumentException("A name, marshaller factory and configuration are required");
+        }
+        this.name = name;
+        this.marshallerFactory = marshallerFactory;
+        this.configuration = configuration.clone();
+    }
+
+    /**
+     * Create a strategy using a marshalling provider available on the class path.
+     *
+     * @param name          The name the strategy is negotiated by
+     * @param provider      The name of the marshalling provider, such as "river"
+     * @param configuration The configuration, which is copied
+     * @return The strategy
+     */
+    public static ConfiguredMarshallingStrategy forProvider(final String name, final String provider, final MarshallingConfiguration configuration) {
+        final MarshallerFactory marshallerFactory = Marshalling.getProvidedMarshallerFactory(provider);
+        if (marshallerFactory == null) {
+            throw new IllegalArgumentException("Could not find a marshaller factory for " + provider + " marshalling strategy");
+        }
+        return new ConfiguredMarshallingStrategy(name, marshallerFactory, configuration);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Marshaller createMarshaller() throws IOException {
+        return marshallerFactory.createMarshaller(configuration);
+    }
+
+    public Unmarshaller createUnmarshaller(final ClassLoader classLoader) throws IOException {
+        final MarshallingConfiguration unmarshallingConfiguration = configuration.clone();
+        unmarshallingConfiguration.setClassResolver(new SimpleClassResolver(classLoader));
+        return marshallerFactory.createUnmarshaller(unmarshallingConfiguration);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
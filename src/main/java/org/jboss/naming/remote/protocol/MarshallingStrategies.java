@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+
+/**
+ * The registry of {@link MarshallingStrategy marshalling strategies}, and the negotiation of the strategy used on a
+ * channel.
+ * <p/>
+ * The server appends the names of its strategies to the version header, after the capabilities, and the client
+ * appends the name of the one it picked to its version selection. Peers that pre-date the negotiation neither write
+ * nor read these names, in which case the {@link #DEFAULT} strategy is used.
+ */
+public final class MarshallingStrategies {
+
+    /**
+     * The name of the default strategy.
+     */
+    public static final String DEFAULT_NAME = "river";
+
+    /**
+     * River, using marshalling protocol version 2. This is what peers that pre-date the negotiation use.
+     */
+    public static final MarshallingStrategy DEFAULT;
+
+    private static final Attachments.Key<MarshallingStrategy> KEY = new Attachments.Key<MarshallingStrategy>(MarshallingStrategy.class);
+
+    private static final Map<String, MarshallingStrategy> STRATEGIES = new LinkedHashMap<String, MarshallingStrategy>();
+
+    static {
+        final MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setVersion(2);
+        DEFAULT = ConfiguredMarshallingStrategy.forProvider(DEFAULT_NAME, "river", configuration);
+        register(DEFAULT);
+    }
+
+    private MarshallingStrategies() {
+    }
+
+    /**
+     * Register a strategy, replacing any strategy registered under the same name. Only channels opened after this
+     * call are affected, and the default strategy can not be replaced.
+     *
+     * @param strategy The strategy
+     */
+    public static void register(final MarshallingStrategy strategy) {
+        if (DEFAULT_NAME.equals(strategy.getName()) && strategy != DEFAULT) {
+            throw new IllegalArgumentException("The " + DEFAULT_NAME + " marshalling strategy can not be replaced");
+        }
+        synchronized (STRATEGIES) {
+            STRATEGIES.put(strategy.getName(), strategy);
+        }
+    }
+
+    /**
+     * Get a registered strategy.
+     *
+     * @param name The name of the strategy
+     * @return The strategy, or null if none is registered under the name
+     */
+    public static MarshallingStrategy get(final String name) {
+        synchronized (STRATEGIES) {
+            return STRATEGIES.get(name);
+        }
+    }
+
+    /**
+     * Get the names of the registered strategies, in the order they were registered.
+     *
+     * @return The names
+     */
+    public static List<String> getNames() {
+        synchronized (STRATEGIES) {
+            return new ArrayList<String>(STRATEGIES.keySet());
+        }
+    }
+
+    /**
+     * Pick the strategy for a channel.
+     *
+     * @param offered    The names offered by the server
+     * @param preference A comma separated list of names in order of preference, may be null
+     * @return The first preferred strategy which is both registered and offered, or {@link #DEFAULT}
+     */
+    public static MarshallingStrategy choose(final List<String> offered, final String preference) {
+        if (preference != null) {
+            for (String name : preference.split(",")) {
+                final String trimmed = name.trim();
+                final MarshallingStrategy strategy = get(trimmed);
+                if (strategy != null && offered.contains(trimmed)) {
+                    return strategy;
+                }
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Get the strategy negotiated for a channel.
+     *
+     * @param channel The channel
+     * @return The negotiated strategy, or {@link #DEFAULT} if nothing was negotiated
+     */
+    public static MarshallingStrategy forChannel(final Channel channel) {
+        final MarshallingStrategy strategy = channel.getAttachments().getAttachment(KEY);
+        return strategy == null ? DEFAULT : strategy;
+    }
+
+    public static void attach(final Channel channel, final MarshallingStrategy strategy) {
+        channel.getAttachments().attach(KEY, strategy);
+    }
+
+    public static void writeOffer(final DataOutput output, final List<String> names) throws IOException {
+        output.writeByte(names.size());
+        for (String name : names) {
+            output.writeUTF(name);
+        }
+    }
+
+    /**
+     * Read the strategy names trailing the capabilities of a server version header.
+     *
+     * @param input The header input
+     * @return The names offered, or only the default name if the server did not send any
+     * @throws IOException If the header could not be read
+     */
+    public static List<String> readOffer(final DataInput input) throws IOException {
+        final int count;
+        try {
+            count = input.readUnsignedByte();
+        } catch (EOFException e) {
+            return Collections.singletonList(DEFAULT_NAME);
+        }
+        final List<String> names = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(input.readUTF());
+        }
+        return names;
+    }
+
+    public static void writeChoice(final DataOutput output, final MarshallingStrategy strategy) throws IOException {
+        output.writeUTF(strategy.getName());
+    }
+
+    /**
+     * Read the strategy name trailing the capabilities of a client version selection.
+     *
+     * @param input The header input
+     * @return The strategy chosen, {@link #DEFAULT} if the client did not send a name
+     * @throws IOException If the header could not be read, or the strategy chosen is not registered
+     */
+    public static MarshallingStrategy readChoice(final DataInput input) throws IOException {
+        final String name;
+        try {
+            name = input.readUTF();
+        } catch (EOFException e) {
+            return DEFAULT;
+        }
+        final MarshallingStrategy strategy = get(name);
+        if (strategy == null) {
+            throw new IOException("Unknown marshalling strategy " + name);
+        }
+        return strategy;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol;
+
+import java.io.IOException;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Creates the marshallers used for the names, objects and exceptions sent on a naming channel.
+ * <p/>
+ * Strategies are registered with {@link MarshallingStrategies} under a unique name. When a channel is opened the
+ * server offers the names of its strategies and the client picks one, which is then used for every message of the
+ * channel. Both peers need a strategy registered under the chosen name, producing compatible streams.
+ */
+public interface MarshallingStrategy {
+
+    /**
+     * Get the name the strategy is negotiated by.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Create a marshaller, which is started and finished by the caller.
+     *
+     * @return The marshaller
+     * @throws IOException If the marshaller could not be created
+     */
+    Marshaller createMarshaller() throws IOException;
+
+    /**
+     * Create an unmarshaller, which is started and finished by the caller.
+     *
+     * @param classLoader The class loader to resolve classes with
+     * @return The unmarshaller
+     * @throws IOException If the unmarshaller could not be created
+     */
+    Unmarshaller createUnmarshaller(ClassLoader classLoader) throws IOException;
+}
@@ -26,6 +26,7 @@ import java.io.IOException;
 import org.jboss.naming.remote.client.ejb.EJBClientHandler;
 import org.jboss.naming.remote.server.RemoteNamingServer;
 import org.jboss.naming.remote.server.RemoteNamingService;
+import org.jboss.naming.remote.client.LookupCache;
 import org.jboss.naming.remote.client.RemoteNamingStore;
 import org.jboss.naming.remote.protocol.v1.VersionOne;
 import org.jboss.remoting3.Channel;
@@ -51,8 +52,16 @@ public class Versions {
     }
 
     public static RemoteNamingStore getRemoteNamingStore(final byte version, final Channel channel, final EJBClientHandler ejbClientHandler) throws IOException {
+        return getRemoteNamingStore(version, channel, ejbClientHandler, Capabilities.NONE);
+    }
+
+    public static RemoteNamingStore getRemoteNamingStore(final byte version, final Channel channel, final EJBClientHandler ejbClientHandler, final int capabilities) throws IOException {
+        return getRemoteNamingStore(version, channel, ejbClientHandler, capabilities, null);
+    }
+
+    public static RemoteNamingStore getRemoteNamingStore(final byte version, final Channel channel, final EJBClientHandler ejbClientHandler, final int capabilities, final LookupCache cache) throws IOException {
         if (version == VersionOne.getVersionIdentifier()) {
-            return VersionOne.getRemoteNamingStore(channel, ejbClientHandler);
+            return VersionOne.getRemoteNamingStore(channel, ejbClientHandler, capabilities, cache);
         }
 
         throw new IllegalArgumentException("Unsupported protocol version [" + version + "]");
@@ -21,16 +21,24 @@
  */
 package org.jboss.naming.remote.protocol.v1;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import org.jboss.marshalling.Unmarshaller;
 import org.jboss.naming.remote.protocol.ProtocolCommand;
+import org.jboss.naming.remote.server.RemoteNamingService;
+import org.jboss.remoting3.Channel;
+import static org.jboss.naming.remote.protocol.v1.Constants.ERROR_CODE;
 import static org.jboss.naming.remote.protocol.v1.Constants.EXCEPTION;
 import static org.jboss.naming.remote.protocol.v1.Constants.FAILURE;
 import static org.jboss.naming.remote.protocol.v1.Constants.SUCCESS;
 import static org.jboss.naming.remote.protocol.v1.ReadUtil.prepareForUnMarshalling;
+import static org.jboss.naming.remote.protocol.v1.ReadUtil.readErrorCode;
+import static org.jboss.naming.remote.protocol.v1.ReadUtil.readRemaining;
 
 /**
  * @author John Bailey
@@ -51,6 +59,34 @@ abstract class BaseProtocolCommand<T, F extends ProtocolIoFuture<T>> implements
         return commandId;
     }
 
+    /**
+     * Whether {@link #handleServerMessageInline} can be used for messages of this command.
+     *
+     * @param remoteNamingService The naming service
+     * @return true if part of the work can be done on the receiving thread
+     */
+    protected boolean canHandleInline(final RemoteNamingService remoteNamingService) {
+        return false;
+    }
+
+    /**
+     * Handle as much of a message as can be done without blocking, on the thread which received it. Work which may
+     * block, such as writing the response, must be left to the executor once the deadline has passed. By default the
+     * message is read and handed to {@link #handleServerMessage} on the executor.
+     *
+     * @param deadline The {@link System#nanoTime()} after which no more work should be done on the receiving thread
+     * @return The remaining work to be run on the executor, or null if the message has been handled completely
+     */
+    protected Callable<Void> handleServerMessageInline(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService, final long deadline) throws IOException {
+        final byte[] message = readRemaining(input);
+        return new Callable<Void>() {
+            public Void call() throws IOException {
+                handleServerMessage(channel, new DataInputStream(new ByteArrayInputStream(message)), correlationId, remoteNamingService);
+                return null;
+            }
+        };
+    }
+
     protected void readResult(final int correlationId, final DataInput input, final ValueReader<F> valueReader) throws IOException {
         final F future = getFuture(correlationId);
         try {
@@ -59,6 +95,10 @@ abstract class BaseProtocolCommand<T, F extends ProtocolIoFuture<T>> implements
                 valueReader.read(input, future);
             } else if (outcome == FAILURE) {
                 byte parameterType = input.readByte();
+                if (parameterType == ERROR_CODE) {
+                    future.setHeldException(readErrorCode(input));
+                    return;
+                }
                 if (parameterType != EXCEPTION) {
                     throw new IOException("Unexpected response parameter received.");
                 }
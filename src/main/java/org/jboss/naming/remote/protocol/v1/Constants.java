@@ -43,11 +43,44 @@ class Constants {
     static final byte BINDING = 0x04;
     static final byte CONTEXT = 0x05;
     static final byte LIST = 0x06;
+    static final byte ERROR_CODE = 0x07;
+    static final byte NOT_MODIFIED = 0x08;
+    static final byte VERSIONED = 0x09;
+    static final byte CONTEXT_HANDLE = 0x0A;
+    static final byte BINDING_NAME = 0x0B;
+    static final byte RAW_VALUE = 0x0C;
 
     /*
-     * General
+     * Error Codes
      */
-    static final String MARSHALLING_STRATEGY = "river";
+    static final byte NAME_NOT_FOUND = 0x01;
+    static final byte NOT_CONTEXT = 0x02;
+
+    /*
+     * Payload Encodings
+     */
+    static final byte RAW = 0x00;
+    static final byte DEFLATE = 0x01;
+
+    /*
+     * Raw Value Types
+     */
+    static final byte NULL_VALUE = 0x00;
+    static final byte STRING_VALUE = 0x01;
+    static final byte BYTES_VALUE = 0x02;
+    static final byte BOOLEAN_VALUE = 0x03;
+    static final byte BYTE_VALUE = 0x04;
+    static final byte SHORT_VALUE = 0x05;
+    static final byte CHAR_VALUE = 0x06;
+    static final byte INT_VALUE = 0x07;
+    static final byte LONG_VALUE = 0x08;
+    static final byte FLOAT_VALUE = 0x09;
+    static final byte DOUBLE_VALUE = 0x0A;
+
+    /*
+     * Frames
+     */
+    static final byte FRAME = 0x7F;
 
 
 }
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import javax.naming.Name;
+
+/**
+ * A handle the server issued for a context, which names below the context can be sent relative to.
+ */
+final class ContextHandle {
+    private final int id;
+    private final Name name;
+
+    ContextHandle(final int id, final Name name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Name getName() {
+        return name;
+    }
+
+    /**
+     * Get a name relative to the context.
+     *
+     * @param absoluteName The absolute name
+     * @return The name relative to the context, or null if the name is not below it
+     */
+    Name relativize(final Name absoluteName) {
+        if (!absoluteName.startsWith(name)) {
+            return null;
+        }
+        return absoluteName.getSuffix(name.size());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.util.List;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.client.BatchOperation;
+import org.jboss.naming.remote.client.CurrentEjbClientConnection;
+import org.jboss.naming.remote.client.ExtendedRemoteNamingStore;
+import org.jboss.naming.remote.client.NamingPipeline;
+import org.jboss.naming.remote.client.SearchResults;
+
+/**
+ * The naming store of a context the server issued a handle for. Lookups and listings below the context send their
+ * names relative to the handle, everything else goes to the store's channel unchanged.
+ */
+final class ContextHandleNamingStore implements ExtendedRemoteNamingStore {
+    private final RemoteNamingStoreV1 namingStore;
+    private final ContextHandle handle;
+
+    ContextHandleNamingStore(final RemoteNamingStoreV1 namingStore, final ContextHandle handle) {
+        this.namingStore = namingStore;
+        this.handle = handle;
+    }
+
+    RemoteNamingStoreV1 getNamingStore() {
+        return namingStore;
+    }
+
+    ContextHandle getHandle() {
+        return handle;
+    }
+
+    public Object lookup(final Name name) throws NamingException {
+        return namingStore.lookup(name, handle);
+    }
+
+    public void bind(final Name name, final Object object) throws NamingException {
+        namingStore.bind(name, object);
+    }
+
+    public void rebind(final Name name, final Object object) throws NamingException {
+        namingStore.rebind(name, object);
+    }
+
+    public void rename(final Name name, final Name newName) throws NamingException {
+        namingStore.rename(name, newName);
+    }
+
+    public List<NameClassPair> list(final Name name) throws NamingException {
+        return namingStore.list(name, handle);
+    }
+
+    public List<Binding> listBindings(final Name name) throws NamingException {
+        return namingStore.listBindings(name, false, handle);
+    }
+
+    public List<Binding> listBindings(final Name name, final boolean lazy) throws NamingException {
+        return namingStore.listBindings(name, lazy, handle);
+    }
+
+    public void unbind(final Name name) throws NamingException {
+        namingStore.unbind(name);
+    }
+
+    public Context createSubcontext(final Name name) throws NamingException {
+        return namingStore.createSubcontext(name);
+    }
+
+    public void destroySubcontext(final Name name) throws NamingException {
+        namingStore.destroySubcontext(name);
+    }
+
+    public Object lookupLink(final Name name) throws NamingException {
+        return namingStore.lookupLink(name);
+    }
+
+    public int prefetch(final Name name, final int maxDepth, final int maxEntries) throws NamingException {
+        return namingStore.prefetch(name, maxDepth, maxEntries);
+    }
+
+    public Object resolveLink(final Name base, final String linkName) throws NamingException {
+        return namingStore.resolveLink(base, linkName);
+    }
+
+    public SearchResults search(final Name name, final String pattern, final int maxDepth, final int limit) throws NamingException {
+        return namingStore.search(name, pattern, maxDepth, limit);
+    }
+
+    public List<NamingException> batch(final List<BatchOperation> operations, final boolean atomic) throws NamingException {
+        return namingStore.batch(operations, atomic);
+    }
+
+    public NamingPipeline pipeline() throws NamingException {
+        return namingStore.pipeline();
+    }
+
+    public void close() throws NamingException {
+        // the handle is only a view of the store's channel, which is closed with the store
+    }
+
+    public void closeAsync() {
+    }
+
+    @Deprecated
+    public void addEjbContext(final CurrentEjbClientConnection connection) {
+        namingStore.addEjbContext(connection);
+    }
+
+    @Deprecated
+    public void removeEjbContext(final CurrentEjbClientConnection connection) {
+        namingStore.removeEjbContext(connection);
+    }
+}
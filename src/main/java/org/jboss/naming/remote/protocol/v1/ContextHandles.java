@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.Name;
+import javax.naming.NamingException;
+
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+
+/**
+ * The context handles issued on a channel. A handle stands for the name of a context a client looked up, so later
+ * requests can send names relative to it. Handles are never reused while the channel is open, and the same context
+ * name always gets the same handle, so the table is bounded by the number of distinct contexts looked up.
+ */
+final class ContextHandles {
+    /** The number of handles issued per channel, contexts looked up beyond that are returned without a handle */
+    static final int MAX_HANDLES = 4096;
+
+    private static final Attachments.Key<ContextHandles> KEY = new Attachments.Key<ContextHandles>(ContextHandles.class);
+
+    private final Map<Name, Integer> handles = new HashMap<Name, Integer>();
+    private final List<Name> names = new ArrayList<Name>();
+
+    /**
+     * Get the handles of a channel, creating them on first use.
+     *
+     * @param channel The channel
+     * @return The handles
+     */
+    static ContextHandles forChannel(final Channel channel) {
+        final Attachments attachments = channel.getAttachments();
+        final ContextHandles handles = attachments.getAttachment(KEY);
+        if (handles != null) {
+            return handles;
+        }
+        final ContextHandles created = new ContextHandles();
+        final ContextHandles existing = attachments.attachIfAbsent(KEY, created);
+        return existing == null ? created : existing;
+    }
+
+    /**
+     * Issue a handle for a context.
+     *
+     * @param name The absolute name of the context
+     * @return The handle, or -1 if the channel has been issued the maximum number of handles
+     */
+    synchronized int register(final Name name) {
+        final Integer existing = handles.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (names.size() >= MAX_HANDLES) {
+            return -1;
+        }
+        final Name copy = (Name) name.clone();
+        final int handle = names.size();
+        names.add(copy);
+        handles.put(copy, handle);
+        return handle;
+    }
+
+    /**
+     * Get the name of the context a handle was issued for.
+     *
+     * @param handle The handle
+     * @return The absolute name of the context
+     * @throws NamingException If no such handle was issued on the channel
+     */
+    synchronized Name getName(final int handle) throws NamingException {
+        if (handle < 0 || handle >= names.size()) {
+            throw new NamingException("Unknown context handle " + handle);
+        }
+        return names.get(handle);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol.v1;
+
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
+import org.jboss.remoting3.Channel;
+
+/**
+ * The marshalling strategy of the channel whose messages the current thread reads or writes. It is set wherever a
+ * message of a channel is handled or written, so the marshalling helpers pick the strategy negotiated for the channel
+ * without every command passing the channel down to them.
+ */
+final class CurrentStrategy {
+    private static final ThreadLocal<MarshallingStrategy> CURRENT = new ThreadLocal<MarshallingStrategy>();
+
+    private CurrentStrategy() {
+    }
+
+    /**
+     * Get the strategy of the current channel.
+     *
+     * @return The strategy, or {@link MarshallingStrategies#DEFAULT} if the thread is not handling a channel
+     */
+    static MarshallingStrategy get() {
+        final MarshallingStrategy strategy = CURRENT.get();
+        return strategy == null ? MarshallingStrategies.DEFAULT : strategy;
+    }
+
+    /**
+     * Use the strategy of a channel until {@link #exit} is called.
+     *
+     * @param channel The channel
+     * @return The strategy used before, to be passed to {@link #exit}
+     */
+    static MarshallingStrategy enter(final Channel channel) {
+        return enter(MarshallingStrategies.forChannel(channel));
+    }
+
+    /**
+     * Use a strategy until {@link #exit} is called, for data which was not read from or written to a channel.
+     *
+     * @param strategy The strategy
+     * @return The strategy used before, to be passed to {@link #exit}
+     */
+    static MarshallingStrategy enter(final MarshallingStrategy strategy) {
+        final MarshallingStrategy previous = CURRENT.get();
+        CURRENT.set(strategy);
+        return previous;
+    }
+
+    static void exit(final MarshallingStrategy previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import javax.naming.Binding;
+import javax.naming.Name;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.client.RemoteNamingStore;
+
+/**
+ * A binding listed without its object, which is looked up the first time it is asked for. The name and class name
+ * are available without a round trip.
+ */
+final class LazyBinding extends Binding {
+    private static final long serialVersionUID = 1L;
+
+    private final transient RemoteNamingStore namingStore;
+    private final transient Name absoluteName;
+    private transient boolean resolved;
+
+    LazyBinding(final String name, final String className, final RemoteNamingStore namingStore, final Name absoluteName) {
+        super(name, className, null);
+        this.namingStore = namingStore;
+        this.absoluteName = absoluteName;
+    }
+
+    /**
+     * Get the bound object, looking it up if it was not fetched yet.
+     *
+     * @throws IllegalStateException If the lookup failed
+     */
+    public synchronized Object getObject() {
+        if (!resolved) {
+            try {
+                super.setObject(namingStore.lookup(absoluteName));
+            } catch (NamingException e) {
+                throw new IllegalStateException("Failed to look up the object bound to " + absoluteName, e);
+            }
+            resolved = true;
+        }
+        return super.getObject();
+    }
+
+    public synchronized void setObject(final Object obj) {
+        super.setObject(obj);
+        resolved = true;
+    }
+
+    /**
+     * Describes the binding without looking its object up, so logging a binding does not cost a round trip.
+     */
+    public synchronized String toString() {
+        if (resolved) {
+            return super.toString();
+        }
+        return (isRelative() ? "" : "(not relative)") + getName() + ": " + getClassName() + ":<not looked up>";
+    }
+
+    private Object writeReplace() {
+        // the naming store does not travel, so the object has to
+        return new Binding(getName(), getClassName(), getObject(), isRelative());
+    }
+}
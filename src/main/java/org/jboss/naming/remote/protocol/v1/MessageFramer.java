@@ -0,0 +1,269 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol.v1;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.naming.remote.protocol.CancellableDataOutputStream;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+import org.xnio.IoUtils;
+
+import static org.jboss.naming.remote.protocol.v1.Constants.FRAME;
+
+/**
+ * Gathers the messages written to a channel within a short window into a single frame, so a burst of requests or
+ * responses from many threads costs one channel message instead of one each.
+ * <p/>
+ * The first thread to write a message opens a frame and waits for the window to pass, or for the frame to fill up,
+ * before writing it. Threads writing in the meantime add their message to the open frame and wait for it to be
+ * written, so each writer still sees the failure of its own message. A frame holding a single message is written as
+ * the plain message.
+ * <p/>
+ * Messages written while the receiving thread of a channel handles a message, and messages too long to be framed, are
+ * written on their own right away, so the receiving thread never waits for a window.
+ */
+final class MessageFramer {
+    private static final Attachments.Key<MessageFramer> KEY = new Attachments.Key<MessageFramer>(MessageFramer.class);
+
+    /**
+     * The most messages a frame may hold.
+     */
+    static final int MAX_FRAME_MESSAGES = 1024;
+
+    /**
+     * The longest message a frame may hold, longer ones are written on their own.
+     */
+    static final int MAX_FRAMED_MESSAGE_LENGTH = 1024 * 1024;
+
+    private static final ThreadLocal<Boolean> UNFRAMED = new ThreadLocal<Boolean>();
+
+    private final Channel channel;
+    private final long windowNanos;
+    private final int maxFrameSize;
+    // guarded by this
+    private Frame open;
+    private int framesWritten;
+
+    private MessageFramer(final Channel channel, final long windowNanos, final int maxFrameSize) {
+        this.channel = channel;
+        this.windowNanos = windowNanos;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Gather the messages written to a channel into frames from now on.
+     *
+     * @param channel      The channel
+     * @param window       How long a frame is held open for more messages
+     * @param unit         The unit of the window
+     * @param maxFrameSize The number of messages after which a frame is written without waiting any longer
+     */
+    static void attach(final Channel channel, final long window, final TimeUnit unit, final int maxFrameSize) {
+        channel.getAttachments().attach(KEY, new MessageFramer(channel, unit.toNanos(window), Math.min(Math.max(maxFrameSize, 1), MAX_FRAME_MESSAGES)));
+    }
+
+    /**
+     * Get the framer of a channel.
+     *
+     * @param channel The channel
+     * @return The framer, or null if messages are written to the channel as they come
+     */
+    static MessageFramer forChannel(final Channel channel) {
+        return channel.getAttachments().getAttachment(KEY);
+    }
+
+    /**
+     * Write the messages of the current thread on their own, until {@link #exitUnframed} is called.
+     *
+     * @return Whether the messages of the thread were written on their own already
+     */
+    static boolean enterUnframed() {
+        final boolean previous = UNFRAMED.get() != null;
+        UNFRAMED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void exitUnframed(final boolean previous) {
+        if (!previous) {
+            UNFRAMED.remove();
+        }
+    }
+
+    /**
+     * Get the number of frames holding more than one message that were written.
+     */
+    synchronized int getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     * Write a complete message as part of a frame, returning once the frame has been written.
+     *
+     * @param message The message, including its header
+     * @throws IOException If the frame could not be written
+     */
+    void write(final byte[] message) throws IOException {
+        if (message.length > MAX_FRAMED_MESSAGE_LENGTH || UNFRAMED.get() != null) {
+            final Frame single = new Frame(Thread.currentThread());
+            single.messages.add(message);
+            single.writeTo(channel);
+            return;
+        }
+        final Frame frame;
+        final boolean opened;
+        synchronized (this) {
+            opened = open == null;
+            if (opened) {
+                open = new Frame(Thread.currentThread());
+            }
+            frame = open;
+            frame.messages.add(message);
+            if (frame.messages.size() >= maxFrameSize) {
+                close(frame);
+            }
+        }
+        if (opened) {
+            awaitWindow(frame);
+            frame.writeTo(channel);
+        } else if (frame.closed) {
+            LockSupport.unpark(frame.owner);
+        }
+        frame.awaitWritten();
+    }
+
+    private void awaitWindow(final Frame frame) {
+        final long deadline = System.nanoTime() + windowNanos;
+        while (!frame.closed) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                synchronized (this) {
+                    if (!frame.closed) {
+                        close(frame);
+                    }
+                }
+                return;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void close(final Frame frame) {
+        frame.closed = true;
+        open = null;
+        if (frame.messages.size() > 1) {
+            framesWritten++;
+        }
+    }
+
+    /**
+     * Read the messages of a frame, once the frame header has been read.
+     *
+     * @param channel The channel the frame was received on
+     * @param input   The frame input
+     * @return The messages of the frame, each including its header
+     * @throws IOException If the frame could not be read, or frames were not negotiated for the channel
+     */
+    static List<byte[]> readFrame(final Channel channel, final DataInputStream input) throws IOException {
+        if (!Capabilities.forChannel(channel).isEnabled(Capabilities.FRAMES)) {
+            throw new IOException("Received a frame on " + channel + ", which did not negotiate frames");
+        }
+        final int count = input.readInt();
+        if (count < 0 || count > MAX_FRAME_MESSAGES) {
+            throw new IOException("Invalid number of framed messages " + count);
+        }
+        final List<byte[]> messages = new ArrayList<byte[]>();
+        for (int i = 0; i < count; i++) {
+            final int length = input.readInt();
+            if (length < 0 || length > MAX_FRAMED_MESSAGE_LENGTH) {
+                throw new IOException("Invalid framed message length " + length);
+            }
+            final byte[] message = new byte[length];
+            input.readFully(message);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static final class Frame {
+        private final Thread owner;
+        private final List<byte[]> messages = new ArrayList<byte[]>();
+        private final CountDownLatch written = new CountDownLatch(1);
+        private volatile boolean closed;
+        private volatile IOException failure;
+
+        private Frame(final Thread owner) {
+            this.owner = owner;
+        }
+
+        private void writeTo(final Channel channel) throws IOException {
+            try {
+                final CancellableDataOutputStream output = new CancellableDataOutputStream(channel.writeMessage());
+                try {
+                    if (messages.size() == 1) {
+                        output.write(messages.get(0));
+                    } else {
+                        output.writeByte(FRAME);
+                        output.writeInt(0);
+                        output.writeInt(messages.size());
+                        for (byte[] message : messages) {
+                            output.writeInt(message.length);
+                            output.write(message);
+                        }
+                    }
+                } catch (IOException e) {
+                    output.cancel();
+                    throw e;
+                } finally {
+                    IoUtils.safeClose(output);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                written.countDown();
+            }
+        }
+
+        private void awaitWritten() throws IOException {
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for frame to be written");
+            }
+            final IOException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
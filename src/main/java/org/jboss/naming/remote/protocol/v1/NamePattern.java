@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.util.regex.Pattern;
+
+/**
+ * A glob pattern for names, as described by {@link org.jboss.naming.remote.server.SearchableContext#search}.
+ */
+final class NamePattern {
+    private final Pattern pattern;
+    private final String[] components;
+    /** Whether the pattern contains '**', so it can match names of any depth */
+    private final boolean anyDepth;
+
+    NamePattern(final String glob) {
+        this.components = glob.split("/");
+        this.anyDepth = glob.contains("**");
+        final StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (literalStart < i) {
+                regex.append(Pattern.quote(glob.substring(literalStart, i)));
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^/]*");
+            }
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        this.pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    boolean matches(final String name) {
+        return pattern.matcher(name).matches();
+    }
+
+    /**
+     * Whether names with a number of components can match, so a search can stop descending.
+     */
+    boolean reaches(final int depth) {
+        return anyDepth || depth <= components.length;
+    }
+
+    /**
+     * Get the component names at a depth must have to match, so a search can skip the other entries of a context.
+     *
+     * @param depth The depth, 1 for the entries of the root
+     * @return The component, or null if it contains wildcards or the components before it may span several levels
+     */
+    String literalComponent(final int depth) {
+        if (depth > components.length) {
+            return null;
+        }
+        for (int i = 0; i < depth - 1; i++) {
+            if (components[i].contains("**")) {
+                return null;
+            }
+        }
+        final String component = components[depth - 1];
+        return component.indexOf('*') < 0 && component.indexOf('?') < 0 ? component : null;
+    }
+}
@@ -21,42 +21,75 @@
  */
 package org.jboss.naming.remote.protocol.v1;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import javax.naming.Binding;
+import javax.naming.CompositeName;
 import javax.naming.Context;
 import javax.naming.InvalidNameException;
+import javax.naming.LinkRef;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.Reference;
+import javax.naming.Referenceable;
+import javax.naming.SizeLimitExceededException;
 
 import org.jboss.marshalling.Marshaller;
 import org.jboss.marshalling.Unmarshaller;
+import org.jboss.naming.remote.client.BatchOperation;
+import org.jboss.naming.remote.client.LookupCache;
 import org.jboss.naming.remote.client.RemoteContext;
 import org.jboss.naming.remote.client.RemoteNamingStore;
+import org.jboss.naming.remote.client.SearchResults;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
 import org.jboss.naming.remote.protocol.ProtocolCommand;
+import org.jboss.naming.remote.server.AsyncNamingContext;
+import org.jboss.naming.remote.server.ChannelRequestQueue;
+import org.jboss.naming.remote.server.AtomicBatchContext;
+import org.jboss.naming.remote.server.LookupResponseCache;
 import org.jboss.naming.remote.server.RemoteNamingService;
+import org.jboss.naming.remote.server.RequestLane;
+import org.jboss.naming.remote.server.SearchableContext;
 import org.jboss.remoting3.Channel;
 import org.xnio.IoFuture;
 
 import static org.jboss.naming.remote.client.ClientUtil.namingException;
 import static org.jboss.naming.remote.protocol.v1.Constants.BINDING;
+import static org.jboss.naming.remote.protocol.v1.Constants.BINDING_NAME;
 import static org.jboss.naming.remote.protocol.v1.Constants.CONTEXT;
+import static org.jboss.naming.remote.protocol.v1.Constants.CONTEXT_HANDLE;
+import static org.jboss.naming.remote.protocol.v1.Constants.EXCEPTION;
 import static org.jboss.naming.remote.protocol.v1.Constants.NAME;
+import static org.jboss.naming.remote.protocol.v1.Constants.NOT_MODIFIED;
 import static org.jboss.naming.remote.protocol.v1.Constants.OBJECT;
+import static org.jboss.naming.remote.protocol.v1.Constants.RAW_VALUE;
 import static org.jboss.naming.remote.protocol.v1.Constants.SUCCESS;
+import static org.jboss.naming.remote.protocol.v1.Constants.VERSIONED;
+import static org.jboss.naming.remote.protocol.v1.Constants.VOID;
 import static org.jboss.naming.remote.protocol.v1.ReadUtil.prepareForUnMarshalling;
+import static org.jboss.naming.remote.protocol.v1.ReadUtil.readRemaining;
+import static org.jboss.naming.remote.protocol.v1.WriteUtil.isWriting;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.prepareForMarshalling;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.write;
+import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeCachedResponse;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeExceptionResponse;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeResponse;
 
@@ -64,13 +97,27 @@ import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeResponse;
  * @author John Bailey
  */
 class Protocol {
+    /**
+     * The number of relative links followed by {@link #RESOLVE_LINK} before it gives up, to break cycles.
+     */
+    private static final int MAX_LINK_HOPS = 16;
+
+    /**
+     * The number of operations a {@link #BATCH} may hold, so a batch can not make the server hold any number of them.
+     */
+    static final int MAX_BATCH_SIZE = 1024;
+
     static ProtocolCommand<Object> LOOKUP = new BaseProtocolCommand<Object, ClassLoadingNamedIoFuture<Object>>((byte) 0x01) {
         public Object execute(final Channel channel, final Object... args) throws IOException, NamingException {
-            if (args.length != 1 || !(args[0] instanceof Name)) {
-                throw new IllegalArgumentException("Lookup requires a single name argument");
+            if (args.length < 1 || args.length > 2 || !(args[0] instanceof Name) || (args.length == 2 && !(args[1] instanceof LookupCache || args[1] instanceof ContextHandle))) {
+                throw new IllegalArgumentException("Lookup requires a name argument and an optional cache or context handle");
             }
             final Name name = Name.class.cast(args[0]);
             final ClassLoadingNamedIoFuture<Object> future = new ClassLoadingNamedIoFuture<Object>(name, Thread.currentThread().getContextClassLoader());
+            if (args.length == 2 && args[1] instanceof LookupCache) {
+                future.cacheResponse((LookupCache) args[1]);
+            }
+            final ContextHandle handle = args.length == 2 && args[1] instanceof ContextHandle ? (ContextHandle) args[1] : null;
             final int correlationId = reserveNextCorrelationId(future);
             try {
                 write(channel, new WriteUtil.Writer() {
@@ -79,8 +126,7 @@ class Protocol {
                         output.writeInt(correlationId);
 
                         final Marshaller marshaller = prepareForMarshalling(output);
-                        marshaller.writeByte(NAME);
-                        marshaller.writeObject(name);
+                        writeName(marshaller, name, handle);
                         marshaller.finish();
                     }
                 });
@@ -108,69 +154,169 @@ class Protocol {
         }
 
         public void handleServerMessage(Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Name name;
+            try {
+                name = readName(channel, input, remoteNamingService);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            if (cache != null) {
+                final byte[] response = cache.get(name);
+                if (response != null) {
+                    writeCachedLookupResponse(channel, name, response, cache, correlationId);
+                    return;
+                }
+            }
+            lookup(channel, name, correlationId, remoteNamingService);
+        }
 
-            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
-            Name name;
+        protected boolean canHandleInline(final RemoteNamingService remoteNamingService) {
+            return remoteNamingService.getLookupResponseCache() != null;
+        }
+
+        protected Callable<Void> handleServerMessageInline(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService, final long deadline) throws IOException {
+            final Name name;
             try {
-                byte paramType = unmarshaller.readByte();
-                if (paramType != NAME) {
-                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                name = readName(channel, input, remoteNamingService);
+            } catch (final NamingException e) {
+                return new Callable<Void>() {
+                    public Void call() throws IOException {
+                        writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                        return null;
+                    }
+                };
+            }
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            final byte[] response = cache == null ? null : cache.get(name);
+            if (response == null) {
+                return new Callable<Void>() {
+                    public Void call() throws IOException {
+                        lookup(channel, name, correlationId, remoteNamingService);
+                        return null;
+                    }
+                };
+            }
+            if (System.nanoTime() - deadline < 0 && !isWriting(channel)) {
+                writeCachedLookupResponse(channel, name, response, cache, correlationId);
+                return null;
+            }
+            // out of time, or the write could wait for another writer of the channel
+            return new Callable<Void>() {
+                public Void call() throws IOException {
+                    writeCachedLookupResponse(channel, name, response, cache, correlationId);
+                    return null;
                 }
-                name = unmarshaller.readObject(Name.class);
+            };
+        }
+
+        private Name readName(final Channel channel, final DataInput input, final RemoteNamingService remoteNamingService) throws IOException, NamingException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            try {
+                return Protocol.readName(unmarshaller, channel, remoteNamingService);
             } catch (ClassNotFoundException cnfe) {
                 throw new IOException(cnfe);
             } finally {
                 unmarshaller.close();
             }
+        }
+
+        private void lookup(final Channel channel, final Name name, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            final long generation = cache == null ? 0 : cache.getGeneration();
+            final Context localContext = remoteNamingService.getLocalContext();
+            if (startAsync(localContext, AsyncOperation.LOOKUP, name, new ResponseCompletion<Object>(channel, getCommandId(), correlationId, remoteNamingService) {
+                void respond(final Object result) throws IOException {
+                    writeLookupResponse(channel, name, result, generation, correlationId, remoteNamingService);
+                }
+            })) {
+                return;
+            }
 
+            final Object result;
             try {
-                final Object result = remoteNamingService.getLocalContext().lookup(name);
-                write(channel, new WriteUtil.Writer() {
-                    public void write(DataOutput output) throws IOException {
-                        output.writeByte(getCommandId());
-                        output.writeInt(correlationId);
-                        output.writeByte(SUCCESS);
-                        if (result instanceof Context) {
-                            output.writeByte(CONTEXT);
-                        } else {
-                            output.writeByte(OBJECT);
-                            final Marshaller marshaller = prepareForMarshalling(output);
-                            marshaller.writeObject(result);
-                            marshaller.finish();
-                        }
-                    }
-                });
+                result = localContext.lookup(name);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            writeLookupResponse(channel, name, result, generation, correlationId, remoteNamingService);
+        }
+
+        private void writeLookupResponse(final Channel channel, final Name name, final Object result, final long generation, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            if (cache != null) {
+                final byte[] response = marshalLookupResult(result);
+                cache.put(name, response, generation);
+                writeCachedLookupResponse(channel, name, response, cache, correlationId);
+                return;
+            }
+            if (result instanceof Context && writeContextHandleResponse(channel, name, correlationId)) {
+                return;
+            }
+
+            write(channel, new WriteUtil.Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+                    writeLookupResult(output, result, Capabilities.forChannel(channel).isEnabled(Capabilities.RAW_VALUES));
+                }
+            });
+        }
+
+        /**
+         * Write a marshalled lookup response, replacing a context by a handle if the channel uses them.
+         */
+        private void writeCachedLookupResponse(final Channel channel, final Name name, final byte[] response, final LookupResponseCache cache, final int correlationId) throws IOException {
+            if (response.length == 1 && response[0] == CONTEXT && writeContextHandleResponse(channel, name, correlationId)) {
+                return;
+            }
+            writeCachedResponse(channel, responseForChannel(channel, name, response, cache), getCommandId(), correlationId);
+        }
+
+        /**
+         * Write a context as a handle, if the channel uses them and has not been issued the maximum number yet.
+         *
+         * @return true if the response was written
+         */
+        private boolean writeContextHandleResponse(final Channel channel, final Name name, final int correlationId) throws IOException {
+            if (!Capabilities.forChannel(channel).isEnabled(Capabilities.CONTEXT_HANDLES)) {
+                return false;
+            }
+            final int handle = ContextHandles.forChannel(channel).register(name);
+            if (handle < 0) {
+                return false;
             }
+            write(channel, new WriteUtil.Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+                    output.writeByte(CONTEXT_HANDLE);
+                    output.writeInt(handle);
+                }
+            });
+            return true;
         }
 
         public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
             readResult(correlationId, input, new ValueReader<ClassLoadingNamedIoFuture<Object>>() {
                 public void read(final DataInput input, ClassLoadingNamedIoFuture<Object> future) throws IOException {
-                    byte parameterType = input.readByte();
-                    switch (parameterType) {
-                        case OBJECT: {
-                            try {
-                                final Unmarshaller unmarshaller = prepareForUnMarshalling(input, future.getClassLoader());
-                                future.setResult(unmarshaller.readObject());
-                                unmarshaller.finish();
-                            } catch (ClassNotFoundException e) {
-                                throw new IOException(e);
-                            } catch (ClassCastException e) {
-                                throw new IOException(e);
-                            }
-                            break;
-                        }
-                        case CONTEXT: {
-                            future.setResult(new RemoteContext(NamedIoFuture.class.cast(future).name, namingStore, new Hashtable<String, Object>()));
-                            break;
-                        }
-                        default: {
-                            throw new IOException("Unexpected response parameter received.");
-                        }
-
+                    final Name name = NamedIoFuture.class.cast(future).name;
+                    final LookupCache cache = future.getCache();
+                    if (cache == null) {
+                        future.setResult(readLookupResult(input, name, future.getClassLoader(), namingStore));
+                        return;
+                    }
+                    final byte[] response = readRemaining(input);
+                    final Object result = readLookupResult(new DataInputStream(new ByteArrayInputStream(response)), name, future.getClassLoader(), namingStore);
+                    // handles are only valid on this channel, the cache may outlive it
+                    if (response[0] != CONTEXT_HANDLE) {
+                        cache.put(name, response, future.getGeneration());
                     }
+                    future.setResult(result);
                 }
             });
         }
@@ -247,6 +393,7 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().bind(name, object);
+                invalidateLookupResponses(remoteNamingService, name);
                 writeResponse(channel, getCommandId(), correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
@@ -333,6 +480,7 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().rebind(name, object);
+                invalidateLookupResponses(remoteNamingService, name);
                 writeResponse(channel, getCommandId(), correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
@@ -350,10 +498,11 @@ class Protocol {
 
     static ProtocolCommand<List<NameClassPair>> LIST = new BaseProtocolCommand<List<NameClassPair>, ProtocolIoFuture<List<NameClassPair>>>((byte) 0x04) {
         public List<NameClassPair> execute(final Channel channel, final Object... args) throws IOException, NamingException {
-            if (args.length != 1 || !(args[0] instanceof Name)) {
-                throw new IllegalArgumentException("List requires a name argument.");
+            if (args.length < 1 || args.length > 2 || !(args[0] instanceof Name) || (args.length == 2 && !(args[1] instanceof ContextHandle))) {
+                throw new IllegalArgumentException("List requires a name argument and an optional context handle.");
             }
             final Name name = Name.class.cast(args[0]);
+            final ContextHandle handle = args.length == 2 ? (ContextHandle) args[1] : null;
 
             final ProtocolIoFuture<List<NameClassPair>> future = new ProtocolIoFuture<List<NameClassPair>>();
             final int correlationId = reserveNextCorrelationId(future);
@@ -364,8 +513,7 @@ class Protocol {
                         output.writeInt(correlationId);
 
                         final Marshaller marshaller = prepareForMarshalling(output);
-                        marshaller.writeByte(NAME);
-                        marshaller.writeObject(name);
+                        writeName(marshaller, name, handle);
                         marshaller.finish();
                     }
                 });
@@ -396,44 +544,56 @@ class Protocol {
             final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
             Name name;
             try {
-                byte paramType = unmarshaller.readByte();
-                if (paramType != NAME) {
-                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
-                }
-                name = unmarshaller.readObject(Name.class);
+                name = readName(unmarshaller, channel, remoteNamingService);
             } catch (ClassNotFoundException cnfe) {
                 throw new IOException(cnfe);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
             } finally {
                 unmarshaller.finish();
             }
 
+            final Context localContext = remoteNamingService.getLocalContext();
+            if (startAsync(localContext, AsyncOperation.LIST, name, new ResponseCompletion<List<NameClassPair>>(channel, getCommandId(), correlationId, remoteNamingService) {
+                void respond(final List<NameClassPair> result) throws IOException {
+                    writeListResponse(channel, result, correlationId);
+                }
+            })) {
+                return;
+            }
+
             try {
-                final NamingEnumeration<NameClassPair> results = remoteNamingService.getLocalContext().list(name);
+                final NamingEnumeration<NameClassPair> results = localContext.list(name);
                 final List<NameClassPair> resultList = new ArrayList<NameClassPair>();
                 while (results.hasMore()) {
                     resultList.add(results.next());
                 }
-                write(channel, new WriteUtil.Writer() {
-                    public void write(DataOutput output) throws IOException {
-                        output.writeByte(getCommandId());
-                        output.writeInt(correlationId);
-                        output.writeByte(SUCCESS);
-
-                        output.writeByte(Constants.LIST);
-                        output.writeInt(resultList.size());
-
-                        final Marshaller marshaller = prepareForMarshalling(output);
-                        for (NameClassPair nameClassPair : resultList) {
-                            marshaller.writeObject(nameClassPair);
-                        }
-                        marshaller.finish();
-                    }
-                });
+                writeListResponse(channel, resultList, correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
             }
         }
 
+        private void writeListResponse(final Channel channel, final List<NameClassPair> resultList, final int correlationId) throws IOException {
+            write(channel, new WriteUtil.Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    output.writeInt(resultList.size());
+
+                    final Marshaller marshaller = prepareForMarshalling(output);
+                    for (NameClassPair nameClassPair : resultList) {
+                        marshaller.writeObject(nameClassPair);
+                    }
+                    marshaller.finish();
+                }
+            });
+        }
+
         public void handleClientMessage(DataInput input, int correlationId, RemoteNamingStore namingStore) throws IOException {
             readResult(correlationId, input, new ValueReader<ProtocolIoFuture<List<NameClassPair>>>() {
                 public void read(final DataInput input, ProtocolIoFuture<List<NameClassPair>> future) throws IOException {
@@ -462,10 +622,11 @@ class Protocol {
 
     static ProtocolCommand<List<Binding>> LIST_BINDINGS = new BaseProtocolCommand<List<Binding>, ClassLoadingNamedIoFuture<List<Binding>>>((byte) 0x05) {
         public List<Binding> execute(final Channel channel, final Object... args) throws IOException, NamingException {
-            if (args.length != 1 || !(args[0] instanceof Name)) {
-                throw new IllegalArgumentException("List requires a name argument.");
+            if (args.length < 1 || args.length > 2 || !(args[0] instanceof Name) || (args.length == 2 && !(args[1] instanceof ContextHandle))) {
+                throw new IllegalArgumentException("List requires a name argument and an optional context handle.");
             }
             final Name name = Name.class.cast(args[0]);
+            final ContextHandle handle = args.length == 2 ? (ContextHandle) args[1] : null;
 
             final ClassLoadingNamedIoFuture<List<Binding>> future = new ClassLoadingNamedIoFuture<List<Binding>>(name, Thread.currentThread().getContextClassLoader());
             final int correlationId = reserveNextCorrelationId(future);
@@ -476,8 +637,7 @@ class Protocol {
                         output.writeInt(correlationId);
 
                         final Marshaller marshaller = prepareForMarshalling(output);
-                        marshaller.writeByte(NAME);
-                        marshaller.writeObject(name);
+                        writeName(marshaller, name, handle);
                         marshaller.finish();
                     }
                 });
@@ -508,49 +668,61 @@ class Protocol {
             final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
             Name name;
             try {
-                byte paramType = unmarshaller.readByte();
-                if (paramType != NAME) {
-                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
-                }
-                name = unmarshaller.readObject(Name.class);
+                name = readName(unmarshaller, channel, remoteNamingService);
             } catch (ClassNotFoundException cnfe) {
                 throw new IOException(cnfe);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
             } finally {
                 unmarshaller.finish();
             }
 
+            final Context localContext = remoteNamingService.getLocalContext();
+            if (startAsync(localContext, AsyncOperation.LIST_BINDINGS, name, new ResponseCompletion<List<Binding>>(channel, getCommandId(), correlationId, remoteNamingService) {
+                void respond(final List<Binding> result) throws IOException {
+                    writeListBindingsResponse(channel, result, correlationId);
+                }
+            })) {
+                return;
+            }
+
             try {
-                final NamingEnumeration<Binding> results = remoteNamingService.getLocalContext().listBindings(name);
+                final NamingEnumeration<Binding> results = localContext.listBindings(name);
                 final List<Binding> resultList = new ArrayList<Binding>();
                 while (results.hasMore()) {
                     resultList.add(results.next());
                 }
-                write(channel, new WriteUtil.Writer() {
-                    public void write(DataOutput output) throws IOException {
-                        output.writeByte(getCommandId());
-                        output.writeInt(correlationId);
-                        output.writeByte(SUCCESS);
-
-                        output.writeByte(Constants.LIST);
-                        output.writeInt(resultList.size());
-                        final Marshaller marshaller = prepareForMarshalling(output);
-                        for (Binding binding : resultList) {
-                            if (binding.getObject() instanceof Context) {
-                                marshaller.writeByte(Constants.CONTEXT);
-                                marshaller.writeUTF(binding.getName());
-                            } else {
-                                marshaller.writeByte(Constants.BINDING);
-                                marshaller.writeObject(binding);
-                            }
-                        }
-                        marshaller.finish();
-                    }
-                });
+                writeListBindingsResponse(channel, resultList, correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
             }
         }
 
+        private void writeListBindingsResponse(final Channel channel, final List<Binding> resultList, final int correlationId) throws IOException {
+            write(channel, new WriteUtil.Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    output.writeInt(resultList.size());
+                    final Marshaller marshaller = prepareForMarshalling(output);
+                    for (Binding binding : resultList) {
+                        if (binding.getObject() instanceof Context) {
+                            marshaller.writeByte(Constants.CONTEXT);
+                            marshaller.writeUTF(binding.getName());
+                        } else {
+                            marshaller.writeByte(Constants.BINDING);
+                            marshaller.writeObject(binding);
+                        }
+                    }
+                    marshaller.finish();
+                }
+            });
+        }
+
         public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
             readResult(correlationId, input, new ValueReader<ClassLoadingNamedIoFuture<List<Binding>>>() {
                 public void read(final DataInput input, ClassLoadingNamedIoFuture<List<Binding>> future) throws IOException {
@@ -660,6 +832,7 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().unbind(name);
+                invalidateLookupResponses(remoteNamingService, name);
                 writeResponse(channel, getCommandId(), correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
@@ -746,6 +919,8 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().rename(name, newName);
+                invalidateLookupResponses(remoteNamingService, name);
+                invalidateLookupResponses(remoteNamingService, newName);
                 writeResponse(channel, getCommandId(), correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
@@ -822,6 +997,7 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().createSubcontext(name);
+                invalidateLookupResponses(remoteNamingService, name);
                 write(channel, new WriteUtil.Writer() {
                     public void write(DataOutput output) throws IOException {
                         output.writeByte(getCommandId());
@@ -909,6 +1085,7 @@ class Protocol {
 
             try {
                 remoteNamingService.getLocalContext().destroySubcontext(name);
+                invalidateLookupResponses(remoteNamingService, name);
                 writeResponse(channel, getCommandId(), correlationId);
             } catch (NamingException e) {
                 writeExceptionResponse(channel, e, getCommandId(), correlationId);
@@ -1037,45 +1214,1390 @@ class Protocol {
         }
     };
 
-    private static class NamedIoFuture<T> extends ProtocolIoFuture<T> {
-        private final Name name;
+    static ProtocolCommand<Integer> SNAPSHOT = new BaseProtocolCommand<Integer, SnapshotIoFuture>((byte) 0x11) {
+        public Integer execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length != 4 || !(args[0] instanceof Name) || !(args[1] instanceof Integer) || !(args[2] instanceof Integer) || !(args[3] instanceof LookupCache)) {
+                throw new IllegalArgumentException("Snapshot requires a name, a maximum depth, a maximum number of entries and a cache");
+            }
+            final Name name = Name.class.cast(args[0]);
+            final int maxDepth = Integer.class.cast(args[1]);
+            final int maxEntries = Integer.class.cast(args[2]);
+            final SnapshotIoFuture future = new SnapshotIoFuture(name, LookupCache.class.cast(args[3]), Capabilities.forChannel(channel).isEnabled(Capabilities.VERSION_TOKENS));
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
 
-        private NamedIoFuture(Name name) {
-            this.name = name;
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        marshaller.writeByte(NAME);
+                        marshaller.writeObject(name);
+                        marshaller.writeInt(maxDepth);
+                        marshaller.writeInt(maxEntries);
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke snapshot, status=" + result.toString());
+                }
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to snapshot", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
         }
-    }
 
-    private static class ClassLoadingNamedIoFuture<T> extends NamedIoFuture<T> {
-        /** The classloader to use when loading any returned objects*/
-        private ClassLoader classLoader;
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            final Name name;
+            final int maxDepth;
+            final int maxEntries;
+            try {
+                byte paramType = unmarshaller.readByte();
+                if (paramType != NAME) {
+                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                }
+                name = unmarshaller.readObject(Name.class);
+                maxDepth = unmarshaller.readInt();
+                maxEntries = unmarshaller.readInt();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                unmarshaller.finish();
+            }
 
-        private ClassLoadingNamedIoFuture(Name name, ClassLoader classLoader) {
-            super(name);
-        	this.classLoader = classLoader;
+            final List<Binding> root;
+            try {
+                root = list(remoteNamingService.getLocalContext(), name);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    final boolean versioned = Capabilities.forChannel(channel).isEnabled(Capabilities.VERSION_TOKENS);
+                    final boolean truncated = !writeEntries(output, channel, remoteNamingService, name, new CompositeName(), root, 1, maxDepth, new int[] {maxEntries > 0 ? maxEntries : -1}, versioned);
+                    output.writeBoolean(false);
+                    output.writeBoolean(truncated);
+                }
+            });
         }
 
-        public ClassLoader getClassLoader() {
-        	return classLoader;
+        /**
+         * Write the lookup responses of a context and, depth permitting, of its sub-contexts. Bindings whose object is
+         * not what a lookup returns, such as {@link LinkRef}s and other references, are skipped unless the
+         * lookup response cache holds their lookup result.
+         *
+         * @return false if the entry limit was reached
+         */
+        private boolean writeEntries(final DataOutput output, final Channel channel, final RemoteNamingService remoteNamingService, final Name root, final Name prefix,
+                                     final List<Binding> bindings, final int depth, final int maxDepth, final int[] remaining, final boolean versioned) throws IOException {
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            for (Binding binding : bindings) {
+                if (remaining[0] == 0) {
+                    return false;
+                }
+                final Name relative;
+                final Name absolute;
+                try {
+                    relative = ((Name) prefix.clone()).add(binding.getName());
+                    absolute = ((Name) root.clone()).addAll(relative);
+                } catch (InvalidNameException e) {
+                    throw new IOException(e);
+                }
+                byte[] response = cache == null ? null : cache.get(absolute);
+                if (response == null) {
+                    if (binding.getObject() instanceof Reference || binding.getObject() instanceof Referenceable) {
+                        // a lookup resolves these, links and references are left to be looked up on demand
+                        continue;
+                    }
+                    response = marshalLookupResult(binding.getObject());
+                }
+                final byte[] encoded = responseForChannel(channel, absolute, response, cache);
+                output.writeBoolean(true);
+                output.writeUTF(relative.toString());
+                output.writeInt(encoded.length);
+                if (versioned) {
+                    output.writeLong(versionOf(response));
+                }
+                output.write(encoded);
+                if (remaining[0] > 0) {
+                    remaining[0]--;
+                }
+
+                if (binding.getObject() instanceof Context && (maxDepth <= 0 || depth < maxDepth)) {
+                    final List<Binding> children;
+                    try {
+                        children = list(Context.class.cast(binding.getObject()), new CompositeName());
+                    } catch (NamingException e) {
+                        // the sub-context is left to be looked up on demand
+                        continue;
+                    }
+                    if (!writeEntries(output, channel, remoteNamingService, root, relative, children, depth + 1, maxDepth, remaining, versioned)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
         }
-    }
 
-    private static final Map<Byte, ProtocolCommand> commands = new HashMap<Byte, ProtocolCommand>();
+        private List<Binding> list(final Context context, final Name name) throws NamingException {
+            final NamingEnumeration<Binding> results = context.listBindings(name);
+            final List<Binding> resultList = new ArrayList<Binding>();
+            while (results.hasMore()) {
+                resultList.add(results.next());
+            }
+            return resultList;
+        }
 
-    static void register(final ProtocolCommand<?> command) {
-        commands.put(command.getCommandId(), command);
-    }
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<SnapshotIoFuture>() {
+                public void read(final DataInput input, final SnapshotIoFuture future) throws IOException {
+                    if (input.readByte() != Constants.LIST) {
+                        throw new IOException("Unexpected response parameter received.");
+                    }
+                    final Name root = NamedIoFuture.class.cast(future).name;
+                    int count = 0;
+                    while (input.readBoolean()) {
+                        final Name name;
+                        try {
+                            name = ((Name) root.clone()).addAll(new CompositeName(input.readUTF()));
+                        } catch (InvalidNameException e) {
+                            throw new IOException(e);
+                        }
+                        final byte[] response = new byte[input.readInt()];
+                        final long version = future.versioned ? input.readLong() : 0;
+                        input.readFully(response);
+                        future.cache.put(name, response, version, future.generation);
+                        count++;
+                    }
+                    input.readBoolean(); // truncated
+                    future.setResult(count);
+                }
+            });
+        }
+    };
 
-    static {
-        register(LOOKUP);
-        register(BIND);
-        register(REBIND);
-        register(LIST);
-        register(LIST_BINDINGS);
-        register(UNBIND);
-        register(RENAME);
-        register(CREATE_SUBCONTEXT);
-        register(DESTROY_SUBCONTEXT);
-        register(LOOKUP_LINK);
+    static ProtocolCommand<Object> CONDITIONAL_LOOKUP = new BaseProtocolCommand<Object, ConditionalLookupIoFuture>((byte) 0x12) {
+        public Object execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length < 2 || args.length > 3 || !(args[0] instanceof Name) || !(args[1] instanceof LookupCache) || (args.length == 3 && !(args[2] instanceof LookupCache.Versioned))) {
+                throw new IllegalArgumentException("Conditional lookup requires a name argument, a cache and an optional cached version");
+            }
+            final Name name = Name.class.cast(args[0]);
+            final LookupCache.Versioned cached = args.length == 3 ? LookupCache.Versioned.class.cast(args[2]) : null;
+            final ConditionalLookupIoFuture future = new ConditionalLookupIoFuture(name, Thread.currentThread().getContextClassLoader(), cached);
+            future.cacheResponse(LookupCache.class.cast(args[1]));
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
+
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        marshaller.writeByte(NAME);
+                        marshaller.writeObject(name);
+                        marshaller.writeLong(cached == null ? 0 : cached.getVersion());
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke lookup, status=" + result.toString());
+                }
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to lookup", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
+        }
+
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            final Name name;
+            final long version;
+            try {
+                byte paramType = unmarshaller.readByte();
+                if (paramType != NAME) {
+                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                }
+                name = unmarshaller.readObject(Name.class);
+                version = unmarshaller.readLong();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                unmarshaller.finish();
+            }
+
+            final LookupResponseCache cache = lookupResponseCache(channel, remoteNamingService);
+            final long generation = cache == null ? 0 : cache.getGeneration();
+            if (cache != null) {
+                final byte[] response = cache.get(name);
+                if (response != null) {
+                    writeConditionalResponse(channel, name, response, cache, version, correlationId);
+                    return;
+                }
+            }
+            final Context localContext = remoteNamingService.getLocalContext();
+            if (startAsync(localContext, AsyncOperation.LOOKUP, name, new ResponseCompletion<Object>(channel, getCommandId(), correlationId, remoteNamingService) {
+                void respond(final Object result) throws IOException {
+                    writeConditionalResponse(channel, name, marshalAndCache(name, result, generation, cache), cache, version, correlationId);
+                }
+            })) {
+                return;
+            }
+
+            final Object result;
+            try {
+                result = localContext.lookup(name);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            writeConditionalResponse(channel, name, marshalAndCache(name, result, generation, cache), cache, version, correlationId);
+        }
+
+        private byte[] marshalAndCache(final Name name, final Object result, final long generation, final LookupResponseCache cache) throws IOException {
+            final byte[] response = marshalLookupResult(result);
+            if (cache != null) {
+                cache.put(name, response, generation);
+            }
+            return response;
+        }
+
+        private void writeConditionalResponse(final Channel channel, final Name name, final byte[] response, final LookupResponseCache cache, final long knownVersion, final int correlationId) throws IOException {
+            final long version = versionOf(response);
+            final byte[] encoded = responseForChannel(channel, name, response, cache);
+            write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+                    if (version == knownVersion) {
+                        output.writeByte(NOT_MODIFIED);
+                    } else {
+                        output.writeByte(VERSIONED);
+                        output.writeLong(version);
+                        output.write(encoded);
+                    }
+                }
+            });
+        }
+
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<ConditionalLookupIoFuture>() {
+                public void read(final DataInput input, final ConditionalLookupIoFuture future) throws IOException {
+                    final Name name = NamedIoFuture.class.cast(future).name;
+                    final LookupCache cache = future.getCache();
+                    final byte parameterType = input.readByte();
+                    switch (parameterType) {
+                        case NOT_MODIFIED: {
+                            if (future.cached == null) {
+                                throw new IOException("Unexpected response parameter received.");
+                            }
+                            cache.renew(name, future.cached.getVersion(), future.getGeneration());
+                            future.setResult(readLookupResult(new DataInputStream(new ByteArrayInputStream(future.cached.getResponse())), name, future.getClassLoader(), namingStore));
+                            break;
+                        }
+                        case VERSIONED: {
+                            final long version = input.readLong();
+                            final byte[] response = readRemaining(input);
+                            final Object result = readLookupResult(new DataInputStream(new ByteArrayInputStream(response)), name, future.getClassLoader(), namingStore);
+                            cache.put(name, response, version, future.getGeneration());
+                            future.setResult(result);
+                            break;
+                        }
+                        default: {
+                            throw new IOException("Unexpected response parameter received.");
+                        }
+                    }
+                }
+            });
+        }
+    };
+
+    static ProtocolCommand<Object> RESOLVE_LINK = new BaseProtocolCommand<Object, ClassLoadingNamedIoFuture<Object>>((byte) 0x13) {
+        public Object execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length != 2 || !(args[0] instanceof Name) || !(args[1] instanceof String)) {
+                throw new IllegalArgumentException("Link resolution requires a base name and a link name argument");
+            }
+            final Name base = Name.class.cast(args[0]);
+            final String linkName = String.class.cast(args[1]);
+            final ClassLoadingNamedIoFuture<Object> future = new ClassLoadingNamedIoFuture<Object>(base, Thread.currentThread().getContextClassLoader());
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
+
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        marshaller.writeByte(NAME);
+                        marshaller.writeObject(base);
+                        marshaller.writeUTF(linkName);
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke link resolution, status=" + result.toString());
+                }
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to resolve link", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
+        }
+
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            final Name base;
+            String linkName;
+            try {
+                byte paramType = unmarshaller.readByte();
+                if (paramType != NAME) {
+                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                }
+                base = unmarshaller.readObject(Name.class);
+                linkName = unmarshaller.readUTF();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                unmarshaller.finish();
+            }
+
+            final Context localContext = remoteNamingService.getLocalContext();
+            Name name;
+            Object result;
+            try {
+                int hops = 0;
+                for (;;) {
+                    name = ((Name) base.clone()).addAll(new CompositeName(linkName));
+                    result = localContext.lookup(name);
+                    if (!(result instanceof LinkRef) || !((LinkRef) result).getLinkName().startsWith("./")) {
+                        break;
+                    }
+                    if (++hops > MAX_LINK_HOPS) {
+                        throw new NamingException("Too many links followed resolving " + name);
+                    }
+                    linkName = ((LinkRef) result).getLinkName().substring(2);
+                }
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            final Name resolvedName = name;
+            final Object resolved = result;
+            write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+                    output.writeUTF(resolvedName.toString());
+                    writeLookupResult(output, resolved, Capabilities.forChannel(channel).isEnabled(Capabilities.RAW_VALUES));
+                }
+            });
+        }
+
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<ClassLoadingNamedIoFuture<Object>>() {
+                public void read(final DataInput input, final ClassLoadingNamedIoFuture<Object> future) throws IOException {
+                    final Name name;
+                    try {
+                        name = new CompositeName(input.readUTF());
+                    } catch (InvalidNameException e) {
+                        throw new IOException(e);
+                    }
+                    future.setResult(readLookupResult(input, name, future.getClassLoader(), namingStore));
+                }
+            });
+        }
+    };
+
+    static ProtocolCommand<List<Binding>> LAZY_LIST_BINDINGS = new BaseProtocolCommand<List<Binding>, NamedIoFuture<List<Binding>>>((byte) 0x14) {
+        public List<Binding> execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length < 1 || args.length > 2 || !(args[0] instanceof Name) || (args.length == 2 && !(args[1] instanceof ContextHandle))) {
+                throw new IllegalArgumentException("List requires a name argument and an optional context handle.");
+            }
+            final Name name = Name.class.cast(args[0]);
+            final ContextHandle handle = args.length == 2 ? (ContextHandle) args[1] : null;
+
+            final NamedIoFuture<List<Binding>> future = new NamedIoFuture<List<Binding>>(name);
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
+
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        writeName(marshaller, name, handle);
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke listBindings, status=" + result.toString());
+                }
+
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to list bindings", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
+        }
+
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            Name name;
+            try {
+                name = readName(unmarshaller, channel, remoteNamingService);
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            } finally {
+                unmarshaller.finish();
+            }
+
+            final Context localContext = remoteNamingService.getLocalContext();
+            if (startAsync(localContext, AsyncOperation.LIST_BINDINGS, name, new ResponseCompletion<List<Binding>>(channel, getCommandId(), correlationId, remoteNamingService) {
+                void respond(final List<Binding> result) throws IOException {
+                    writeLazyListBindingsResponse(channel, result, correlationId);
+                }
+            })) {
+                return;
+            }
+
+            try {
+                final NamingEnumeration<Binding> results = localContext.listBindings(name);
+                final List<Binding> resultList = new ArrayList<Binding>();
+                while (results.hasMore()) {
+                    resultList.add(results.next());
+                }
+                writeLazyListBindingsResponse(channel, resultList, correlationId);
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+            }
+        }
+
+        private void writeLazyListBindingsResponse(final Channel channel, final List<Binding> resultList, final int correlationId) throws IOException {
+            write(channel, new WriteUtil.Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    output.writeInt(resultList.size());
+                    for (Binding binding : resultList) {
+                        if (binding.getObject() instanceof Context) {
+                            output.writeByte(CONTEXT);
+                            output.writeUTF(binding.getName());
+                        } else {
+                            // only the class name, the client looks the object up when it needs it
+                            final String className = binding.getClassName();
+                            output.writeByte(BINDING_NAME);
+                            output.writeUTF(binding.getName());
+                            output.writeBoolean(className != null);
+                            if (className != null) {
+                                output.writeUTF(className);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<NamedIoFuture<List<Binding>>>() {
+                public void read(final DataInput input, NamedIoFuture<List<Binding>> future) throws IOException {
+                    byte parameterType = input.readByte();
+                    if (parameterType != Constants.LIST) {
+                        throw new IOException("Unexpected response parameter received.");
+                    }
+                    final int listSize = input.readInt();
+                    final List<Binding> results = new ArrayList<Binding>(listSize);
+                    for (int i = 0; i < listSize; i++) {
+                        parameterType = input.readByte();
+                        if (parameterType != CONTEXT && parameterType != BINDING_NAME) {
+                            throw new IOException("Unexpected response parameter received.");
+                        }
+                        final String bindingName = input.readUTF();
+                        final Name absoluteName;
+                        try {
+                            absoluteName = ((Name) future.name.clone()).add(bindingName);
+                        } catch (InvalidNameException e) {
+                            throw new IOException(e);
+                        }
+                        if (parameterType == CONTEXT) {
+                            final Context context = new RemoteContext(absoluteName, namingStore, new Hashtable<String, Object>());
+                            results.add(new Binding(bindingName, Context.class.getName(), context));
+                        } else {
+                            final String className = input.readBoolean() ? input.readUTF() : null;
+                            results.add(new LazyBinding(bindingName, className, namingStore, absoluteName));
+                        }
+                    }
+                    future.setResult(results);
+                }
+            });
+        }
+    };
+
+    static ProtocolCommand<SearchResults> SEARCH = new BaseProtocolCommand<SearchResults, ProtocolIoFuture<SearchResults>>((byte) 0x15) {
+        public SearchResults execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length != 4 || !(args[0] instanceof Name) || !(args[1] instanceof String) || !(args[2] instanceof Integer) || !(args[3] instanceof Integer)) {
+                throw new IllegalArgumentException("Search requires a name, a pattern, a maximum depth and a limit");
+            }
+            final Name name = Name.class.cast(args[0]);
+            final String pattern = String.class.cast(args[1]);
+            final int maxDepth = Integer.class.cast(args[2]);
+            final int limit = Integer.class.cast(args[3]);
+            final ProtocolIoFuture<SearchResults> future = new ProtocolIoFuture<SearchResults>();
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
+
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        marshaller.writeByte(NAME);
+                        marshaller.writeObject(name);
+                        marshaller.writeUTF(pattern);
+                        marshaller.writeInt(maxDepth);
+                        marshaller.writeInt(limit);
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke search, status=" + result.toString());
+                }
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to search", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
+        }
+
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            final Name name;
+            final String pattern;
+            final int maxDepth;
+            final int limit;
+            try {
+                byte paramType = unmarshaller.readByte();
+                if (paramType != NAME) {
+                    remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                }
+                name = unmarshaller.readObject(Name.class);
+                pattern = unmarshaller.readUTF();
+                maxDepth = unmarshaller.readInt();
+                limit = unmarshaller.readInt();
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                unmarshaller.finish();
+            }
+
+            final Context localContext = remoteNamingService.getLocalContext();
+            final List<NameClassPair> indexed;
+            final List<NameClassPair> root;
+            try {
+                indexed = localContext instanceof SearchableContext ? ((SearchableContext) localContext).search(name, pattern, maxDepth, limit) : null;
+                root = indexed == null ? list(localContext, name) : null;
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+            write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    final boolean truncated;
+                    if (indexed != null) {
+                        final int count = limit > 0 ? Math.min(limit, indexed.size()) : indexed.size();
+                        for (NameClassPair match : indexed.subList(0, count)) {
+                            writeMatch(output, match.getName(), match.getClassName());
+                        }
+                        truncated = count < indexed.size();
+                    } else {
+                        truncated = !writeMatches(output, localContext, name, new NamePattern(pattern), new CompositeName(), root, 1, maxDepth, new int[] {limit > 0 ? limit : -1});
+                    }
+                    output.writeBoolean(false);
+                    output.writeBoolean(truncated);
+                }
+            });
+        }
+
+        /**
+         * Write the entries of a context matching the pattern and, depth permitting, those of its sub-contexts. Only
+         * names and class names are listed, no objects are looked up, and an entry is only listed in turn if it may
+         * be a context and the pattern can match below it.
+         *
+         * @param localContext The context searched
+         * @param root         The name of the root of the search in the local context
+         * @param prefix       The name of the listed context relative to the root
+         * @param bindings     The entries of the listed context
+         * @return false if the limit was reached
+         */
+        private boolean writeMatches(final DataOutput output, final Context localContext, final Name root, final NamePattern pattern, final Name prefix,
+                                     final List<NameClassPair> bindings, final int depth, final int maxDepth, final int[] remaining) throws IOException {
+            final String literal = pattern.literalComponent(depth);
+            for (NameClassPair binding : bindings) {
+                if (literal != null && !literal.equals(binding.getName())) {
+                    continue;
+                }
+                final Name relative;
+                try {
+                    relative = ((Name) prefix.clone()).add(binding.getName());
+                } catch (InvalidNameException e) {
+                    throw new IOException(e);
+                }
+                final String relativeName = relative.toString();
+                if (pattern.matches(relativeName)) {
+                    if (remaining[0] == 0) {
+                        return false;
+                    }
+                    writeMatch(output, relativeName, binding.getClassName());
+                    if (remaining[0] > 0) {
+                        remaining[0]--;
+                    }
+                }
+
+                if ((maxDepth <= 0 || depth < maxDepth) && pattern.reaches(depth + 1) && mayBeContext(binding.getClassName())) {
+                    final List<NameClassPair> children;
+                    try {
+                        children = list(localContext, ((Name) root.clone()).addAll(relative));
+                    } catch (NamingException e) {
+                        // not a context, or a sub-context which cannot be listed, has no matches
+                        continue;
+                    }
+                    if (!writeMatches(output, localContext, root, pattern, relative, children, depth + 1, maxDepth, remaining)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void writeMatch(final DataOutput output, final String name, final String className) throws IOException {
+            output.writeBoolean(true);
+            output.writeUTF(name);
+            output.writeBoolean(className != null);
+            if (className != null) {
+                output.writeUTF(className);
+            }
+        }
+
+        /**
+         * Whether an entry of the given class may be a context, which is the case unless its class is known not to be.
+         */
+        private boolean mayBeContext(final String className) {
+            if (className == null) {
+                return true;
+            }
+            try {
+                final Class<?> type = Class.forName(className, false, SecurityActions.getContextClassLoader());
+                return Context.class.isAssignableFrom(type) || Reference.class.isAssignableFrom(type) || Referenceable.class.isAssignableFrom(type);
+            } catch (ClassNotFoundException e) {
+                return true;
+            } catch (LinkageError e) {
+                return true;
+            }
+        }
+
+        private List<NameClassPair> list(final Context context, final Name name) throws NamingException {
+            final NamingEnumeration<NameClassPair> results = context.list(name);
+            final List<NameClassPair> resultList = new ArrayList<NameClassPair>();
+            while (results.hasMore()) {
+                resultList.add(results.next());
+            }
+            return resultList;
+        }
+
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<ProtocolIoFuture<SearchResults>>() {
+                public void read(final DataInput input, final ProtocolIoFuture<SearchResults> future) throws IOException {
+                    if (input.readByte() != Constants.LIST) {
+                        throw new IOException("Unexpected response parameter received.");
+                    }
+                    final List<NameClassPair> results = new ArrayList<NameClassPair>();
+                    while (input.readBoolean()) {
+                        final String name = input.readUTF();
+                        final String className = input.readBoolean() ? input.readUTF() : null;
+                        results.add(new NameClassPair(name, className));
+                    }
+                    final boolean truncated = input.readBoolean();
+                    future.setResult(new SearchResults(results, truncated));
+                }
+            });
+        }
+    };
+
+    static ProtocolCommand<List<NamingException>> BATCH = new BaseProtocolCommand<List<NamingException>, ProtocolIoFuture<List<NamingException>>>((byte) 0x16) {
+        public List<NamingException> execute(final Channel channel, final Object... args) throws IOException, NamingException {
+            if (args.length != 2 || !(args[0] instanceof List) || !(args[1] instanceof Boolean)) {
+                throw new IllegalArgumentException("Batch requires a list of operations and whether to apply them atomically");
+            }
+            @SuppressWarnings("unchecked")
+            final List<BatchOperation> operations = (List<BatchOperation>) args[0];
+            final boolean atomic = Boolean.class.cast(args[1]);
+            if (operations.size() > MAX_BATCH_SIZE) {
+                throw new SizeLimitExceededException("A batch can hold at most " + MAX_BATCH_SIZE + " operations, not " + operations.size());
+            }
+            final ProtocolIoFuture<List<NamingException>> future = new ProtocolIoFuture<List<NamingException>>();
+            final int correlationId = reserveNextCorrelationId(future);
+            try {
+                write(channel, new WriteUtil.Writer() {
+                    public void write(final DataOutput output) throws IOException {
+                        output.writeByte(getCommandId());
+                        output.writeInt(correlationId);
+
+                        final Marshaller marshaller = prepareForMarshalling(output);
+                        marshaller.writeBoolean(atomic);
+                        marshaller.writeInt(operations.size());
+                        for (BatchOperation operation : operations) {
+                            switch (operation.getType()) {
+                                case BIND:
+                                    marshaller.writeByte(BIND.getCommandId());
+                                    break;
+                                case REBIND:
+                                    marshaller.writeByte(REBIND.getCommandId());
+                                    break;
+                                default:
+                                    marshaller.writeByte(UNBIND.getCommandId());
+                            }
+                            marshaller.writeByte(NAME);
+                            marshaller.writeObject(operation.getName());
+                            if (operation.getType() != BatchOperation.Type.UNBIND) {
+                                marshaller.writeByte(OBJECT);
+                                marshaller.writeObject(operation.getObject());
+                            }
+                        }
+                        marshaller.finish();
+                    }
+                });
+
+                final IoFuture.Status result = future.await(DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+                switch (result) {
+                    case FAILED:
+                        if (future.getHeldException() != null) {
+                            throw future.getHeldException();
+                        }
+                        throw future.getException();
+                    case DONE:
+                        return future.get();
+                    default:
+                        throw new NamingException("Unable to invoke batch, status=" + result.toString());
+                }
+            } catch (NamingException e) {
+                throw e;
+            } catch (Exception e) {
+                throw namingException("Failed to apply batch", e);
+            } finally {
+                releaseCorrelationId(correlationId);
+            }
+        }
+
+        public void handleServerMessage(final Channel channel, final DataInput input, final int correlationId, final RemoteNamingService remoteNamingService) throws IOException {
+            final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+            final boolean atomic;
+            final List<BatchOperation> operations = new ArrayList<BatchOperation>();
+            NamingException rejected = null;
+            try {
+                atomic = unmarshaller.readBoolean();
+                final int count = unmarshaller.readInt();
+                if (count < 0 || count > MAX_BATCH_SIZE) {
+                    rejected = new SizeLimitExceededException("A batch can hold at most " + MAX_BATCH_SIZE + " operations, not " + count);
+                }
+                for (int i = 0; rejected == null && i < count; i++) {
+                    final byte type = unmarshaller.readByte();
+                    if (type != BIND.getCommandId() && type != REBIND.getCommandId() && type != UNBIND.getCommandId()) {
+                        // the rest of the batch can not be read without knowing the operation
+                        rejected = new OperationNotSupportedException("Unknown batch operation " + type);
+                        break;
+                    }
+                    byte paramType = unmarshaller.readByte();
+                    if (paramType != NAME) {
+                        remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+                    }
+                    final Name name = unmarshaller.readObject(Name.class);
+                    if (type == UNBIND.getCommandId()) {
+                        operations.add(BatchOperation.unbind(name));
+                        continue;
+                    }
+                    paramType = unmarshaller.readByte();
+                    if (paramType != OBJECT) {
+                        remoteNamingService.getLogger().unexpectedParameterType(OBJECT, paramType);
+                    }
+                    final Object object = unmarshaller.readObject();
+                    if (type == BIND.getCommandId()) {
+                        operations.add(BatchOperation.bind(name, object));
+                    } else {
+                        operations.add(BatchOperation.rebind(name, object));
+                    }
+                }
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            } finally {
+                unmarshaller.finish();
+            }
+            if (rejected != null) {
+                writeExceptionResponse(channel, rejected, getCommandId(), correlationId);
+                return;
+            }
+
+            final Context localContext = remoteNamingService.getLocalContext();
+            final List<NamingException> results = new ArrayList<NamingException>(operations.size());
+            try {
+                if (atomic) {
+                    if (!(localContext instanceof AtomicBatchContext)) {
+                        throw new OperationNotSupportedException("The naming service cannot apply batches atomically");
+                    }
+                    try {
+                        ((AtomicBatchContext) localContext).applyAtomically(new AtomicBatchContext.Batch() {
+                            public void apply(final Context context) throws NamingException {
+                                for (BatchOperation operation : operations) {
+                                    applyOperation(context, operation);
+                                }
+                            }
+                        });
+                    } finally {
+                        // whatever was written has been written or undone by now
+                        for (BatchOperation operation : operations) {
+                            invalidateLookupResponses(remoteNamingService, operation.getName());
+                        }
+                    }
+                    for (int i = 0; i < operations.size(); i++) {
+                        results.add(null);
+                    }
+                } else {
+                    for (BatchOperation operation : operations) {
+                        try {
+                            applyOperation(localContext, operation);
+                            invalidateLookupResponses(remoteNamingService, operation.getName());
+                            results.add(null);
+                        } catch (NamingException e) {
+                            results.add(e);
+                        }
+                    }
+                }
+            } catch (NamingException e) {
+                writeExceptionResponse(channel, e, getCommandId(), correlationId);
+                return;
+            }
+
+            write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(getCommandId());
+                    output.writeInt(correlationId);
+                    output.writeByte(SUCCESS);
+
+                    output.writeByte(Constants.LIST);
+                    output.writeInt(results.size());
+                    final Marshaller marshaller = prepareForMarshalling(output);
+                    for (NamingException result : results) {
+                        if (result == null) {
+                            marshaller.writeByte(VOID);
+                        } else {
+                            marshaller.writeByte(EXCEPTION);
+                            marshaller.writeObject(result);
+                        }
+                    }
+                    marshaller.finish();
+                }
+            });
+        }
+
+        private void applyOperation(final Context context, final BatchOperation operation) throws NamingException {
+            switch (operation.getType()) {
+                case BIND:
+                    context.bind(operation.getName(), operation.getObject());
+                    break;
+                case REBIND:
+                    context.rebind(operation.getName(), operation.getObject());
+                    break;
+                default:
+                    context.unbind(operation.getName());
+            }
+        }
+
+        public void handleClientMessage(final DataInput input, final int correlationId, final RemoteNamingStore namingStore) throws IOException {
+            readResult(correlationId, input, new ValueReader<ProtocolIoFuture<List<NamingException>>>() {
+                public void read(final DataInput input, final ProtocolIoFuture<List<NamingException>> future) throws IOException {
+                    if (input.readByte() != Constants.LIST) {
+                        throw new IOException("Unexpected response parameter received.");
+                    }
+                    final int count = input.readInt();
+                    if (count < 0 || count > MAX_BATCH_SIZE) {
+                        throw new IOException("Invalid number of batch results " + count);
+                    }
+                    final List<NamingException> results = new ArrayList<NamingException>();
+                    final Unmarshaller unmarshaller = prepareForUnMarshalling(input, this.getClass().getClassLoader());
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            final byte parameterType = unmarshaller.readByte();
+                            if (parameterType == VOID) {
+                                results.add(null);
+                            } else if (parameterType == EXCEPTION) {
+                                results.add(unmarshaller.readObject(NamingException.class));
+                            } else {
+                                throw new IOException("Unexpected response parameter received.");
+                            }
+                        }
+                        unmarshaller.finish();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    } catch (ClassCastException e) {
+                        throw new IOException(e);
+                    }
+                    future.setResult(results);
+                }
+            });
+        }
+    };
+
+    private static class NamedIoFuture<T> extends ProtocolIoFuture<T> {
+        private final Name name;
+
+        private NamedIoFuture(Name name) {
+            this.name = name;
+        }
+    }
+
+    private static class ClassLoadingNamedIoFuture<T> extends NamedIoFuture<T> {
+        /** The classloader to use when loading any returned objects*/
+        private ClassLoader classLoader;
+        /** The cache to store the response in, if any */
+        private LookupCache cache;
+        private long generation;
+
+        private ClassLoadingNamedIoFuture(Name name, ClassLoader classLoader) {
+            super(name);
+        	this.classLoader = classLoader;
+        }
+
+        public ClassLoader getClassLoader() {
+        	return classLoader;
+        }
+
+        void cacheResponse(final LookupCache cache) {
+            this.cache = cache;
+            // read before the request is sent, so a concurrent invalidation prevents caching the response
+            this.generation = cache.getGeneration();
+        }
+
+        LookupCache getCache() {
+            return cache;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+    }
+
+    /**
+     * Start an operation on the local context if it is an {@link AsyncNamingContext}. The request then stays in flight
+     * in its channel's {@link ChannelRequestQueue} until the completion has written the response.
+     *
+     * @param localContext The local context
+     * @param operation    The operation
+     * @param name         The name to run the operation on
+     * @param completion   Writes the response
+     * @return true if the operation was started, false if the caller has to run it on the local context itself
+     */
+    private static <T> boolean startAsync(final Context localContext, final AsyncOperation<T> operation, final Name name, final ResponseCompletion<T> completion) {
+        if (!(localContext instanceof AsyncNamingContext)) {
+            return false;
+        }
+        completion.requestCompletion = ChannelRequestQueue.deferCompletion();
+        try {
+            operation.start((AsyncNamingContext) localContext, name, completion);
+        } catch (RuntimeException e) {
+            completion.requestCompletion.run();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * The operations of {@link AsyncNamingContext}.
+     */
+    private abstract static class AsyncOperation<T> {
+        static final AsyncOperation<Object> LOOKUP = new AsyncOperation<Object>() {
+            void start(final AsyncNamingContext context, final Name name, final AsyncNamingContext.Completion<Object> completion) {
+                context.lookup(name, completion);
+            }
+        };
+        static final AsyncOperation<List<NameClassPair>> LIST = new AsyncOperation<List<NameClassPair>>() {
+            void start(final AsyncNamingContext context, final Name name, final AsyncNamingContext.Completion<List<NameClassPair>> completion) {
+                context.list(name, completion);
+            }
+        };
+        static final AsyncOperation<List<Binding>> LIST_BINDINGS = new AsyncOperation<List<Binding>>() {
+            void start(final AsyncNamingContext context, final Name name, final AsyncNamingContext.Completion<List<Binding>> completion) {
+                context.listBindings(name, completion);
+            }
+        };
+
+        abstract void start(AsyncNamingContext context, Name name, AsyncNamingContext.Completion<T> completion);
+    }
+
+    /**
+     * Writes the response of an operation started on an {@link AsyncNamingContext}, on whichever thread completes it.
+     */
+    private abstract static class ResponseCompletion<T> implements AsyncNamingContext.Completion<T> {
+        private final Channel channel;
+        private final byte commandId;
+        private final int correlationId;
+        private final RemoteNamingService remoteNamingService;
+        /** Completes the request in its channel's queue, once the response has been written */
+        private Runnable requestCompletion;
+
+        private ResponseCompletion(final Channel channel, final byte commandId, final int correlationId, final RemoteNamingService remoteNamingService) {
+            this.channel = channel;
+            this.commandId = commandId;
+            this.correlationId = correlationId;
+            this.remoteNamingService = remoteNamingService;
+        }
+
+        abstract void respond(T result) throws IOException;
+
+        public void completed(final T result) {
+            final MarshallingStrategy previous = CurrentStrategy.enter(channel);
+            try {
+                respond(result);
+            } catch (Throwable t) {
+                remoteNamingService.getLogger().unnexpectedError(t);
+                writeFailure(namingException("Failed to write response", t));
+            } finally {
+                CurrentStrategy.exit(previous);
+                requestCompletion.run();
+            }
+        }
+
+        public void failed(final NamingException e) {
+            try {
+                writeFailure(e);
+            } finally {
+                requestCompletion.run();
+            }
+        }
+
+        private void writeFailure(final NamingException e) {
+            try {
+                writeExceptionResponse(channel, e, commandId, correlationId);
+            } catch (IOException ioe) {
+                remoteNamingService.getLogger().failedToSendExceptionResponse(ioe);
+            }
+        }
+    }
+
+    private static class ConditionalLookupIoFuture extends ClassLoadingNamedIoFuture<Object> {
+        /** The cached response the server is asked to confirm, if any */
+        private final LookupCache.Versioned cached;
+
+        private ConditionalLookupIoFuture(final Name name, final ClassLoader classLoader, final LookupCache.Versioned cached) {
+            super(name, classLoader);
+            this.cached = cached;
+        }
+    }
+
+    private static class SnapshotIoFuture extends NamedIoFuture<Integer> {
+        private final LookupCache cache;
+        private final long generation;
+        /** Whether the entries carry versions */
+        private final boolean versioned;
+
+        private SnapshotIoFuture(final Name name, final LookupCache cache, final boolean versioned) {
+            super(name);
+            this.cache = cache;
+            this.generation = cache.getGeneration();
+            this.versioned = versioned;
+        }
+    }
+
+    /**
+     * Read the result of a lookup, as written by {@link #writeLookupResult}.
+     */
+    private static Object readLookupResult(final DataInput input, final Name name, final ClassLoader classLoader, final RemoteNamingStore namingStore) throws IOException {
+        byte parameterType = input.readByte();
+        switch (parameterType) {
+            case OBJECT: {
+                try {
+                    final Unmarshaller unmarshaller = prepareForUnMarshalling(input, classLoader);
+                    final Object result = unmarshaller.readObject();
+                    unmarshaller.finish();
+                    return result;
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                } catch (ClassCastException e) {
+                    throw new IOException(e);
+                }
+            }
+            case RAW_VALUE: {
+                return RawValues.read(input);
+            }
+            case CONTEXT: {
+                return new RemoteContext(name, namingStore, new Hashtable<String, Object>());
+            }
+            case CONTEXT_HANDLE: {
+                final ContextHandle handle = new ContextHandle(input.readInt(), name);
+                if (namingStore instanceof RemoteNamingStoreV1) {
+                    return new RemoteContext(name, new ContextHandleNamingStore((RemoteNamingStoreV1) namingStore, handle), new Hashtable<String, Object>());
+                }
+                return new RemoteContext(name, namingStore, new Hashtable<String, Object>());
+            }
+            default: {
+                throw new IOException("Unexpected response parameter received.");
+            }
+        }
+    }
+
+    /**
+     * Write a name, relative to a context handle if the name is below the context.
+     *
+     * @param marshaller The marshaller
+     * @param name       The absolute name
+     * @param handle     The handle of a context, or null to write the absolute name
+     */
+    private static void writeName(final Marshaller marshaller, final Name name, final ContextHandle handle) throws IOException {
+        final Name relativeName = handle == null ? null : handle.relativize(name);
+        if (relativeName != null) {
+            marshaller.writeByte(CONTEXT_HANDLE);
+            marshaller.writeInt(handle.getId());
+            marshaller.writeByte(NAME);
+            marshaller.writeObject(relativeName);
+        } else {
+            marshaller.writeByte(NAME);
+            marshaller.writeObject(name);
+        }
+    }
+
+    /**
+     * Read a name written by {@link #writeName}.
+     *
+     * @return The absolute name
+     * @throws NamingException If the name is relative to a handle which was not issued on the channel
+     */
+    private static Name readName(final Unmarshaller unmarshaller, final Channel channel, final RemoteNamingService remoteNamingService) throws IOException, ClassNotFoundException, NamingException {
+        byte paramType = unmarshaller.readByte();
+        int handle = -1;
+        if (paramType == CONTEXT_HANDLE) {
+            handle = unmarshaller.readInt();
+            paramType = unmarshaller.readByte();
+        }
+        if (paramType != NAME) {
+            remoteNamingService.getLogger().unexpectedParameterType(NAME, paramType);
+        }
+        final Name name = unmarshaller.readObject(Name.class);
+        if (handle == -1) {
+            return name;
+        }
+        final Name base = ContextHandles.forChannel(channel).getName(handle);
+        try {
+            return ((Name) base.clone()).addAll(name);
+        } catch (InvalidNameException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Read a lookup response from a {@link LookupCache}. The cache outlives channels, so it only holds responses
+     * marshalled by the default strategy.
+     *
+     * @param response    The cached response
+     * @param name        The name which was looked up
+     * @param namingStore The naming store to create contexts for
+     * @return The result, unmarshalled using the thread context class loader
+     */
+    static Object readCachedLookupResult(final byte[] response, final Name name, final RemoteNamingStore namingStore) throws IOException {
+        final MarshallingStrategy previous = CurrentStrategy.enter(MarshallingStrategies.DEFAULT);
+        try {
+            return readLookupResult(new DataInputStream(new ByteArrayInputStream(response)), name, Thread.currentThread().getContextClassLoader(), namingStore);
+        } finally {
+            CurrentStrategy.exit(previous);
+        }
+    }
+
+    private static void writeLookupResult(final DataOutput output, final Object result, final boolean rawValues) throws IOException {
+        if (result instanceof Context) {
+            output.writeByte(CONTEXT);
+        } else if (rawValues && RawValues.isRaw(result)) {
+            output.writeByte(RAW_VALUE);
+            RawValues.write(output, result);
+        } else {
+            output.writeByte(OBJECT);
+            final Marshaller marshaller = prepareForMarshalling(output);
+            marshaller.writeObject(result);
+            marshaller.finish();
+        }
+    }
+
+    /**
+     * Marshal a lookup response which is kept or versioned independently of any channel. Raw values are always kept
+     * raw, so the version of a response does not depend on the channel it was first written to, and are only
+     * marshalled when written to a channel which does not use them, see {@link #responseForChannel}.
+     */
+    private static byte[] marshalLookupResult(final Object result) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeLookupResult(new DataOutputStream(bytes), result, true);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Get a response produced by {@link #marshalLookupResult} in the form the channel understands. If the response is
+     * cached, the form without a raw value is cached along with it, so older clients do not cost a marshalling per hit.
+     *
+     * @param cache The cache the response may be held by, or null
+     */
+    private static byte[] responseForChannel(final Channel channel, final Name name, final byte[] response, final LookupResponseCache cache) throws IOException {
+        if (Capabilities.forChannel(channel).isEnabled(Capabilities.RAW_VALUES) || response.length == 0 || response[0] != RAW_VALUE) {
+            return response;
+        }
+        byte[] converted = cache == null ? null : cache.getConverted(name, response);
+        if (converted == null) {
+            converted = withoutRawValue(response);
+            if (cache != null) {
+                cache.putConverted(name, response, converted);
+            }
+        }
+        return converted;
+    }
+
+    private static byte[] withoutRawValue(final byte[] response) throws IOException {
+        final Object value = RawValues.read(new DataInputStream(new ByteArrayInputStream(response, 1, response.length - 1)));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeLookupResult(new DataOutputStream(bytes), value, false);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The version of a lookup response, a 64 bit FNV-1a hash of the marshalled result. Zero is reserved for
+     * responses without a version.
+     */
+    private static long versionOf(final byte[] response) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : response) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Get the cache of marshalled lookup responses, if the responses it holds can be sent on a channel. The cache is
+     * shared by all channels, so it only holds responses marshalled by the default strategy.
+     */
+    private static LookupResponseCache lookupResponseCache(final Channel channel, final RemoteNamingService remoteNamingService) {
+        return MarshallingStrategies.forChannel(channel) == MarshallingStrategies.DEFAULT ? remoteNamingService.getLookupResponseCache() : null;
+    }
+
+    private static void invalidateLookupResponses(final RemoteNamingService remoteNamingService, final Name name) {
+        final LookupResponseCache cache = remoteNamingService.getLookupResponseCache();
+        if (cache != null) {
+            cache.invalidate(name);
+        }
+    }
+
+    private static final Map<Byte, ProtocolCommand> commands = new HashMap<Byte, ProtocolCommand>();
+    private static final Map<Byte, RequestLane> lanes = new HashMap<Byte, RequestLane>();
+
+    static void register(final ProtocolCommand<?> command, final RequestLane lane) {
+        commands.put(command.getCommandId(), command);
+        lanes.put(command.getCommandId(), lane);
+    }
+
+    static {
+        register(LOOKUP, RequestLane.LOOKUP);
+        register(BIND, RequestLane.WRITE);
+        register(REBIND, RequestLane.WRITE);
+        register(LIST, RequestLane.LIST);
+        register(LIST_BINDINGS, RequestLane.LIST);
+        register(UNBIND, RequestLane.WRITE);
+        register(RENAME, RequestLane.WRITE);
+        register(CREATE_SUBCONTEXT, RequestLane.WRITE);
+        register(DESTROY_SUBCONTEXT, RequestLane.WRITE);
+        register(LOOKUP_LINK, RequestLane.LOOKUP);
+        register(SNAPSHOT, RequestLane.LIST);
+        register(CONDITIONAL_LOOKUP, RequestLane.LOOKUP);
+        register(RESOLVE_LINK, RequestLane.LOOKUP);
+        register(LAZY_LIST_BINDINGS, RequestLane.LIST);
+        register(SEARCH, RequestLane.LIST);
+        register(BATCH, RequestLane.WRITE);
+    }
+
+    static RequestLane laneOf(final byte id) {
+        return lanes.get(id);
     }
 
     public static ProtocolCommand forId(final byte id) {
@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.protocol.v1;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.jboss.naming.remote.protocol.v1.Constants.BOOLEAN_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.BYTES_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.BYTE_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.CHAR_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.DOUBLE_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.FLOAT_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.INT_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.LONG_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.NULL_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.SHORT_VALUE;
+import static org.jboss.naming.remote.protocol.v1.Constants.STRING_VALUE;
+
+/**
+ * Encodes the values which need neither a marshaller nor a class loader: strings, byte arrays, boxed primitives and
+ * null. Each value is written as a type tag followed by its bytes, strings and byte arrays being length prefixed.
+ */
+final class RawValues {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private RawValues() {
+    }
+
+    /**
+     * Check whether a value can be written without marshalling.
+     *
+     * @param value The value
+     * @return true if the value can be written by {@link #write}
+     */
+    static boolean isRaw(final Object value) {
+        if (value == null) {
+            return true;
+        }
+        final Class<?> type = value.getClass();
+        return type == String.class || type == byte[].class || type == Boolean.class || type == Byte.class
+                || type == Short.class || type == Character.class || type == Integer.class || type == Long.class
+                || type == Float.class || type == Double.class;
+    }
+
+    /**
+     * Write a value accepted by {@link #isRaw}.
+     *
+     * @param output The output
+     * @param value  The value
+     * @throws IOException If the value could not be written
+     */
+    static void write(final DataOutput output, final Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(NULL_VALUE);
+        } else if (value instanceof String) {
+            output.writeByte(STRING_VALUE);
+            writeBytes(output, ((String) value).getBytes(UTF_8));
+        } else if (value instanceof byte[]) {
+            output.writeByte(BYTES_VALUE);
+            writeBytes(output, (byte[]) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN_VALUE);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(BYTE_VALUE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            output.writeByte(SHORT_VALUE);
+            output.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            output.writeByte(CHAR_VALUE);
+            output.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INT_VALUE);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG_VALUE);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT_VALUE);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE_VALUE);
+            output.writeDouble((Double) value);
+        } else {
+            throw new IOException("Value of type " + value.getClass().getName() + " can not be written raw");
+        }
+    }
+
+    /**
+     * Read a value written by {@link #write}.
+     *
+     * @param input The input
+     * @return The value
+     * @throws IOException If the value could not be read
+     */
+    static Object read(final DataInput input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case STRING_VALUE:
+                return new String(readBytes(input), UTF_8);
+            case BYTES_VALUE:
+                return readBytes(input);
+            case BOOLEAN_VALUE:
+                return input.readBoolean();
+            case BYTE_VALUE:
+                return input.readByte();
+            case SHORT_VALUE:
+                return input.readShort();
+            case CHAR_VALUE:
+                return input.readChar();
+            case INT_VALUE:
+                return input.readInt();
+            case LONG_VALUE:
+                return input.readLong();
+            case FLOAT_VALUE:
+                return input.readFloat();
+            case DOUBLE_VALUE:
+                return input.readDouble();
+            default:
+                throw new IOException("Unrecognised raw value type " + type);
+        }
+    }
+
+    private static void writeBytes(final DataOutput output, final byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInput input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid raw value length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
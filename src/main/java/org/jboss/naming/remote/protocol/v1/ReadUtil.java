@@ -21,33 +21,164 @@
  */
 package org.jboss.naming.remote.protocol.v1;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.naming.CompositeName;
+import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.NotContextException;
+
 import org.jboss.marshalling.ByteInput;
-import org.jboss.marshalling.MarshallerFactory;
 import org.jboss.marshalling.Marshalling;
-import org.jboss.marshalling.MarshallingConfiguration;
-import org.jboss.marshalling.SimpleClassResolver;
 import org.jboss.marshalling.Unmarshaller;
-import static org.jboss.naming.remote.protocol.v1.Constants.MARSHALLING_STRATEGY;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.remoting3.Channel;
+import org.jboss.remoting3.RemotingOptions;
+import static org.jboss.naming.remote.protocol.v1.Constants.DEFLATE;
+import static org.jboss.naming.remote.protocol.v1.Constants.NAME_NOT_FOUND;
+import static org.jboss.naming.remote.protocol.v1.Constants.NOT_CONTEXT;
+import static org.jboss.naming.remote.protocol.v1.Constants.RAW;
 
 /**
  * @author John Bailey
  */
 public class ReadUtil {
-    static final MarshallerFactory marshallerFactory;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Whether exceptions rebuilt from an error code capture a stack trace on the client.
+     */
+    static final boolean ERROR_STACK_TRACES = Boolean.parseBoolean(SecurityActions.getSystemProperty("jboss.naming.client.error.stacktrace", "true"));
+
+    /**
+     * The maximum size of a compressed message body once inflated, as a few KB of DEFLATE input can inflate to
+     * gigabytes. Zero or less for the channel's maximum inbound message size, or {@link #DEFAULT_MAX_INFLATED_SIZE}
+     * if the channel does not limit it.
+     */
+    static final long MAX_INFLATED_SIZE = Long.parseLong(SecurityActions.getSystemProperty("jboss.naming.compression.max.inflated.size", "0"));
+    static final long DEFAULT_MAX_INFLATED_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Get the stream to read a message body from, once the command id and correlation id have been read.
+     *
+     * @param channel The channel the message was received on
+     * @param input   The message input
+     * @return The input to read the body from, the caller is responsible for closing it
+     * @throws IOException If the payload encoding is not understood
+     */
+    static DataInputStream decodePayload(final Channel channel, final DataInputStream input) throws IOException {
+        if (!Capabilities.forChannel(channel).isEnabled(Capabilities.COMPRESSION)) {
+            return input;
+        }
+        final byte encoding = input.readByte();
+        switch (encoding) {
+            case RAW:
+                return input;
+            case DEFLATE:
+                return new DataInputStream(new BoundedInflaterInputStream(input, maxInflatedSize(channel)));
+            default:
+                throw new IOException("Unrecognised payload encoding " + encoding);
+        }
+    }
 
-    static {
-        marshallerFactory = Marshalling.getProvidedMarshallerFactory(MARSHALLING_STRATEGY);
-        if (marshallerFactory == null) {
-            throw new RuntimeException("Could not find a marshaller factory for " + MARSHALLING_STRATEGY + " marshalling strategy");
+    private static long maxInflatedSize(final Channel channel) {
+        if (MAX_INFLATED_SIZE > 0) {
+            return MAX_INFLATED_SIZE;
+        }
+        final Long maxInboundMessageSize = channel.getOption(RemotingOptions.MAX_INBOUND_MESSAGE_SIZE);
+        if (maxInboundMessageSize == null || maxInboundMessageSize <= 0 || maxInboundMessageSize == Long.MAX_VALUE) {
+            return DEFAULT_MAX_INFLATED_SIZE;
         }
+        return maxInboundMessageSize;
+    }
+
+    /**
+     * Rebuild the exception sent as an error code, once the ERROR_CODE parameter type has been read.
+     *
+     * @param input The message input
+     * @return The exception
+     * @throws IOException If the error code is not understood
+     */
+    static NamingException readErrorCode(final DataInput input) throws IOException {
+        final byte errorCode = input.readByte();
+        final String explanation = readOptionalString(input);
+        final NamingException exception;
+        switch (errorCode) {
+            case NAME_NOT_FOUND:
+                exception = ERROR_STACK_TRACES ? new NameNotFoundException(explanation) : new RemoteNameNotFoundException(explanation);
+                break;
+            case NOT_CONTEXT:
+                exception = ERROR_STACK_TRACES ? new NotContextException(explanation) : new RemoteNotContextException(explanation);
+                break;
+            default:
+                throw new IOException("Unrecognised error code " + errorCode);
+        }
+        final String resolvedName = readOptionalString(input);
+        final String remainingName = readOptionalString(input);
+        try {
+            if (resolvedName != null) {
+                exception.setResolvedName(new CompositeName(resolvedName));
+            }
+            if (remainingName != null) {
+                exception.setRemainingName(new CompositeName(remainingName));
+            }
+        } catch (InvalidNameException e) {
+            throw new IOException(e);
+        }
+        return exception;
+    }
+
+    private static String readOptionalString(final DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        final int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Read the rest of a message.
+     *
+     * @param input The message input
+     * @return The remaining bytes
+     * @throws IOException If the message could not be read
+     */
+    static byte[] readRemaining(final DataInput input) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (input instanceof InputStream) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = ((InputStream) input).read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } else {
+            try {
+                for (;;) {
+                    bytes.write(input.readByte());
+                }
+            } catch (EOFException e) {
+                // end of message
+            }
+        }
+        return bytes.toByteArray();
     }
 
     static Unmarshaller prepareForUnMarshalling(final DataInput dataInput, final ClassLoader classloader) throws IOException {
-        final Unmarshaller unmarshaller = getUnMarshaller(marshallerFactory, classloader);
+        final Unmarshaller unmarshaller = CurrentStrategy.get().createUnmarshaller(classloader);
         final InputStream is = new InputStream() {
             @Override
             public int read() throws IOException {
@@ -67,11 +198,67 @@ public class ReadUtil {
         return unmarshaller;
     }
 
-    static Unmarshaller getUnMarshaller(final MarshallerFactory marshallerFactory, final ClassLoader classloader) throws IOException {
-        final MarshallingConfiguration marshallingConfiguration = new MarshallingConfiguration();
-        marshallingConfiguration.setVersion(2);
-    	marshallingConfiguration.setClassResolver(new SimpleClassResolver(classloader));
-        return marshallerFactory.createUnmarshaller(marshallingConfiguration);
+    /**
+     * Inflates a message body, failing once more than a given number of bytes were inflated. It owns its
+     * {@link Inflater}, which is ended when the stream is closed rather than on finalization.
+     */
+    private static final class BoundedInflaterInputStream extends InflaterInputStream {
+        private final long limit;
+        private long inflated;
+
+        private BoundedInflaterInputStream(final InputStream input, final long limit) {
+            super(input, new Inflater());
+            this.limit = limit;
+        }
+
+        // read() and skip() both read through here
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = super.read(b, off, len);
+            if (read > 0) {
+                inflated += read;
+                if (inflated > limit) {
+                    throw new IOException("Compressed message body inflates to more than " + limit + " bytes");
+                }
+            }
+            return read;
+        }
+
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    /**
+     * A {@link NameNotFoundException} which does not capture a client side stack trace.
+     */
+    private static final class RemoteNameNotFoundException extends NameNotFoundException {
+        private static final long serialVersionUID = 1L;
+
+        private RemoteNameNotFoundException(final String explanation) {
+            super(explanation);
+        }
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
     }
 
+    /**
+     * A {@link NotContextException} which does not capture a client side stack trace.
+     */
+    private static final class RemoteNotContextException extends NotContextException {
+        private static final long serialVersionUID = 1L;
+
+        private RemoteNotContextException(final String explanation) {
+            super(explanation);
+        }
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 }
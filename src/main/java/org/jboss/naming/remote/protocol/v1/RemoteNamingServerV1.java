@@ -21,13 +21,20 @@
  */
 package org.jboss.naming.remote.protocol.v1;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.RuntimeMBeanException;
+import javax.naming.ServiceUnavailableException;
 
 import org.jboss.logging.Logger;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
 import org.jboss.naming.remote.protocol.ProtocolCommand;
+import org.jboss.naming.remote.server.ChannelRequestQueue;
 import org.jboss.naming.remote.server.RemoteNamingServer;
 import org.jboss.naming.remote.server.RemoteNamingServerLogger;
 import org.jboss.naming.remote.server.RemoteNamingService;
@@ -35,6 +42,8 @@ import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.MessageInputStream;
 import org.xnio.IoUtils;
 
+import static org.jboss.naming.remote.protocol.v1.Constants.FRAME;
+import static org.jboss.naming.remote.protocol.v1.ReadUtil.decodePayload;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeExceptionResponse;
 
 /**
@@ -43,74 +52,129 @@ import static org.jboss.naming.remote.protocol.v1.WriteUtil.writeExceptionRespon
 public class RemoteNamingServerV1 implements RemoteNamingServer {
     private static final Logger log = Logger.getLogger(RemoteNamingServerV1.class);
 
+    private static final int INLINE_SUSPENSION = 1024;
+
     private final Channel channel;
     private final RemoteNamingService remoteNamingService;
     private final RemoteNamingServerLogger logger;
+    private final ChannelRequestQueue requestQueue;
 
     public RemoteNamingServerV1(final Channel channel, final RemoteNamingService remoteNamingServer) {
         this.channel = channel;
         this.remoteNamingService = remoteNamingServer;
         this.logger = remoteNamingServer.getLogger();
+        this.requestQueue = remoteNamingServer.createRequestQueue(channel);
     }
 
     public void start() {
+        final long frameWindow = remoteNamingService.getFrameWindow(TimeUnit.NANOSECONDS);
+        if (frameWindow > 0 && Capabilities.forChannel(channel).isEnabled(Capabilities.FRAMES)) {
+            MessageFramer.attach(channel, frameWindow, TimeUnit.NANOSECONDS, remoteNamingService.getMaxFrameSize());
+        }
         channel.receiveMessage(new MessageReciever());
     }
 
     private class MessageReciever implements Channel.Receiver {
+        /**
+         * The number of messages still to be dispatched to the executor, after inline handling took too long.
+         */
+        private int inlineSuspended;
+
         public void handleMessage(final Channel channel, MessageInputStream message) {
             final DataInputStream dis = new DataInputStream(message);
+            // anything answered right here, inline or rejected, must not wait for a frame window, as that would hold
+            // up every message of the connection
+            final boolean unframed = MessageFramer.enterUnframed();
             try {
                 final byte messageId = dis.readByte();
                 final int correlationId = dis.readInt();
                 log.tracef("Message Received id(%h), correlationId(%d)", messageId, correlationId);
 
-                final ProtocolCommand command = Protocol.forId(messageId);
-                if (command != null) {
-                    remoteNamingService.getExecutor().execute(new Runnable() {
-                        public void run() {
-                            try {
-                                command.handleServerMessage(channel, dis, correlationId, remoteNamingService);
-                            } catch (Throwable t) {
-                                if (correlationId != 0x00) {
-                                    Exception response;
-                                    if (t instanceof IOException) {
-                                        response = (Exception) t;
-                                    } else if (t instanceof RuntimeMBeanException) {
-                                        response = (Exception) t;
-                                    } else {
-                                        response = new IOException("Internal server error.");
-                                        logger.unnexpectedError(t);
-                                    }
-
-                                    sendIOException(response);
-                                } else {
-                                    logger.nullCorrelationId(t);
-                                }
-                            } finally {
-                                IoUtils.safeClose(dis);
-                            }
+                if (messageId == FRAME) {
+                    try {
+                        for (byte[] framed : MessageFramer.readFrame(channel, dis)) {
+                            final DataInputStream framedInput = new DataInputStream(new ByteArrayInputStream(framed));
+                            handleMessage(channel, framedInput.readByte(), framedInput.readInt(), framedInput);
                         }
+                    } finally {
+                        IoUtils.safeClose(dis);
+                    }
+                } else {
+                    handleMessage(channel, messageId, correlationId, dis);
+                }
+            } catch (Throwable e) {
+                logger.unnexpectedError(e);
+                IoUtils.safeClose(dis);
+            } finally {
+                MessageFramer.exitUnframed(unframed);
+                channel.receiveMessage(this);
+            }
+        }
 
-                        private void sendIOException(final Exception e) {
+        private void handleMessage(final Channel channel, final byte messageId, final int correlationId, final DataInputStream dis) throws IOException {
+            final ProtocolCommand command = Protocol.forId(messageId);
+            if (command != null) {
+                final DataInputStream payload = decodePayload(channel, dis);
+                if (isInlineCandidate(command)) {
+                    handleInline((BaseProtocolCommand<?, ?>) command, payload, messageId, correlationId);
+                } else {
+                    submit(new Request(messageId, correlationId) {
+                        void handle() throws Exception {
                             try {
-                                writeExceptionResponse(channel, e, messageId, correlationId);
-                                log.tracef("[%d] %h - Success Response Sent", correlationId, messageId);
-                            } catch (IOException ioe) {
-                                logger.failedToSendExceptionResponse(ioe);
+                                command.handleServerMessage(channel, payload, correlationId, remoteNamingService);
+                            } finally {
+                                IoUtils.safeClose(payload);
                             }
                         }
 
+                        void rejected() {
+                            IoUtils.safeClose(payload);
+                            super.rejected();
+                        }
                     });
-
-                } else {
-                    throw new IOException("Unrecognised Message ID");
                 }
-            } catch (Throwable e) {
-                logger.unnexpectedError(e);
-                IoUtils.safeClose(dis);
+            } else {
+                throw new IOException("Unrecognised Message ID");
+            }
+        }
+
+        private boolean isInlineCandidate(final ProtocolCommand<?> command) {
+            if (remoteNamingService.getInlineBudget(TimeUnit.NANOSECONDS) <= 0 || !(command instanceof BaseProtocolCommand<?, ?>)) {
+                return false;
+            }
+            if (inlineSuspended > 0) {
+                inlineSuspended--;
+                return false;
+            }
+            return ((BaseProtocolCommand<?, ?>) command).canHandleInline(remoteNamingService);
+        }
+
+        private void handleInline(final BaseProtocolCommand<?, ?> command, final DataInputStream payload, final byte messageId, final int correlationId) {
+            final long budget = remoteNamingService.getInlineBudget(TimeUnit.NANOSECONDS);
+            final long start = System.nanoTime();
+            Callable<Void> remaining = null;
+            final MarshallingStrategy previous = CurrentStrategy.enter(channel);
+            try {
+                remaining = command.handleServerMessageInline(channel, payload, correlationId, remoteNamingService, start + budget);
+            } catch (Throwable t) {
+                failed(messageId, correlationId, t);
             } finally {
-                channel.receiveMessage(this);
+                IoUtils.safeClose(payload);
+                CurrentStrategy.exit(previous);
+            }
+            final long elapsed = System.nanoTime() - start;
+            if (elapsed > budget) {
+                // the receiving thread is not handling further messages while we are busy, so back off for a while
+                log.debugf("Inline handling of message id(%h) took %dns, dispatching the next %d messages of %s to the executor", messageId, elapsed, INLINE_SUSPENSION, channel);
+                inlineSuspended = INLINE_SUSPENSION;
+            }
+            if (remaining != null) {
+                final Callable<Void> task = remaining;
+                submit(new Request(messageId, correlationId) {
+                    void handle() throws Exception {
+                        task.call();
+                    }
+                });
             }
         }
 
@@ -130,4 +194,70 @@ public class RemoteNamingServerV1 implements RemoteNamingServer {
             }
         }
     }
+
+    private void submit(final Request request) {
+        requestQueue.submit(Protocol.laneOf(request.messageId), request, new Runnable() {
+            public void run() {
+                request.rejected();
+            }
+        });
+    }
+
+    private void failed(final byte messageId, final int correlationId, final Throwable t) {
+        if (correlationId != 0x00) {
+            Exception response;
+            if (t instanceof IOException) {
+                response = (Exception) t;
+            } else if (t instanceof RuntimeMBeanException) {
+                response = (Exception) t;
+            } else {
+                response = new IOException("Internal server error.");
+                logger.unnexpectedError(t);
+            }
+
+            sendException(messageId, correlationId, response);
+        } else {
+            logger.nullCorrelationId(t);
+        }
+    }
+
+    private void sendException(final byte messageId, final int correlationId, final Exception e) {
+        try {
+            writeExceptionResponse(channel, e, messageId, correlationId);
+            log.tracef("[%d] %h - Success Response Sent", correlationId, messageId);
+        } catch (IOException ioe) {
+            logger.failedToSendExceptionResponse(ioe);
+        }
+    }
+
+    /**
+     * A request handed to the executor, sending an exception response if it fails or is rejected.
+     */
+    private abstract class Request implements Runnable {
+        private final byte messageId;
+        private final int correlationId;
+
+        private Request(final byte messageId, final int correlationId) {
+            this.messageId = messageId;
+            this.correlationId = correlationId;
+        }
+
+        public void run() {
+            final MarshallingStrategy previous = CurrentStrategy.enter(channel);
+            try {
+                handle();
+            } catch (Throwable t) {
+                failed(messageId, correlationId, t);
+            } finally {
+                CurrentStrategy.exit(previous);
+            }
+        }
+
+        abstract void handle() throws Exception;
+
+        void rejected() {
+            log.debugf("Rejected message id(%h), correlationId(%d) - %s", messageId, correlationId, requestQueue);
+            sendException(messageId, correlationId, new ServiceUnavailableException("Too many outstanding requests, retry later"));
+        }
+    }
 }
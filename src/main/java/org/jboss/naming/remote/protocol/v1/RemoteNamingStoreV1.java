@@ -22,49 +22,95 @@
 package org.jboss.naming.remote.protocol.v1;
 
 import org.jboss.logging.Logger;
+import org.jboss.naming.remote.client.BatchOperation;
 import org.jboss.naming.remote.client.CurrentEjbClientConnection;
-import org.jboss.naming.remote.client.RemoteNamingStore;
+import org.jboss.naming.remote.client.ExtendedRemoteNamingStore;
+import org.jboss.naming.remote.client.LookupCache;
+import org.jboss.naming.remote.client.NamingPipeline;
+import org.jboss.naming.remote.client.SearchResults;
 import org.jboss.naming.remote.client.ejb.EJBClientHandler;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
 import org.jboss.naming.remote.protocol.ProtocolCommand;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.Connection;
 import org.jboss.remoting3.MessageInputStream;
+import org.jboss.remoting3.RemotingOptions;
 import org.xnio.IoUtils;
 
 import javax.naming.Binding;
+import javax.naming.CompositeName;
 import javax.naming.Context;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jboss.naming.remote.client.ClientUtil.namingException;
+import static org.jboss.naming.remote.protocol.v1.Constants.FRAME;
+import static org.jboss.naming.remote.protocol.v1.ReadUtil.decodePayload;
 import static org.jboss.naming.remote.protocol.v1.WriteUtil.write;
 
 /**
  * @author John Bailey
  */
-public class RemoteNamingStoreV1 implements RemoteNamingStore {
+public class RemoteNamingStoreV1 implements ExtendedRemoteNamingStore {
     private static final Logger log = Logger.getLogger(RemoteNamingStoreV1.class);
 
+    /**
+     * How long, in microseconds, a request is held back so it can be sent in a single frame with the requests other
+     * threads write in the meantime. Zero, the default, sends every request on its own as soon as it is written.
+     */
+    static final long FRAME_WINDOW = Long.parseLong(SecurityActions.getSystemProperty("jboss.naming.client.frame.window", "0"));
+
+    /**
+     * The number of requests after which a frame is sent without waiting for the rest of the window.
+     */
+    static final int MAX_FRAME_SIZE = Integer.parseInt(SecurityActions.getSystemProperty("jboss.naming.client.frame.size", "16"));
+
     private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());
     private final Channel channel;
     private final EJBClientHandler ejbClientHandler;
+    private final Capabilities capabilities;
+    private final LookupCache cache;
+    /**
+     * The cache, if the responses it holds can be read on this channel. It is shared by the stores of every server and
+     * may be persisted, so it only holds responses marshalled by the default strategy.
+     */
+    private final LookupCache responseCache;
+    /** The pipelined operations in flight on the channel, see {@link NamingPipeline} */
+    private Semaphore pipelineWindow;
 
     public RemoteNamingStoreV1(final Channel channel) {
         this(channel, null);
     }
 
     public RemoteNamingStoreV1(final Channel channel, final EJBClientHandler ejbClientHandler) {
+        this(channel, ejbClientHandler, Capabilities.EMPTY);
+    }
+
+    public RemoteNamingStoreV1(final Channel channel, final EJBClientHandler ejbClientHandler, final Capabilities capabilities) {
+        this(channel, ejbClientHandler, capabilities, null);
+    }
+
+    public RemoteNamingStoreV1(final Channel channel, final EJBClientHandler ejbClientHandler, final Capabilities capabilities, final LookupCache cache) {
         this.channel = channel;
         this.ejbClientHandler = ejbClientHandler;
+        this.capabilities = capabilities;
+        this.cache = cache;
+        this.responseCache = MarshallingStrategies.forChannel(channel) == MarshallingStrategies.DEFAULT ? cache : null;
         if (this.ejbClientHandler != null) {
             final Connection connection = channel.getConnection();
             try {
@@ -78,6 +124,12 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     void start() throws IOException {
         sendVersionHeader();
+        // only attach once the header has gone out, everything sent from now on may use the negotiated features
+        capabilities.attachTo(channel);
+        log.debugf("Negotiated capabilities %s", capabilities);
+        if (FRAME_WINDOW > 0 && capabilities.isEnabled(Capabilities.FRAMES)) {
+            MessageFramer.attach(channel, FRAME_WINDOW, TimeUnit.MICROSECONDS, MAX_FRAME_SIZE);
+        }
         channel.receiveMessage(new MessageReceiver());
     }
 
@@ -86,13 +138,33 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
             public void write(DataOutput output) throws IOException {
                 output.write(org.jboss.naming.remote.Constants.NAMING);
                 output.writeByte(VersionOne.getVersionIdentifier());
+                Capabilities.write(output, capabilities.getFlags());
+                MarshallingStrategies.writeChoice(output, MarshallingStrategies.forChannel(channel));
             }
         });
     }
 
     public Object lookup(final Name name) throws NamingException {
+        return lookup(name, null);
+    }
+
+    /**
+     * Look a name up, sending it relative to a context handle if it is below the context.
+     *
+     * @param name   The absolute name
+     * @param handle The handle of a context, or null to send the absolute name
+     */
+    Object lookup(final Name name, final ContextHandle handle) throws NamingException {
         try {
-            Object obj = Protocol.LOOKUP.execute(channel, name);
+            Object obj;
+            final byte[] cached = responseCache == null ? null : responseCache.get(name);
+            if (cached != null) {
+                obj = Protocol.readCachedLookupResult(cached, name, this);
+            } else if (responseCache != null) {
+                obj = cachingLookup(name);
+            } else {
+                obj = handle == null ? Protocol.LOOKUP.execute(channel, name) : Protocol.LOOKUP.execute(channel, name, handle);
+            }
             // give the EJB client handler a chance to handle a possible EJB proxy instance returned by the lookup.
             if (this.ejbClientHandler != null) {
                 obj = this.ejbClientHandler.handleLookupReturnInstance(obj);
@@ -105,6 +177,7 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public void bind(final Name name, final Object object) throws NamingException {
         try {
+            invalidate(name);
             Protocol.BIND.execute(channel, name, object);
         } catch (IOException e) {
             throw namingException("Failed to execute bind for [" + name + ", " + object + "]", e);
@@ -113,6 +186,7 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public void rebind(Name name, Object object) throws NamingException {
         try {
+            invalidate(name);
             Protocol.REBIND.execute(channel, name, object);
         } catch (IOException e) {
             throw namingException("Failed to execute rebind for [" + name + ", " + object + "]", e);
@@ -120,16 +194,29 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
     }
 
     public List<NameClassPair> list(Name name) throws NamingException {
+        return list(name, null);
+    }
+
+    List<NameClassPair> list(final Name name, final ContextHandle handle) throws NamingException {
         try {
-            return Protocol.LIST.execute(channel, name);
+            return handle == null ? Protocol.LIST.execute(channel, name) : Protocol.LIST.execute(channel, name, handle);
         } catch (IOException e) {
             throw namingException("Failed to execute list for [" + name + "]", e);
         }
     }
 
     public List<Binding> listBindings(final Name name) throws NamingException {
+        return listBindings(name, false, null);
+    }
+
+    public List<Binding> listBindings(final Name name, final boolean lazy) throws NamingException {
+        return listBindings(name, lazy, null);
+    }
+
+    List<Binding> listBindings(final Name name, final boolean lazy, final ContextHandle handle) throws NamingException {
         try {
-            return Protocol.LIST_BINDINGS.execute(channel, name);
+            final ProtocolCommand<List<Binding>> command = lazy && capabilities.isEnabled(Capabilities.LAZY_BINDINGS) ? Protocol.LAZY_LIST_BINDINGS : Protocol.LIST_BINDINGS;
+            return handle == null ? command.execute(channel, name) : command.execute(channel, name, handle);
         } catch (IOException e) {
             throw namingException("Failed to execute list bindings for [" + name + "]", e);
         }
@@ -137,6 +224,7 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public void unbind(final Name name) throws NamingException {
         try {
+            invalidate(name);
             Protocol.UNBIND.execute(channel, name);
         } catch (IOException e) {
             throw namingException("Failed to execute unbind for [" + name + "]", e);
@@ -145,6 +233,8 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public void rename(final Name name, final Name newName) throws NamingException {
         try {
+            invalidate(name);
+            invalidate(newName);
             Protocol.RENAME.execute(channel, name, newName);
         } catch (IOException e) {
             throw namingException("Failed to execute rename for [" + name + ", " + newName + "]", e);
@@ -153,6 +243,7 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public Context createSubcontext(final Name name) throws NamingException {
         try {
+            invalidate(name);
             return Protocol.CREATE_SUBCONTEXT.execute(channel, name);
         } catch (IOException e) {
             throw namingException("Failed to execute createSubcontext for [" + name + "]", e);
@@ -161,6 +252,7 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
 
     public void destroySubcontext(final Name name) throws NamingException {
         try {
+            invalidate(name);
             Protocol.DESTROY_SUBCONTEXT.execute(channel, name);
         } catch (IOException e) {
             throw namingException("Failed to execute destroySubcontext for [" + name + "]", e);
@@ -175,6 +267,98 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
         }
     }
 
+    public Object resolveLink(final Name base, final String linkName) throws NamingException {
+        if (!capabilities.isEnabled(Capabilities.LINK_RESOLUTION)) {
+            return lookup(((Name) base.clone()).addAll(new CompositeName(linkName)));
+        }
+        try {
+            Object obj = Protocol.RESOLVE_LINK.execute(channel, base, linkName);
+            if (this.ejbClientHandler != null) {
+                obj = this.ejbClientHandler.handleLookupReturnInstance(obj);
+            }
+            return obj;
+        } catch (IOException e) {
+            throw namingException("Failed to execute link resolution for [" + base + ", " + linkName + "]", e);
+        }
+    }
+
+    public int prefetch(final Name name, final int maxDepth, final int maxEntries) throws NamingException {
+        if (responseCache == null || !capabilities.isEnabled(Capabilities.SNAPSHOT)) {
+            return 0;
+        }
+        try {
+            return Protocol.SNAPSHOT.execute(channel, name, maxDepth, maxEntries, responseCache);
+        } catch (IOException e) {
+            throw namingException("Failed to execute prefetch for [" + name + "]", e);
+        }
+    }
+
+    public SearchResults search(final Name name, final String pattern, final int maxDepth, final int limit) throws NamingException {
+        if (!capabilities.isEnabled(Capabilities.SEARCH)) {
+            throw new OperationNotSupportedException("The server does not support searching");
+        }
+        try {
+            return Protocol.SEARCH.execute(channel, name, pattern, maxDepth, limit);
+        } catch (IOException e) {
+            throw namingException("Failed to execute search for [" + name + ", " + pattern + "]", e);
+        }
+    }
+
+    public List<NamingException> batch(final List<BatchOperation> operations, final boolean atomic) throws NamingException {
+        for (BatchOperation operation : operations) {
+            invalidate(operation.getName());
+        }
+        if (!capabilities.isEnabled(Capabilities.BATCH)) {
+            if (atomic) {
+                throw new OperationNotSupportedException("The server does not support batches");
+            }
+            // one round trip each
+            return BatchOperation.applyEach(this, operations);
+        }
+        try {
+            return Protocol.BATCH.execute(channel, operations, atomic);
+        } catch (IOException e) {
+            throw namingException("Failed to execute batch of " + operations.size() + " operations", e);
+        }
+    }
+
+    public NamingPipeline pipeline() throws NamingException {
+        // the executor is a cached pool, so every operation in flight gets a thread
+        return new NamingPipeline(this, executor, pipelineWindow());
+    }
+
+    private synchronized Semaphore pipelineWindow() {
+        if (pipelineWindow == null) {
+            Integer maxOutboundMessages = null;
+            if (channel.supportsOption(RemotingOptions.MAX_OUTBOUND_MESSAGES)) {
+                maxOutboundMessages = channel.getOption(RemotingOptions.MAX_OUTBOUND_MESSAGES);
+            }
+            pipelineWindow = new Semaphore(Math.max(1, NamingPipeline.getWindow(maxOutboundMessages == null ? 0 : maxOutboundMessages)));
+        }
+        return pipelineWindow;
+    }
+
+    /**
+     * Look a name up and cache the result. If the server issues versions, a cached response which expired is only
+     * sent again if it changed.
+     */
+    private Object cachingLookup(final Name name) throws IOException, NamingException {
+        if (!capabilities.isEnabled(Capabilities.VERSION_TOKENS)) {
+            return Protocol.LOOKUP.execute(channel, name, responseCache);
+        }
+        final LookupCache.Versioned cached = responseCache.getVersioned(name);
+        if (cached == null) {
+            return Protocol.CONDITIONAL_LOOKUP.execute(channel, name, responseCache);
+        }
+        return Protocol.CONDITIONAL_LOOKUP.execute(channel, name, responseCache, cached);
+    }
+
+    private void invalidate(final Name name) {
+        if (cache != null) {
+            cache.invalidate(name);
+        }
+    }
+
     public void close() throws NamingException {
         // shutdown the executor service
         try {
@@ -224,23 +408,17 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
                 final int correlationId = dis.readInt();
                 log.tracef("Message Received id(%h), correlationId(%d)", messageId, correlationId);
 
-                final ProtocolCommand command = Protocol.forId(messageId);
-                if (command != null) {
-                    executor.execute(new Runnable() {
-                        public void run() {
-                            try {
-                                command.handleClientMessage(dis, correlationId, RemoteNamingStoreV1.this);
-                            } catch (IOException e) {
-                                log.error(e);
-                            } finally {
-                                IoUtils.safeClose(dis);
-                            }
+                if (messageId == FRAME) {
+                    try {
+                        for (byte[] framed : MessageFramer.readFrame(channel, dis)) {
+                            final DataInputStream framedInput = new DataInputStream(new ByteArrayInputStream(framed));
+                            handleMessage(channel, framedInput.readByte(), framedInput.readInt(), framedInput);
                         }
-
-                    });
-
+                    } finally {
+                        IoUtils.safeClose(dis);
+                    }
                 } else {
-                    throw new IOException("Unrecognised Message ID");
+                    handleMessage(channel, messageId, correlationId, dis);
                 }
             } catch (IOException e) {
                 log.error(e);
@@ -250,6 +428,30 @@ public class RemoteNamingStoreV1 implements RemoteNamingStore {
             }
         }
 
+        private void handleMessage(final Channel channel, final byte messageId, final int correlationId, final DataInputStream dis) throws IOException {
+            final ProtocolCommand command = Protocol.forId(messageId);
+            if (command != null) {
+                final DataInputStream payload = decodePayload(channel, dis);
+                executor.execute(new Runnable() {
+                    public void run() {
+                        final MarshallingStrategy previous = CurrentStrategy.enter(channel);
+                        try {
+                            command.handleClientMessage(payload, correlationId, RemoteNamingStoreV1.this);
+                        } catch (IOException e) {
+                            log.error(e);
+                        } finally {
+                            IoUtils.safeClose(payload);
+                            CurrentStrategy.exit(previous);
+                        }
+                    }
+
+                });
+
+            } else {
+                throw new IOException("Unrecognised Message ID");
+            }
+        }
+
         public void handleError(final Channel channel, final IOException error) {
             log.errorf(error, "Closing channel %s due to an error", channel);
             try {
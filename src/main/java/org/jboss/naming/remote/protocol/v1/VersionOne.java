@@ -23,7 +23,9 @@ package org.jboss.naming.remote.protocol.v1;
 
 import java.io.IOException;
 
+import org.jboss.naming.remote.client.LookupCache;
 import org.jboss.naming.remote.client.ejb.EJBClientHandler;
+import org.jboss.naming.remote.protocol.Capabilities;
 import org.jboss.naming.remote.server.RemoteNamingServer;
 import org.jboss.naming.remote.server.RemoteNamingService;
 import org.jboss.remoting3.Channel;
@@ -47,7 +49,15 @@ public class VersionOne {
     }
 
     public static RemoteNamingStoreV1 getRemoteNamingStore(final Channel channel, final EJBClientHandler ejbClientHandler) throws IOException {
-        final RemoteNamingStoreV1 context = new RemoteNamingStoreV1(channel, ejbClientHandler);
+        return getRemoteNamingStore(channel, ejbClientHandler, Capabilities.NONE);
+    }
+
+    public static RemoteNamingStoreV1 getRemoteNamingStore(final Channel channel, final EJBClientHandler ejbClientHandler, final int capabilities) throws IOException {
+        return getRemoteNamingStore(channel, ejbClientHandler, capabilities, null);
+    }
+
+    public static RemoteNamingStoreV1 getRemoteNamingStore(final Channel channel, final EJBClientHandler ejbClientHandler, final int capabilities, final LookupCache cache) throws IOException {
+        final RemoteNamingStoreV1 context = new RemoteNamingStoreV1(channel, ejbClientHandler, Capabilities.of(capabilities), cache);
         context.start();
         return context;
     }
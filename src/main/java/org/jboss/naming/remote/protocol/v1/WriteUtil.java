@@ -21,20 +21,38 @@
  */
 package org.jboss.naming.remote.protocol.v1;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.naming.CompositeName;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.NotContextException;
+
 import org.jboss.marshalling.ByteOutput;
 import org.jboss.marshalling.Marshaller;
-import org.jboss.marshalling.MarshallerFactory;
 import org.jboss.marshalling.Marshalling;
-import org.jboss.marshalling.MarshallingConfiguration;
 import org.jboss.naming.remote.protocol.CancellableDataOutputStream;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
+import static org.jboss.naming.remote.protocol.v1.Constants.DEFLATE;
+import static org.jboss.naming.remote.protocol.v1.Constants.ERROR_CODE;
 import static org.jboss.naming.remote.protocol.v1.Constants.EXCEPTION;
 import static org.jboss.naming.remote.protocol.v1.Constants.FAILURE;
-import static org.jboss.naming.remote.protocol.v1.Constants.MARSHALLING_STRATEGY;
+import static org.jboss.naming.remote.protocol.v1.Constants.NAME_NOT_FOUND;
+import static org.jboss.naming.remote.protocol.v1.Constants.NOT_CONTEXT;
 import static org.jboss.naming.remote.protocol.v1.Constants.OBJECT;
+import static org.jboss.naming.remote.protocol.v1.Constants.RAW;
 import static org.jboss.naming.remote.protocol.v1.Constants.SUCCESS;
+import org.jboss.remoting3.Attachments;
 import org.jboss.remoting3.Channel;
 import org.xnio.IoUtils;
 
@@ -42,31 +60,91 @@ import org.xnio.IoUtils;
  * @author John Bailey
  */
 class WriteUtil {
-    static final MarshallerFactory marshallerFactory;
+    /**
+     * Message bodies of at least this many bytes are compressed, if compression was negotiated for the channel.
+     */
+    static final int COMPRESSION_THRESHOLD = Integer.parseInt(SecurityActions.getSystemProperty("jboss.naming.compression.threshold", "8192"));
+    static final int COMPRESSION_LEVEL = Integer.parseInt(SecurityActions.getSystemProperty("jboss.naming.compression.level", String.valueOf(Deflater.BEST_SPEED)));
 
-    static {
-        marshallerFactory = Marshalling.getProvidedMarshallerFactory(MARSHALLING_STRATEGY);
-        if (marshallerFactory == null) {
-            throw new RuntimeException("Could not find a marshaller factory for " + MARSHALLING_STRATEGY + " marshalling strategy");
-        }
-    }
+    /**
+     * Every message starts with the command id and correlation id, these are never compressed.
+     */
+    private static final int MESSAGE_HEADER_LENGTH = 5;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The number of messages being written to a channel, so the receiving thread can tell whether writing a response
+     * might have to wait for another writer.
+     */
+    private static final Attachments.Key<AtomicInteger> WRITING = new Attachments.Key<AtomicInteger>(AtomicInteger.class);
 
     static interface Writer {
         void write(DataOutput output) throws IOException;
     }
 
     static void write(final Channel channel, Writer writer) throws IOException {
-        CancellableDataOutputStream output = new CancellableDataOutputStream(channel.writeMessage());
+        final MarshallingStrategy previous = CurrentStrategy.enter(channel);
+        final AtomicInteger writing = writing(channel);
+        writing.incrementAndGet();
         try {
-            writer.write(output);
-        } catch (IOException e) {
-            output.cancel();
-            throw e;
+            final boolean compression = Capabilities.forChannel(channel).isEnabled(Capabilities.COMPRESSION);
+            final MessageFramer framer = MessageFramer.forChannel(channel);
+            MessageBuffer buffer = null;
+            if (compression || framer != null) {
+                // the body has to be complete before we know whether it is worth compressing, or before it joins a frame
+                buffer = new MessageBuffer();
+                writer.write(new DataOutputStream(buffer));
+            }
+            if (framer != null) {
+                if (compression) {
+                    final ByteArrayOutputStream encoded = new ByteArrayOutputStream(buffer.size() + 1);
+                    buffer.writeEncoded(encoded);
+                    framer.write(encoded.toByteArray());
+                } else {
+                    framer.write(buffer.toByteArray());
+                }
+                return;
+            }
+            CancellableDataOutputStream output = new CancellableDataOutputStream(channel.writeMessage());
+            try {
+                if (buffer != null) {
+                    buffer.writeEncoded(output);
+                } else {
+                    writer.write(output);
+                }
+            } catch (IOException e) {
+                output.cancel();
+                throw e;
+            } finally {
+                IoUtils.safeClose(output);
+            }
         } finally {
-            IoUtils.safeClose(output);
+            writing.decrementAndGet();
+            CurrentStrategy.exit(previous);
         }
     }
 
+    /**
+     * Check whether messages are being written to a channel.
+     *
+     * @param channel The channel
+     * @return true if another thread is writing a message, so a write might have to wait for it
+     */
+    static boolean isWriting(final Channel channel) {
+        final AtomicInteger writing = channel.getAttachments().getAttachment(WRITING);
+        return writing != null && writing.get() > 0;
+    }
+
+    private static AtomicInteger writing(final Channel channel) {
+        final AtomicInteger writing = channel.getAttachments().getAttachment(WRITING);
+        if (writing != null) {
+            return writing;
+        }
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger existing = channel.getAttachments().attachIfAbsent(WRITING, created);
+        return existing == null ? created : existing;
+    }
+
     static void writeResponse(final Channel channel, final byte command, final int correlationId) throws IOException {
         write(channel, new Writer() {
             public void write(DataOutput output) throws IOException {
@@ -78,6 +156,23 @@ class WriteUtil {
     }
 
     static void writeExceptionResponse(final Channel channel, final Exception e, final byte command, final int correlationId) throws IOException {
+        final byte errorCode = errorCode(channel, e);
+        if (errorCode != 0) {
+            final NamingException namingException = (NamingException) e;
+            write(channel, new Writer() {
+                public void write(DataOutput output) throws IOException {
+                    output.writeByte(command);
+                    output.writeInt(correlationId);
+                    output.writeByte(FAILURE);
+                    output.writeByte(ERROR_CODE);
+                    output.writeByte(errorCode);
+                    writeOptionalString(output, namingException.getExplanation());
+                    writeOptionalString(output, namingException.getResolvedName() == null ? null : namingException.getResolvedName().toString());
+                    writeOptionalString(output, namingException.getRemainingName() == null ? null : namingException.getRemainingName().toString());
+                }
+            });
+            return;
+        }
         write(channel, new Writer() {
             public void write(DataOutput output) throws IOException {
                 output.writeByte(command);
@@ -93,6 +188,45 @@ class WriteUtil {
 
     }
 
+    /**
+     * Get the code to send instead of the marshalled exception. Only exceptions which can be rebuilt on the client
+     * without losing anything but the server side stack trace have a code.
+     *
+     * @return The error code, or 0 if the exception has to be marshalled
+     */
+    private static byte errorCode(final Channel channel, final Exception e) {
+        if (!Capabilities.forChannel(channel).isEnabled(Capabilities.ERROR_CODES)) {
+            return 0;
+        }
+        final byte errorCode;
+        if (e.getClass() == NameNotFoundException.class) {
+            errorCode = NAME_NOT_FOUND;
+        } else if (e.getClass() == NotContextException.class) {
+            errorCode = NOT_CONTEXT;
+        } else {
+            return 0;
+        }
+        final NamingException namingException = (NamingException) e;
+        if (namingException.getRootCause() != null || namingException.getResolvedObj() != null
+                || !isComposite(namingException.getResolvedName()) || !isComposite(namingException.getRemainingName())) {
+            return 0;
+        }
+        return errorCode;
+    }
+
+    private static boolean isComposite(final Name name) {
+        return name == null || name instanceof CompositeName;
+    }
+
+    private static void writeOptionalString(final DataOutput output, final String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            final byte[] bytes = value.getBytes(UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
     static void writeResponse(final Channel channel, final Object response, final byte command, final int correlationId) throws IOException {
         write(channel, new Writer() {
             public void write(DataOutput output) throws IOException {
@@ -109,8 +243,19 @@ class WriteUtil {
 
     }
 
+    static void writeCachedResponse(final Channel channel, final byte[] response, final byte command, final int correlationId) throws IOException {
+        write(channel, new Writer() {
+            public void write(DataOutput output) throws IOException {
+                output.writeByte(command);
+                output.writeInt(correlationId);
+                output.writeByte(SUCCESS);
+                output.write(response);
+            }
+        });
+    }
+
     static Marshaller prepareForMarshalling(final DataOutput dataOutput) throws IOException {
-        final Marshaller marshaller = getMarshaller(marshallerFactory);
+        final Marshaller marshaller = CurrentStrategy.get().createMarshaller();
         final OutputStream outputStream = new OutputStream() {
             @Override
             public void write(int b) throws IOException {
@@ -135,9 +280,29 @@ class WriteUtil {
         return marshaller;
     }
 
-    static Marshaller getMarshaller(final MarshallerFactory marshallerFactory) throws IOException {
-        final MarshallingConfiguration marshallingConfiguration = new MarshallingConfiguration();
-        marshallingConfiguration.setVersion(2);
-        return marshallerFactory.createMarshaller(marshallingConfiguration);
+    /**
+     * Holds a complete message so its body can be written either as is or DEFLATE compressed, preceded by the
+     * matching payload encoding.
+     */
+    private static final class MessageBuffer extends ByteArrayOutputStream {
+
+        void writeEncoded(final OutputStream output) throws IOException {
+            final int bodyLength = count - MESSAGE_HEADER_LENGTH;
+            output.write(buf, 0, MESSAGE_HEADER_LENGTH);
+            if (bodyLength < COMPRESSION_THRESHOLD) {
+                output.write(RAW);
+                output.write(buf, MESSAGE_HEADER_LENGTH, bodyLength);
+                return;
+            }
+            output.write(DEFLATE);
+            final Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+            try {
+                final DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater);
+                deflaterOutput.write(buf, MESSAGE_HEADER_LENGTH, bodyLength);
+                deflaterOutput.finish();
+            } finally {
+                deflater.end();
+            }
+        }
     }
 }
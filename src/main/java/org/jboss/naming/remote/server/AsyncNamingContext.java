@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.server;
+
+import java.util.List;
+
+import javax.naming.Binding;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingException;
+
+/**
+ * An optional interface for local contexts whose read operations are slow, for example because they are backed by a
+ * remote directory.
+ * <p/>
+ * If the context given to the {@link RemoteNamingService} implements this interface, lookups and listings are started
+ * through it and the response is written once the completion is called, so no executor thread is held while the
+ * backing store is busy. All other operations still use the plain {@link javax.naming.Context} methods.
+ */
+public interface AsyncNamingContext {
+
+    void lookup(Name name, Completion<Object> completion);
+
+    void list(Name name, Completion<List<NameClassPair>> completion);
+
+    void listBindings(Name name, Completion<List<Binding>> completion);
+
+    /**
+     * Receives the outcome of an operation. Exactly one of the methods has to be called, from any thread.
+     */
+    interface Completion<T> {
+
+        void completed(T result);
+
+        void failed(NamingException e);
+    }
+}
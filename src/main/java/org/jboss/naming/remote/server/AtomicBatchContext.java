@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.server;
+
+import javax.naming.Context;
+import javax.naming.NamingException;
+
+/**
+ * An optional interface for local contexts which can apply several writes as a unit, for example because they are
+ * backed by a transactional store.
+ * <p/>
+ * If the context given to the {@link RemoteNamingService} implements this interface, clients may send batches of
+ * writes which take effect all or nothing. Without it such batches are rejected, while batches that allow partial
+ * success are applied one write at a time.
+ */
+public interface AtomicBatchContext {
+
+    /**
+     * Apply a batch so that either all of its writes take effect or none of them does.
+     *
+     * @param batch The batch
+     * @throws NamingException The failure of the batch, after any writes it made have been undone
+     */
+    void applyAtomically(Batch batch) throws NamingException;
+
+    interface Batch {
+
+        /**
+         * Make the writes of the batch.
+         *
+         * @param context The context to write to
+         * @throws NamingException If a write failed
+         */
+        void apply(Context context) throws NamingException;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.remoting3.Channel;
+
+/**
+ * Admits the requests received on a single channel to the shared {@link RemoteNamingService} executor.
+ * <p/>
+ * At most {@code maxInFlight} requests of a channel are handed to the executor at once, the rest wait in the
+ * channel's own queue until one of them completes. A single busy client can therefore never occupy more than
+ * {@code maxInFlight} executor threads. This is only a cap, not a fair scheduler: the executor itself still runs the
+ * admitted requests of all channels in the order it received them, and fairness across channels is left to it. Once
+ * {@code maxQueued} requests are waiting further requests are rejected straight away, so the client can retry
+ * rather than wait behind a backlog.
+ * <p/>
+ * Each request is run on the executor of its {@link RequestLane}, and queued requests are admitted by weighted round
+ * robin between the lanes, see {@link RequestLane}.
+ * Requests are not ordered otherwise, as in the baseline executor dispatch: a client only sends a request once its
+ * earlier requests on the same thread have been answered, and {@link org.jboss.naming.remote.client.NamingPipeline}
+ * keeps pipelined requests in order on the client.
+ */
+public class ChannelRequestQueue {
+    /** The request run by the current thread, so its handler can defer the completion */
+    private static final ThreadLocal<Request> CURRENT = new ThreadLocal<Request>();
+    private static final Runnable NO_COMPLETION = new Runnable() {
+        public void run() {
+        }
+    };
+
+    private static final RequestLane[] LANES = RequestLane.values();
+
+    private final Channel channel;
+    private final RemoteNamingService remoteNamingService;
+    private final int maxInFlight;
+    private final int maxQueued;
+
+    private final Map<RequestLane, Queue<Request>> queues = new EnumMap<RequestLane, Queue<Request>>(RequestLane.class);
+    /** The lane whose turn it is to admit waiting requests, and how many more it may admit before the next lane */
+    private int turn;
+    private int credits = LANES[0].weight;
+    private int queued;
+    private int inFlight;
+    private int peakQueued;
+    private long completed;
+    private long rejected;
+
+    ChannelRequestQueue(final Channel channel, final RemoteNamingService remoteNamingService, final int maxInFlight, final int maxQueued) {
+        this.channel = channel;
+        this.remoteNamingService = remoteNamingService;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        for (RequestLane lane : RequestLane.values()) {
+            queues.put(lane, new ArrayDeque<Request>());
+        }
+    }
+
+    /**
+     * Submit a request for execution.
+     *
+     * @param lane      The lane of the request
+     * @param task      The request handler
+     * @param rejection Run instead of the task if the request can not be admitted, on the calling thread
+     */
+    public void submit(final RequestLane lane, final Runnable task, final Runnable rejection) {
+        final Request request = new Request(lane, task, rejection);
+        final boolean admitted;
+        synchronized (this) {
+            if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                if (maxQueued <= 0 || queued < maxQueued) {
+                    queues.get(lane).add(request);
+                    peakQueued = Math.max(peakQueued, ++queued);
+                    return;
+                }
+                rejected++;
+                admitted = false;
+            } else {
+                inFlight++;
+                admitted = true;
+            }
+        }
+        if (admitted) {
+            dispatch(Collections.singletonList(request));
+        } else {
+            rejection.run();
+        }
+    }
+
+    private void dispatch(final List<Request> requests) {
+        final Queue<Request> pending = new ArrayDeque<Request>(requests);
+        Request request;
+        while ((request = pending.poll()) != null) {
+            try {
+                remoteNamingService.getExecutor(request.lane).execute(request);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    rejected++;
+                    // pass the slot on, otherwise the waiting requests are stuck until a completion which may never come
+                    pending.addAll(release(request));
+                }
+                request.rejection.run();
+            }
+        }
+    }
+
+    private void complete(final Request request) {
+        final List<Request> next;
+        synchronized (this) {
+            completed++;
+            next = release(request);
+        }
+        dispatch(next);
+    }
+
+    /**
+     * Free the slot of a request which is no longer running, and admit the waiting requests which may run now.
+     */
+    private List<Request> release(final Request request) {
+        inFlight--;
+        List<Request> admitted = Collections.emptyList();
+        while (maxInFlight <= 0 || inFlight < maxInFlight) {
+            final Request next = pollByLane();
+            if (next == null) {
+                break;
+            }
+            queued--;
+            inFlight++;
+            if (admitted.isEmpty()) {
+                admitted = new ArrayList<Request>();
+            }
+            admitted.add(next);
+        }
+        return admitted;
+    }
+
+    private Request pollByLane() {
+        for (int i = 0; i < LANES.length; i++) {
+            if (credits == 0) {
+                turn = (turn + 1) % LANES.length;
+                credits = LANES[turn].weight;
+            }
+            final Request request = queues.get(LANES[turn]).poll();
+            if (request != null) {
+                credits--;
+                return request;
+            }
+            // a lane with nothing waiting gives up the rest of its turn
+            credits = 0;
+        }
+        return null;
+    }
+
+    /**
+     * Keep the request run by the current thread in flight after its handler returns, for handlers which complete the
+     * request on another thread, such as operations of an {@link AsyncNamingContext}. The request keeps its slot
+     * until the returned task is run.
+     *
+     * @return The task completing the request, to be run exactly once; running it again has no effect. If the current
+     *         thread is not running a request of a queue the task does nothing
+     */
+    public static Runnable deferCompletion() {
+        final Request request = CURRENT.get();
+        if (request == null) {
+            return NO_COMPLETION;
+        }
+        request.deferred = true;
+        return new Runnable() {
+            private final AtomicBoolean completed = new AtomicBoolean();
+
+            public void run() {
+                if (completed.compareAndSet(false, true)) {
+                    request.complete();
+                }
+            }
+        };
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return The number of requests handed to the executor which have not completed yet
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return The number of requests waiting to be handed to the executor
+     */
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * @param lane The lane
+     * @return The number of requests of a lane waiting to be handed to the executor
+     */
+    public synchronized int getQueued(final RequestLane lane) {
+        return queues.get(lane).size();
+    }
+
+    /**
+     * @return The highest number of requests which have been waiting at the same time
+     */
+    public synchronized int getPeakQueued() {
+        return peakQueued;
+    }
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public String toString() {
+        synchronized (this) {
+            return "ChannelRequestQueue{channel=" + channel + ", inFlight=" + inFlight + ", queued=" + queued
+                    + ", peakQueued=" + peakQueued + ", completed=" + completed + ", rejected=" + rejected + "}";
+        }
+    }
+
+    private final class Request implements Runnable {
+        private final RequestLane lane;
+        private final Runnable task;
+        private final Runnable rejection;
+        /** Set by the handler, on the thread running the request, if it completes the request itself */
+        private boolean deferred;
+
+        private Request(final RequestLane lane, final Runnable task, final Runnable rejection) {
+            this.lane = lane;
+            this.task = task;
+            this.rejection = rejection;
+        }
+
+        public void run() {
+            final Request previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+                if (!deferred) {
+                    complete();
+                }
+            }
+        }
+
+        private void complete() {
+            ChannelRequestQueue.this.complete(this);
+        }
+    }
+}
@@ -0,0 +1,712 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.naming.Binding;
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.ContextNotEmptyException;
+import javax.naming.InvalidNameException;
+import javax.naming.Name;
+import javax.naming.NameAlreadyBoundException;
+import javax.naming.NameClassPair;
+import javax.naming.NameNotFoundException;
+import javax.naming.NameParser;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.NotContextException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingListener;
+import javax.naming.event.ObjectChangeListener;
+
+import org.jboss.logging.Logger;
+
+import static org.jboss.naming.remote.client.ClientUtil.namingEnumeration;
+
+/**
+ * A concurrent in-memory naming context, suitable as the local context of a standalone {@link RemoteNamingService}.
+ * <p/>
+ * The namespace is a tree with one context per node. Each context holds its bindings in its own concurrent map, so
+ * lookups never lock and a change costs the same however many bindings there are. Changes are serialized across the
+ * whole tree, and the context a change applies to is resolved while holding the same lock, so a change can not be
+ * lost to a concurrent {@link #destroySubcontext} of its parent. This also makes {@link #rename} atomic. Listings
+ * iterate a context's map without the lock, as lookups do, so a large listing never holds up changes. A listing sees
+ * every binding which was neither added nor removed while it ran.
+ * <p/>
+ * Batches are applied atomically by holding the lock for the whole batch, and restoring the bindings it changed if
+ * it fails. Such a batch can not change foreign contexts bound into the tree, as those changes could not be undone.
+ * <p/>
+ * Registered {@link NamespaceChangeListener}s and {@link ObjectChangeListener}s are notified once a change has been
+ * made, in the order the changes were made. The events are queued while the change holds the lock, and delivered by
+ * the thread which made the change, or by a thread still delivering the events of an earlier change. Changes made
+ * through foreign contexts bound into the tree are not seen.
+ */
+public class InMemoryContext implements EventContext, AtomicBatchContext {
+    private static final Logger log = Logger.getLogger(InMemoryContext.class);
+
+    private static final NameParser PARSER = new NameParser() {
+        public Name parse(final String name) throws NamingException {
+            return new CompositeName(name);
+        }
+    };
+
+    private static final Object NULL = new Object();
+
+    private final Tree tree;
+    private final Name prefix;
+    private final Hashtable<String, Object> environment;
+    /** The bindings, with {@link #NULL} standing in for null objects */
+    private final Map<String, Object> bindings = new ConcurrentHashMap<String, Object>();
+
+    public InMemoryContext() {
+        this(new Hashtable<String, Object>());
+    }
+
+    public InMemoryContext(final Hashtable<?, ?> environment) {
+        this(new Tree(), new CompositeName(), environment);
+    }
+
+    private InMemoryContext(final Tree tree, final Name prefix, final Hashtable<?, ?> environment) {
+        this.tree = tree;
+        this.prefix = prefix;
+        this.environment = new Hashtable<String, Object>();
+        for (Map.Entry<?, ?> entry : environment.entrySet()) {
+            this.environment.put(entry.getKey().toString(), entry.getValue());
+        }
+    }
+
+    public Object lookup(final Name name) throws NamingException {
+        if (name.isEmpty()) {
+            return this;
+        }
+        final Object value = bindings.get(name.get(0));
+        if (value == null) {
+            throw nameNotFound(name, 0);
+        }
+        if (name.size() == 1) {
+            return unwrap(value);
+        }
+        if (!(value instanceof Context)) {
+            throw notContext(name, 0);
+        }
+        return ((Context) value).lookup(name.getSuffix(1));
+    }
+
+    public Object lookup(final String name) throws NamingException {
+        return lookup(parse(name));
+    }
+
+    public void bind(final Name name, final Object object) throws NamingException {
+        final Parent parent;
+        synchronized (tree) {
+            parent = parent(name);
+            if (parent.context != null) {
+                if (parent.context.bindings.containsKey(parent.atom)) {
+                    throw new NameAlreadyBoundException(absolute(name).toString());
+                }
+                parent.context.put(parent.atom, wrap(object));
+                tree.fire(NamingEvent.OBJECT_ADDED, absolute(name), new Binding(parent.atom, object), null, null);
+            }
+        }
+        if (parent.context == null) {
+            parent.foreign.bind(parent.remaining, object);
+            return;
+        }
+        tree.deliver();
+    }
+
+    public void bind(final String name, final Object object) throws NamingException {
+        bind(parse(name), object);
+    }
+
+    public void rebind(final Name name, final Object object) throws NamingException {
+        final Parent parent;
+        synchronized (tree) {
+            parent = parent(name);
+            if (parent.context != null) {
+                final Object previous = parent.context.put(parent.atom, wrap(object));
+                if (previous != null) {
+                    tree.fire(NamingEvent.OBJECT_CHANGED, absolute(name), new Binding(parent.atom, object), absolute(name), new Binding(parent.atom, unwrap(previous)));
+                } else {
+                    tree.fire(NamingEvent.OBJECT_ADDED, absolute(name), new Binding(parent.atom, object), null, null);
+                }
+            }
+        }
+        if (parent.context == null) {
+            parent.foreign.rebind(parent.remaining, object);
+            return;
+        }
+        tree.deliver();
+    }
+
+    public void rebind(final String name, final Object object) throws NamingException {
+        rebind(parse(name), object);
+    }
+
+    public void unbind(final Name name) throws NamingException {
+        final Parent parent;
+        synchronized (tree) {
+            parent = parent(name);
+            if (parent.context != null) {
+                final Object previous = parent.context.remove(parent.atom);
+                if (previous == null) {
+                    throw nameNotFound(name, name.size() - 1);
+                }
+                tree.fire(NamingEvent.OBJECT_REMOVED, null, null, absolute(name), new Binding(parent.atom, unwrap(previous)));
+            }
+        }
+        if (parent.context == null) {
+            parent.foreign.unbind(parent.remaining);
+            return;
+        }
+        tree.deliver();
+    }
+
+    public void unbind(final String name) throws NamingException {
+        unbind(parse(name));
+    }
+
+    public void rename(final Name oldName, final Name newName) throws NamingException {
+        final Parent source;
+        final Parent target;
+        synchronized (tree) {
+            source = parent(oldName);
+            target = parent(newName);
+            if (source.context != null && target.context != null) {
+                final Object value = source.context.bindings.get(source.atom);
+                if (value == null) {
+                    throw nameNotFound(oldName, oldName.size() - 1);
+                }
+                if (target.context.bindings.containsKey(target.atom)) {
+                    throw new NameAlreadyBoundException(absolute(newName).toString());
+                }
+                source.context.remove(source.atom);
+                target.context.put(target.atom, value);
+                tree.fire(NamingEvent.OBJECT_RENAMED, absolute(newName), new Binding(target.atom, unwrap(value)), absolute(oldName), new Binding(source.atom, unwrap(value)));
+            }
+        }
+        if (source.context == null || target.context == null) {
+            if (source.foreign != null && source.foreign == target.foreign) {
+                source.foreign.rename(source.remaining, target.remaining);
+                return;
+            }
+            throw new NamingException("Can not rename " + oldName + " to " + newName + " across contexts");
+        }
+        tree.deliver();
+    }
+
+    public void rename(final String oldName, final String newName) throws NamingException {
+        rename(parse(oldName), parse(newName));
+    }
+
+    public NamingEnumeration<NameClassPair> list(final Name name) throws NamingException {
+        final InMemoryContext context = context(name);
+        if (context == null) {
+            return ((Context) lookup(name)).list("");
+        }
+        final List<NameClassPair> results = new ArrayList<NameClassPair>();
+        for (Map.Entry<String, Object> entry : context.bindings.entrySet()) {
+            final Object value = unwrap(entry.getValue());
+            results.add(new NameClassPair(entry.getKey(), value == null ? null : value.getClass().getName()));
+        }
+        return namingEnumeration(results);
+    }
+
+    public NamingEnumeration<NameClassPair> list(final String name) throws NamingException {
+        return list(parse(name));
+    }
+
+    public NamingEnumeration<Binding> listBindings(final Name name) throws NamingException {
+        final InMemoryContext context = context(name);
+        if (context == null) {
+            return ((Context) lookup(name)).listBindings("");
+        }
+        final List<Binding> results = new ArrayList<Binding>();
+        for (Map.Entry<String, Object> entry : context.bindings.entrySet()) {
+            results.add(new Binding(entry.getKey(), unwrap(entry.getValue())));
+        }
+        return namingEnumeration(results);
+    }
+
+    public NamingEnumeration<Binding> listBindings(final String name) throws NamingException {
+        return listBindings(parse(name));
+    }
+
+    public void destroySubcontext(final Name name) throws NamingException {
+        final Parent parent;
+        synchronized (tree) {
+            parent = parent(name);
+            if (parent.context != null) {
+                final Object previous = parent.context.bindings.get(parent.atom);
+                if (previous == null) {
+                    return;
+                }
+                if (!(previous instanceof Context)) {
+                    throw notContext(name, name.size() - 1);
+                }
+                if (previous instanceof InMemoryContext && !((InMemoryContext) previous).bindings.isEmpty()) {
+                    throw new ContextNotEmptyException(absolute(name).toString());
+                }
+                parent.context.remove(parent.atom);
+                tree.fire(NamingEvent.OBJECT_REMOVED, null, null, absolute(name), new Binding(parent.atom, previous));
+            }
+        }
+        if (parent.context == null) {
+            parent.foreign.destroySubcontext(parent.remaining);
+            return;
+        }
+        tree.deliver();
+    }
+
+    public void destroySubcontext(final String name) throws NamingException {
+        destroySubcontext(parse(name));
+    }
+
+    public Context createSubcontext(final Name name) throws NamingException {
+        final Parent parent;
+        final InMemoryContext context;
+        synchronized (tree) {
+            parent = parent(name);
+            if (parent.context == null) {
+                context = null;
+            } else {
+                if (parent.context.bindings.containsKey(parent.atom)) {
+                    throw new NameAlreadyBoundException(absolute(name).toString());
+                }
+                context = new InMemoryContext(tree, absolute(name), environment);
+                parent.context.put(parent.atom, context);
+                tree.fire(NamingEvent.OBJECT_ADDED, absolute(name), new Binding(parent.atom, context), null, null);
+            }
+        }
+        if (parent.context == null) {
+            return parent.foreign.createSubcontext(parent.remaining);
+        }
+        tree.deliver();
+        return context;
+    }
+
+    public Context createSubcontext(final String name) throws NamingException {
+        return createSubcontext(parse(name));
+    }
+
+    public Object lookupLink(final Name name) throws NamingException {
+        return lookup(name);
+    }
+
+    public Object lookupLink(final String name) throws NamingException {
+        return lookupLink(parse(name));
+    }
+
+    public NameParser getNameParser(final Name name) throws NamingException {
+        return PARSER;
+    }
+
+    public NameParser getNameParser(final String name) throws NamingException {
+        return PARSER;
+    }
+
+    public Name composeName(final Name name, final Name prefix) throws NamingException {
+        final Name result = (Name) prefix.clone();
+        result.addAll(name);
+        return result;
+    }
+
+    public String composeName(final String name, final String prefix) throws NamingException {
+        return composeName(parse(name), parse(prefix)).toString();
+    }
+
+    public Object addToEnvironment(final String propName, final Object propVal) throws NamingException {
+        return environment.put(propName, propVal);
+    }
+
+    public Object removeFromEnvironment(final String propName) throws NamingException {
+        return environment.remove(propName);
+    }
+
+    public Hashtable<?, ?> getEnvironment() throws NamingException {
+        return (Hashtable<?, ?>) environment.clone();
+    }
+
+    public void close() throws NamingException {
+    }
+
+    public String getNameInNamespace() throws NamingException {
+        return prefix.toString();
+    }
+
+    public void addNamingListener(final Name target, final int scope, final NamingListener listener) throws NamingException {
+        tree.listeners.add(new Registration(this, absolute(target), scope, listener));
+    }
+
+    public void addNamingListener(final String target, final int scope, final NamingListener listener) throws NamingException {
+        addNamingListener(parse(target), scope, listener);
+    }
+
+    public void removeNamingListener(final NamingListener listener) throws NamingException {
+        for (Registration registration : tree.listeners) {
+            if (registration.listener == listener) {
+                tree.listeners.remove(registration);
+            }
+        }
+    }
+
+    public boolean targetMustExist() throws NamingException {
+        return false;
+    }
+
+    /**
+     * Apply a batch holding the tree lock. If it fails, the bindings it changed are restored and no events are fired
+     * for them, otherwise the events are queued before the lock is released and delivered after.
+     */
+    public void applyAtomically(final Batch batch) throws NamingException {
+        final Journal journal;
+        synchronized (tree) {
+            if (tree.journal != null) {
+                // nested in a batch this thread is applying already, which undoes it all if it fails
+                batch.apply(this);
+                return;
+            }
+            journal = new Journal();
+            tree.journal = journal;
+            boolean applied = false;
+            try {
+                batch.apply(this);
+                applied = true;
+            } finally {
+                tree.journal = null;
+                if (applied) {
+                    tree.events.addAll(journal.events);
+                } else {
+                    journal.undo();
+                }
+            }
+        }
+        tree.deliver();
+    }
+
+    /**
+     * Change a binding. Has to be called holding the tree lock.
+     *
+     * @return The previous value, or null if the name was not bound
+     */
+    private Object put(final String atom, final Object value) {
+        final Object previous = bindings.put(atom, value);
+        if (tree.journal != null) {
+            tree.journal.changes.add(new Change(this, atom, previous));
+        }
+        return previous;
+    }
+
+    /**
+     * Remove a binding. Has to be called holding the tree lock.
+     *
+     * @return The previous value, or null if the name was not bound
+     */
+    private Object remove(final String atom) {
+        final Object previous = bindings.remove(atom);
+        if (tree.journal != null && previous != null) {
+            tree.journal.changes.add(new Change(this, atom, previous));
+        }
+        return previous;
+    }
+
+    private static Object wrap(final Object object) {
+        return object == null ? NULL : object;
+    }
+
+    private static Object unwrap(final Object value) {
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * Resolve the context holding the last component of a name. Has to be called holding the tree lock, so the context
+     * can not be unbound before the caller has changed it. Resolution stops at a context which is not part of this
+     * tree, the caller has to continue there once it has released the lock.
+     */
+    private Parent parent(final Name name) throws NamingException {
+        if (name.isEmpty()) {
+            throw new InvalidNameException("An empty name can not be bound");
+        }
+        InMemoryContext context = this;
+        for (int i = 0; i < name.size() - 1; i++) {
+            final Object value = context.bindings.get(name.get(i));
+            if (value == null) {
+                throw nameNotFound(name, i);
+            }
+            if (value instanceof InMemoryContext && ((InMemoryContext) value).tree == tree) {
+                context = (InMemoryContext) value;
+            } else if (value instanceof Context) {
+                if (tree.journal != null) {
+                    throw new OperationNotSupportedException("Changes to " + absolute(name.getPrefix(i + 1)) + " can not be undone, it is not part of the in-memory tree");
+                }
+                return new Parent(null, null, (Context) value, name.getSuffix(i + 1));
+            } else {
+                throw notContext(name, i);
+            }
+        }
+        return new Parent(context, name.get(name.size() - 1), null, null);
+    }
+
+    /**
+     * Get the in-memory context a name refers to, or null if it is a foreign context.
+     */
+    private InMemoryContext context(final Name name) throws NamingException {
+        final Object context = lookup(name);
+        if (!(context instanceof Context)) {
+            throw notContext(name, name.size() - 1);
+        }
+        return context instanceof InMemoryContext ? (InMemoryContext) context : null;
+    }
+
+    private Name absolute(final Name name) throws NamingException {
+        return composeName(name, prefix);
+    }
+
+    private Name parse(final String name) throws NamingException {
+        return PARSER.parse(name);
+    }
+
+    private NameNotFoundException nameNotFound(final Name name, final int index) throws NamingException {
+        final NameNotFoundException exception = new NameNotFoundException(absolute(name.getPrefix(index + 1)).toString());
+        exception.setResolvedName(absolute(name.getPrefix(index)));
+        exception.setRemainingName(name.getSuffix(index));
+        return exception;
+    }
+
+    private NotContextException notContext(final Name name, final int index) throws NamingException {
+        final NotContextException exception = new NotContextException(absolute(name.getPrefix(index + 1)).toString());
+        exception.setResolvedName(absolute(name.getPrefix(index)));
+        exception.setRemainingName(name.getSuffix(index));
+        return exception;
+    }
+
+    /**
+     * The context holding the last component of a name: either a context of this tree and the component, or a foreign
+     * context and the rest of the name relative to it.
+     */
+    private static final class Parent {
+        private final InMemoryContext context;
+        private final String atom;
+        private final Context foreign;
+        private final Name remaining;
+
+        private Parent(final InMemoryContext context, final String atom, final Context foreign, final Name remaining) {
+            this.context = context;
+            this.atom = atom;
+            this.foreign = foreign;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * The state shared by all contexts of one namespace, its monitor serializes changes.
+     */
+    private static final class Tree {
+        private final List<Registration> listeners = new CopyOnWriteArrayList<Registration>();
+        /** The changes of the batch being applied, only set while the applying thread holds the monitor */
+        private Journal journal;
+        /** The events not delivered yet, in the order of their changes, guarded by the monitor */
+        private final Queue<Event> events = new ArrayDeque<Event>();
+        /** Whether a thread is delivering events, guarded by the monitor */
+        private boolean delivering;
+
+        /**
+         * Queue the event of a change, or keep it with the batch being applied. Has to be called holding the monitor,
+         * while making the change.
+         */
+        void fire(final int type, final Name newName, final Binding newBinding, final Name oldName, final Binding oldBinding) {
+            final Event event = new Event(type, newName, newBinding, oldName, oldBinding);
+            if (journal != null) {
+                journal.events.add(event);
+            } else {
+                events.add(event);
+            }
+        }
+
+        /**
+         * Deliver the queued events, unless another thread is delivering them already. Listeners are never called
+         * holding the monitor, a thread which still holds it leaves the events to the thread releasing it.
+         */
+        void deliver() {
+            if (Thread.holdsLock(this)) {
+                return;
+            }
+            synchronized (this) {
+                if (delivering || events.isEmpty()) {
+                    return;
+                }
+                delivering = true;
+            }
+            boolean drained = false;
+            try {
+                Event event;
+                while ((event = next()) != null) {
+                    for (Registration registration : listeners) {
+                        if (registration.matches(event.newName) || registration.matches(event.oldName)) {
+                            registration.notify(event.type, event.newName, event.newBinding, event.oldName, event.oldBinding);
+                        }
+                    }
+                }
+                drained = true;
+            } finally {
+                if (!drained) {
+                    synchronized (this) {
+                        delivering = false;
+                    }
+                }
+            }
+        }
+
+        private synchronized Event next() {
+            final Event event = events.poll();
+            if (event == null) {
+                delivering = false;
+            }
+            return event;
+        }
+    }
+
+    /**
+     * The changes made by a batch, to undo them if it fails, and the events to fire once it succeeded.
+     */
+    private static final class Journal {
+        private final List<Change> changes = new ArrayList<Change>();
+        private final List<Event> events = new ArrayList<Event>();
+
+        void undo() {
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                final Change change = changes.get(i);
+                if (change.previous == null) {
+                    change.context.bindings.remove(change.atom);
+                } else {
+                    change.context.bindings.put(change.atom, change.previous);
+                }
+            }
+        }
+    }
+
+    private static final class Change {
+        private final InMemoryContext context;
+        private final String atom;
+        private final Object previous;
+
+        private Change(final InMemoryContext context, final String atom, final Object previous) {
+            this.context = context;
+            this.atom = atom;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Event {
+        private final int type;
+        private final Name newName;
+        private final Binding newBinding;
+        private final Name oldName;
+        private final Binding oldBinding;
+
+        private Event(final int type, final Name newName, final Binding newBinding, final Name oldName, final Binding oldBinding) {
+            this.type = type;
+            this.newName = newName;
+            this.newBinding = newBinding;
+            this.oldName = oldName;
+            this.oldBinding = oldBinding;
+        }
+    }
+
+    private static final class Registration {
+        private final InMemoryContext source;
+        private final Name target;
+        private final int scope;
+        private final NamingListener listener;
+
+        private Registration(final InMemoryContext source, final Name target, final int scope, final NamingListener listener) {
+            this.source = source;
+            this.target = target;
+            this.scope = scope;
+            this.listener = listener;
+        }
+
+        boolean matches(final Name name) {
+            if (name == null) {
+                return false;
+            }
+            switch (scope) {
+                case OBJECT_SCOPE:
+                    return name.equals(target);
+                case ONELEVEL_SCOPE:
+                    return name.size() == target.size() + 1 && name.startsWith(target);
+                default:
+                    return name.startsWith(target);
+            }
+        }
+
+        void notify(final int type, final Name newName, final Binding newBinding, final Name oldName, final Binding oldBinding) {
+            final NamingEvent event = new NamingEvent(source, type, relative(newName, newBinding), relative(oldName, oldBinding), null);
+            try {
+                if (type == NamingEvent.OBJECT_CHANGED) {
+                    if (listener instanceof ObjectChangeListener) {
+                        ((ObjectChangeListener) listener).objectChanged(event);
+                    }
+                } else if (listener instanceof NamespaceChangeListener) {
+                    final NamespaceChangeListener namespaceListener = (NamespaceChangeListener) listener;
+                    switch (type) {
+                        case NamingEvent.OBJECT_ADDED:
+                            namespaceListener.objectAdded(event);
+                            break;
+                        case NamingEvent.OBJECT_REMOVED:
+                            namespaceListener.objectRemoved(event);
+                            break;
+                        case NamingEvent.OBJECT_RENAMED:
+                            namespaceListener.objectRenamed(event);
+                            break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warnf(e, "Naming listener %s failed to handle %s", listener, event);
+            }
+        }
+
+        /**
+         * Binding names are relative to the context the listener was registered with.
+         */
+        private Binding relative(final Name name, final Binding binding) {
+            if (binding == null) {
+                return null;
+            }
+            final Name relativeName = name.startsWith(source.prefix) ? name.getSuffix(source.prefix.size()) : name;
+            return new Binding(relativeName.toString(), binding.getClassName(), binding.getObject());
+        }
+    }
+}
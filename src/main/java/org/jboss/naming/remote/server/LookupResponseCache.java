@@ -0,0 +1,361 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.Binding;
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingExceptionEvent;
+import javax.naming.event.ObjectChangeListener;
+
+import org.jboss.logging.Logger;
+
+/**
+ * An opt-in cache of already marshalled lookup responses, keyed by the absolute name that was looked up.
+ * <p/>
+ * The cache is bounded by the total size of the cached responses. Entries are evicted in approximately least
+ * recently used order, by a clock sweep which skips the entries that were hit since it last passed them.
+ * Entries are invalidated when a bind, rebind, unbind, rename or subcontext operation is performed through the
+ * {@link RemoteNamingService}. Changes made directly to the local context are only seen if the local context is an
+ * {@link EventContext}, or once the time to live of an entry has elapsed. A local context which is not an
+ * {@link EventContext} should therefore only be used with a time to live.
+ * <p/>
+ * Reads take no lock. Changes to the cache are serialized, and find the entries below an invalidated name through an
+ * index of the cached names by their parent, rather than by scanning every entry.
+ */
+public class LookupResponseCache {
+    private static final Logger log = Logger.getLogger(LookupResponseCache.class);
+
+    private final long maxBytes;
+    private final long timeToLiveMillis;
+
+    private final ConcurrentMap<Name, Entry> entries = new ConcurrentHashMap<Name, Entry>();
+    /**
+     * The names directly below each name which is cached or has cached names below it, guarded by this cache.
+     */
+    private final Map<Name, Set<Name>> children = new HashMap<Name, Set<Name>>();
+    /** The position of the eviction sweep, guarded by this cache */
+    private Iterator<Map.Entry<Name, Entry>> hand;
+    private volatile long currentBytes;
+    /**
+     * Incremented on every invalidation, so that a response computed before an invalidation is not cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private EventContext eventContext;
+    private final InvalidationListener listener = new InvalidationListener();
+
+    /**
+     * @param maxBytes   The maximum total size of the cached responses
+     * @param timeToLive The time an entry may be served for, zero or less to keep entries until they are invalidated
+     * @param unit       The unit of the time to live
+     */
+    public LookupResponseCache(final long maxBytes, final long timeToLive, final TimeUnit unit) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be greater than zero");
+        }
+        this.maxBytes = maxBytes;
+        this.timeToLiveMillis = timeToLive > 0 ? unit.toMillis(timeToLive) : 0;
+    }
+
+    void start(final Context localContext) {
+        if (localContext instanceof EventContext) {
+            try {
+                ((EventContext) localContext).addNamingListener(new CompositeName(), EventContext.SUBTREE_SCOPE, listener);
+                eventContext = (EventContext) localContext;
+            } catch (NamingException e) {
+                log.warn("Could not register for change notifications, cached lookup responses will only be invalidated by operations of remote clients", e);
+            }
+        } else if (timeToLiveMillis == 0) {
+            log.debug("Local context does not support change notifications and no time to live is set, changes made directly to it will not be seen by remote lookups");
+        }
+    }
+
+    void stop() {
+        if (eventContext != null) {
+            try {
+                eventContext.removeNamingListener(listener);
+            } catch (NamingException e) {
+                log.debug("Failed to remove naming listener", e);
+            }
+            eventContext = null;
+        }
+        clear();
+    }
+
+    /**
+     * Get the cached response for a name.
+     *
+     * @param name The absolute name
+     * @return The marshalled response, or null if there is no valid entry
+     */
+    public byte[] get(final Name name) {
+        final Entry entry = entries.get(name);
+        if (entry == null || (entry.expires != 0 && entry.expires < System.currentTimeMillis())) {
+            // an expired entry is replaced by the next put, or evicted
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.referenced = true;
+        hits.incrementAndGet();
+        return entry.response;
+    }
+
+    /**
+     * Get the converted form of a cached response, kept for channels which can not use the response as it is.
+     *
+     * @param name     The absolute name
+     * @param response The response returned by {@link #get}
+     * @return The converted response, or null if none was kept for this response
+     */
+    public byte[] getConverted(final Name name, final byte[] response) {
+        final Entry entry = entries.get(name);
+        return entry == null || entry.response != response ? null : entry.converted;
+    }
+
+    /**
+     * Keep the converted form of a cached response, unless the entry was replaced or removed in the meantime.
+     *
+     * @param name      The absolute name
+     * @param response  The response returned by {@link #get}
+     * @param converted The converted response
+     */
+    public synchronized void putConverted(final Name name, final byte[] response, final byte[] converted) {
+        final Entry entry = entries.get(name);
+        if (entry == null || entry.response != response || entry.converted != null) {
+            return;
+        }
+        entry.converted = converted;
+        currentBytes += converted.length;
+        evict(name);
+    }
+
+    /**
+     * Get the current generation, this has to be read before the lookup whose response is to be cached is performed.
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a response, unless an invalidation happened since the given generation was read.
+     *
+     * @param name       The absolute name
+     * @param response   The marshalled response
+     * @param generation The generation read before the lookup was performed
+     */
+    public synchronized void put(final Name name, final byte[] response, final long generation) {
+        if (generation != this.generation.get() || response.length > maxBytes) {
+            return;
+        }
+        remove(name);
+        final long expires = timeToLiveMillis == 0 ? 0 : System.currentTimeMillis() + timeToLiveMillis;
+        entries.put(name, new Entry(response, expires));
+        currentBytes += response.length;
+        Name child = name;
+        while (!child.isEmpty()) {
+            final Name parent = child.getPrefix(child.size() - 1);
+            Set<Name> below = children.get(parent);
+            if (below == null) {
+                below = new HashSet<Name>();
+                children.put(parent, below);
+            }
+            if (!below.add(child)) {
+                // the parent is linked to its own parent already
+                break;
+            }
+            child = parent;
+        }
+        evict(name);
+    }
+
+    /**
+     * Evict entries until the cache fits its size again.
+     *
+     * @param added The name whose entry just grew the cache, which is only evicted if nothing else is left
+     */
+    private void evict(final Name added) {
+        // two full turns at most, the first one may only clear the referenced flags
+        int remaining = 2 * entries.size() + 1;
+        while (currentBytes > maxBytes && remaining-- > 0) {
+            if (hand == null || !hand.hasNext()) {
+                hand = entries.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    break;
+                }
+            }
+            final Map.Entry<Name, Entry> next = hand.next();
+            if (next.getValue().referenced || (next.getKey().equals(added) && entries.size() > 1)) {
+                next.getValue().referenced = false;
+            } else {
+                remove(next.getKey());
+                prune(next.getKey());
+            }
+        }
+    }
+
+    /**
+     * Invalidate the entry for a name, and every entry below it.
+     *
+     * @param name The absolute name which changed
+     */
+    public synchronized void invalidate(final Name name) {
+        generation.incrementAndGet();
+        remove(name);
+        final Queue<Name> pending = new ArrayDeque<Name>();
+        pending.add(name);
+        Name next;
+        while ((next = pending.poll()) != null) {
+            final Set<Name> below = children.remove(next);
+            if (below != null) {
+                for (Name child : below) {
+                    remove(child);
+                    pending.add(child);
+                }
+            }
+        }
+        prune(name);
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        children.clear();
+        hand = null;
+        currentBytes = 0;
+    }
+
+    public long getSize() {
+        return currentBytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private void remove(final Name name) {
+        final Entry removed = entries.remove(name);
+        if (removed != null) {
+            currentBytes -= removed.size();
+        }
+    }
+
+    /**
+     * Unlink a name which is no longer cached from the index, along with its ancestors which are left empty.
+     */
+    private void prune(Name name) {
+        while (!name.isEmpty() && !entries.containsKey(name) && !children.containsKey(name)) {
+            final Name parent = name.getPrefix(name.size() - 1);
+            final Set<Name> below = children.get(parent);
+            if (below != null) {
+                below.remove(name);
+                if (below.isEmpty()) {
+                    children.remove(parent);
+                }
+            }
+            name = parent;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] response;
+        private final long expires;
+        private volatile byte[] converted;
+        /** Set by every hit, and cleared when the eviction sweep passes the entry */
+        private volatile boolean referenced;
+
+        private Entry(final byte[] response, final long expires) {
+            this.response = response;
+            this.expires = expires;
+        }
+
+        private long size() {
+            final byte[] converted = this.converted;
+            return converted == null ? response.length : response.length + converted.length;
+        }
+    }
+
+    private class InvalidationListener implements NamespaceChangeListener, ObjectChangeListener {
+
+        public void objectAdded(final NamingEvent event) {
+            invalidate(event.getNewBinding());
+        }
+
+        public void objectRemoved(final NamingEvent event) {
+            invalidate(event.getOldBinding());
+        }
+
+        public void objectRenamed(final NamingEvent event) {
+            invalidate(event.getOldBinding());
+            invalidate(event.getNewBinding());
+        }
+
+        public void objectChanged(final NamingEvent event) {
+            invalidate(event.getNewBinding());
+        }
+
+        public void namingExceptionThrown(final NamingExceptionEvent event) {
+            // the listener may no longer be registered, so nothing cached can be trusted from now on
+            log.warn("Change notifications failed, clearing the lookup response cache", event.getException());
+            clear();
+        }
+
+        private void invalidate(final Binding binding) {
+            if (binding == null) {
+                clear();
+                return;
+            }
+            try {
+                LookupResponseCache.this.invalidate(new CompositeName(binding.getName()));
+            } catch (NamingException e) {
+                clear();
+            }
+        }
+    }
+}
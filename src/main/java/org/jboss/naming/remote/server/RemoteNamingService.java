@@ -25,13 +25,23 @@ package org.jboss.naming.remote.server;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.Context;
 
 import org.jboss.logging.Logger;
 import org.jboss.naming.remote.Constants;
 import org.jboss.naming.remote.protocol.CancellableDataOutputStream;
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
+import org.jboss.naming.remote.protocol.MarshallingStrategy;
 import org.jboss.naming.remote.protocol.Versions;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.CloseHandler;
@@ -55,6 +65,16 @@ public class RemoteNamingService {
 
     private final Executor executor;
 
+    private volatile int capabilities = Capabilities.SUPPORTED;
+    private volatile LookupResponseCache lookupResponseCache;
+    private volatile int maxInFlightPerChannel;
+    private volatile int maxQueuedPerChannel;
+    private volatile long inlineBudgetNanos;
+    private volatile long frameWindowNanos;
+    private volatile int maxFrameSize = 16;
+    private final Map<RequestLane, Executor> laneExecutors = Collections.synchronizedMap(new EnumMap<RequestLane, Executor>(RequestLane.class));
+    private final ConcurrentMap<Channel, ChannelRequestQueue> requestQueues = new ConcurrentHashMap<Channel, ChannelRequestQueue>();
+
     public RemoteNamingService(final Context localContext, final Executor executor) {
         this(localContext, executor, DefaultRemoteNamingServerLogger.INSTANCE);
     }
@@ -66,11 +86,19 @@ public class RemoteNamingService {
     }
 
     public void start(final Endpoint endpoint) throws IOException {
+        final LookupResponseCache lookupResponseCache = this.lookupResponseCache;
+        if (lookupResponseCache != null) {
+            lookupResponseCache.start(localContext);
+        }
         registration = endpoint.registerService(Constants.CHANNEL_NAME, new ChannelOpenListener(), OptionMap.EMPTY);
     }
 
     public void stop() throws IOException {
         registration.close();
+        final LookupResponseCache lookupResponseCache = this.lookupResponseCache;
+        if (lookupResponseCache != null) {
+            lookupResponseCache.stop();
+        }
     }
 
     private class ChannelOpenListener implements OpenListener {
@@ -97,6 +125,8 @@ public class RemoteNamingService {
             byte[] versions = Versions.getSupportedVersions();
             dos.write(versions.length);
             dos.write(versions);
+            Capabilities.write(dos, capabilities);
+            MarshallingStrategies.writeOffer(dos, MarshallingStrategies.getNames());
         } catch (IOException e) {
             dos.cancel();
             throw e;
@@ -116,6 +146,12 @@ public class RemoteNamingService {
                 }
                 byte version = dis.readByte();
                 log.debugf("Chosen version 0x0%d", version);
+                final Capabilities negotiated = Capabilities.of(Capabilities.read(dis) & capabilities);
+                negotiated.attachTo(channel);
+                log.debugf("Negotiated capabilities %s", negotiated);
+                final MarshallingStrategy strategy = MarshallingStrategies.readChoice(dis);
+                MarshallingStrategies.attach(channel, strategy);
+                log.debugf("Negotiated marshalling strategy %s", strategy.getName());
 
                 Versions.getRemoteNamingServer(version, channel, RemoteNamingService.this);
             } catch (IOException e) {
@@ -156,8 +192,164 @@ public class RemoteNamingService {
         return executor;
     }
 
+    /**
+     * Get the executor requests of a lane are run on.
+     *
+     * @param lane The lane
+     * @return The executor set for the lane, or the default executor if none was set
+     */
+    public Executor getExecutor(final RequestLane lane) {
+        final Executor laneExecutor = laneExecutors.get(lane);
+        return laneExecutor == null ? executor : laneExecutor;
+    }
+
+    /**
+     * Run the requests of a lane on their own executor, for example to keep lookups responsive while bulk or write
+     * operations are queued on the default executor.
+     *
+     * @param lane     The lane
+     * @param executor The executor, or null to use the default executor
+     */
+    public void setExecutor(final RequestLane lane, final Executor executor) {
+        if (executor == null) {
+            laneExecutors.remove(lane);
+        } else {
+            laneExecutors.put(lane, executor);
+        }
+    }
+
+    /**
+     * Create the queue admitting the requests of a channel to the executor. The queue is discarded once the channel
+     * is closed.
+     *
+     * @param channel The channel
+     * @return The request queue
+     */
+    public ChannelRequestQueue createRequestQueue(final Channel channel) {
+        final ChannelRequestQueue requestQueue = new ChannelRequestQueue(channel, this, maxInFlightPerChannel, maxQueuedPerChannel);
+        requestQueues.put(channel, requestQueue);
+        channel.addCloseHandler(new CloseHandler<Channel>() {
+            public void handleClose(final Channel closed, final IOException exception) {
+                requestQueues.remove(closed);
+            }
+        });
+        return requestQueue;
+    }
+
+    /**
+     * Get the request queues of the open channels, to see which clients keep the executor busy.
+     *
+     * @return The request queues
+     */
+    public Collection<ChannelRequestQueue> getRequestQueues() {
+        return Collections.unmodifiableCollection(requestQueues.values());
+    }
+
     public RemoteNamingServerLogger getLogger() {
         return logger;
     }
-}
 
+    public int getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Set the optional protocol features offered to clients. Only channels opened after this call are affected.
+     *
+     * @param capabilities The {@link Capabilities} flags to offer
+     */
+    public void setCapabilities(final int capabilities) {
+        this.capabilities = capabilities & Capabilities.SUPPORTED;
+    }
+
+    public LookupResponseCache getLookupResponseCache() {
+        return lookupResponseCache;
+    }
+
+    /**
+     * Set the cache used to serve repeated lookups without marshalling the bound object again. Has to be set before
+     * the service is started, lookups are not cached by default.
+     *
+     * @param lookupResponseCache The cache, or null to disable caching
+     */
+    public void setLookupResponseCache(final LookupResponseCache lookupResponseCache) {
+        this.lookupResponseCache = lookupResponseCache;
+    }
+
+    public int getMaxInFlightPerChannel() {
+        return maxInFlightPerChannel;
+    }
+
+    /**
+     * Set the maximum number of requests of a single channel which are handed to the executor at the same time,
+     * further requests wait in the channel's queue. Only channels opened after this call are affected.
+     *
+     * @param maxInFlightPerChannel The limit, zero or less for no limit (the default)
+     */
+    public void setMaxInFlightPerChannel(final int maxInFlightPerChannel) {
+        this.maxInFlightPerChannel = maxInFlightPerChannel;
+    }
+
+    public int getMaxQueuedPerChannel() {
+        return maxQueuedPerChannel;
+    }
+
+    /**
+     * Set the maximum number of requests which may wait in a channel's queue. Requests beyond that are rejected with a
+     * {@link javax.naming.ServiceUnavailableException}, which the client may retry. Only channels opened after this
+     * call are affected.
+     *
+     * @param maxQueuedPerChannel The limit, zero or less for no limit (the default)
+     */
+    public void setMaxQueuedPerChannel(final int maxQueuedPerChannel) {
+        this.maxQueuedPerChannel = maxQueuedPerChannel;
+    }
+
+    public long getInlineBudget(final TimeUnit unit) {
+        return unit.convert(inlineBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Allow cheap requests, such as lookups served from the {@link LookupResponseCache}, to be handled on the thread
+     * which received them instead of being handed to the executor. Anything which would need the local context is
+     * still handed to the executor, and so is the response if the budget is spent or another response is being
+     * written to the channel. Requests are not handled on the receiving thread while a write of the channel is
+     * pending. If handling a request on the receiving thread takes longer than the budget, the following requests of
+     * that channel are handed to the executor for a while.
+     *
+     * @param budget The time a request may take on the receiving thread, zero or less to disable (the default)
+     * @param unit   The unit of the budget
+     */
+    public void setInlineBudget(final long budget, final TimeUnit unit) {
+        this.inlineBudgetNanos = unit.toNanos(budget);
+    }
+
+    public long getFrameWindow(final TimeUnit unit) {
+        return unit.convert(frameWindowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gather the responses written to a channel within a short window into a single frame, for clients which send
+     * many requests at the same time. Each response is held back for up to the window, so this only pays off under
+     * concurrent load. Only channels opened after this call, with clients which understand frames, are affected.
+     *
+     * @param window How long a frame is held open for more responses, zero or less to disable (the default)
+     * @param unit   The unit of the window
+     */
+    public void setFrameWindow(final long window, final TimeUnit unit) {
+        this.frameWindowNanos = unit.toNanos(window);
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * Set the number of responses after which a frame is written without waiting for the rest of the window.
+     *
+     * @param maxFrameSize The number of responses, 16 by default
+     */
+    public void setMaxFrameSize(final int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.naming.remote.server;
+
+/**
+ * The classes of requests which can be scheduled separately by the {@link RemoteNamingService}.
+ * <p/>
+ * Each lane may be given its own executor, so a burst of bulk or write operations does not delay lookups. Requests
+ * waiting in a channel's queue are admitted by weighted round robin: each lane in turn may admit up to its weight in
+ * requests, so lookups are preferred but never starve the other lanes.
+ */
+public enum RequestLane {
+    /**
+     * Lookups, which are latency critical.
+     */
+    LOOKUP(4),
+    /**
+     * Listing the names or bindings of a context.
+     */
+    LIST(1),
+    /**
+     * Operations which change the namespace.
+     */
+    WRITE(1);
+
+    /**
+     * The number of waiting requests of the lane admitted in a row before the next lane's turn.
+     */
+    final int weight;
+
+    RequestLane(final int weight) {
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.server;
+
+import java.util.List;
+
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingException;
+
+/**
+ * An optional interface for local contexts which keep an index of their names.
+ * <p/>
+ * If the context given to the {@link RemoteNamingService} implements this interface, searches are answered by it
+ * instead of by listing every context of the subtree.
+ */
+public interface SearchableContext {
+
+    /**
+     * Find the names below a context matching a pattern. The pattern is matched against the name relative to the
+     * root, with the components separated by '/'. In the pattern '*' matches any characters within a component,
+     * '**' any characters including separators, and '?' a single character other than a separator.
+     *
+     * @param root     The root of the search
+     * @param pattern  The pattern
+     * @param maxDepth The number of levels below the root to search, zero for all of them
+     * @param limit    The maximum number of matches to return, zero for no limit
+     * @return The matches, with names relative to the root, or null if the search should be done by listing instead
+     * @throws NamingException If the root could not be searched
+     */
+    List<NameClassPair> search(Name root, String pattern, int maxDepth, int limit) throws NamingException;
+}
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.server.AsyncNamingContext;
+import org.jboss.naming.remote.server.ChannelRequestQueue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Lookups and listings against a local context implementing {@link AsyncNamingContext}.
+ */
+public class AsyncNamingContextTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final AsyncMockContext localContext = new AsyncMockContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.getService().setMaxInFlightPerChannel(1);
+        server.start();
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+        localContext.backend.shutdown();
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        localContext.bind("async", "TestValue");
+        assertEquals("TestValue", remoteContext.lookup("async"));
+        localContext.unbind("async");
+        try {
+            remoteContext.lookup("async");
+            fail("Should have thrown NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testListBindings() throws Exception {
+        localContext.bind("first", "One");
+        localContext.bind("second", "Two");
+        final NamingEnumeration<Binding> results = remoteContext.listBindings("");
+        int count = 0;
+        while (results.hasMore()) {
+            results.next();
+            count++;
+        }
+        assertEquals(2, count);
+        localContext.unbind("first");
+        localContext.unbind("second");
+    }
+
+    @Test
+    public void testInFlightUntilCompleted() throws Exception {
+        localContext.bind("slow", "Slow");
+        localContext.bind("fast", "Fast");
+        final ChannelRequestQueue queue = server.getService().getRequestQueues().iterator().next();
+        localContext.gate = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Object> slow = callers.submit(lookup("slow"));
+            awaitEquals(1, queue, false);
+            final Future<Object> fast = callers.submit(lookup("fast"));
+            // the slow lookup still holds the channel's only slot while the context works on it
+            awaitEquals(1, queue, true);
+            assertEquals(1, queue.getInFlight());
+            localContext.gate.countDown();
+            assertEquals("Slow", slow.get(10, TimeUnit.SECONDS));
+            assertEquals("Fast", fast.get(10, TimeUnit.SECONDS));
+        } finally {
+            localContext.gate.countDown();
+            localContext.gate = null;
+            callers.shutdown();
+            localContext.unbind("slow");
+            localContext.unbind("fast");
+        }
+    }
+
+    private static Callable<Object> lookup(final String name) {
+        return new Callable<Object>() {
+            public Object call() throws Exception {
+                return remoteContext.lookup(name);
+            }
+        };
+    }
+
+    private static void awaitEquals(final int expected, final ChannelRequestQueue queue, final boolean queued) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 10000;
+        while ((queued ? queue.getQueued() : queue.getInFlight()) != expected) {
+            if (System.currentTimeMillis() > end) {
+                fail("Timed out waiting for " + queue);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Completes every operation on a separate thread, as a slow backing store would.
+     */
+    private static class AsyncMockContext extends MockContext implements AsyncNamingContext {
+        private final ExecutorService backend = Executors.newSingleThreadExecutor();
+        /** If set, lookups wait for it to open */
+        private volatile CountDownLatch gate;
+
+        public void lookup(final Name name, final Completion<Object> completion) {
+            backend.execute(new Runnable() {
+                public void run() {
+                    try {
+                        final CountDownLatch gate = AsyncMockContext.this.gate;
+                        if (gate != null) {
+                            gate.await();
+                        }
+                        completion.completed(AsyncMockContext.this.lookup(name));
+                    } catch (NamingException e) {
+                        completion.failed(e);
+                    } catch (InterruptedException e) {
+                        completion.failed(new NamingException("Interrupted"));
+                    }
+                }
+            });
+        }
+
+        public void list(final Name name, final Completion<List<NameClassPair>> completion) {
+            backend.execute(new Runnable() {
+                public void run() {
+                    try {
+                        completion.completed(toList(AsyncMockContext.this.list(name)));
+                    } catch (NamingException e) {
+                        completion.failed(e);
+                    }
+                }
+            });
+        }
+
+        public void listBindings(final Name name, final Completion<List<Binding>> completion) {
+            backend.execute(new Runnable() {
+                public void run() {
+                    try {
+                        completion.completed(toList(AsyncMockContext.this.listBindings(name)));
+                    } catch (NamingException e) {
+                        completion.failed(e);
+                    }
+                }
+            });
+        }
+
+        private static <T> List<T> toList(final NamingEnumeration<T> enumeration) throws NamingException {
+            final List<T> results = new ArrayList<T>();
+            while (enumeration.hasMore()) {
+                results.add(enumeration.next());
+            }
+            return results;
+        }
+    }
+}
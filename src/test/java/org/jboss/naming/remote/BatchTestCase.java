@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.NameClassPair;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.SizeLimitExceededException;
+
+import org.jboss.naming.remote.client.BatchOperation;
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.protocol.v1.ProtocolTestUtils;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Batches of writes, against a server which supports atomic batches.
+ */
+public class BatchTestCase {
+    private static final InMemoryContext localContext = new InMemoryContext();
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.start();
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+    }
+
+    private static Context root() throws NamingException {
+        return (Context) remoteContext.lookup("");
+    }
+
+    private static void destroy(final String name) throws NamingException {
+        final NamingEnumeration<NameClassPair> bindings = localContext.list(name);
+        while (bindings.hasMore()) {
+            localContext.unbind(name + "/" + bindings.next().getName());
+        }
+        localContext.destroySubcontext(name);
+    }
+
+    @Test
+    public void testAtomicBatch() throws Exception {
+        localContext.createSubcontext("atomic").bind("existing", "Existing");
+        try {
+            final RemoteContext atomic = (RemoteContext) remoteContext.lookup("atomic");
+            final List<NamingException> results = atomic.batch(Arrays.asList(
+                    BatchOperation.bind(new CompositeName("bound"), "Bound"),
+                    BatchOperation.rebind(new CompositeName("existing"), "Rebound")), true);
+            assertEquals(Arrays.asList(null, null), results);
+            assertEquals("Bound", localContext.lookup("atomic/bound"));
+            assertEquals("Rebound", localContext.lookup("atomic/existing"));
+        } finally {
+            destroy("atomic");
+        }
+    }
+
+    @Test
+    public void testAtomicBatchRolledBack() throws Exception {
+        localContext.createSubcontext("rollback").bind("existing", "Existing");
+        try {
+            final RemoteContext rollback = (RemoteContext) remoteContext.lookup("rollback");
+            try {
+                rollback.batch(Arrays.asList(
+                        BatchOperation.bind(new CompositeName("bound"), "Bound"),
+                        BatchOperation.rebind(new CompositeName("existing"), "Rebound"),
+                        BatchOperation.unbind(new CompositeName("missing"))), true);
+                fail("Should have thrown NameNotFoundException");
+            } catch (NameNotFoundException expected) {
+            }
+            try {
+                localContext.lookup("rollback/bound");
+                fail("Should have thrown NameNotFoundException");
+            } catch (NameNotFoundException expected) {
+            }
+            assertEquals("Existing", localContext.lookup("rollback/existing"));
+        } finally {
+            destroy("rollback");
+        }
+    }
+
+    @Test
+    public void testBatchTooLarge() throws Exception {
+        final List<BatchOperation> operations = new ArrayList<BatchOperation>();
+        for (int i = 0; i <= 1024; i++) {
+            operations.add(BatchOperation.bind(new CompositeName("tooLarge" + i), i));
+        }
+        try {
+            ((RemoteContext) root()).batch(operations, false);
+            fail("Should have thrown SizeLimitExceededException");
+        } catch (SizeLimitExceededException expected) {
+        }
+        assertTrue(ProtocolTestUtils.sendBatch(root(), 1025) instanceof SizeLimitExceededException);
+        assertTrue(ProtocolTestUtils.sendBatch(root(), Integer.MAX_VALUE) instanceof SizeLimitExceededException);
+        try {
+            localContext.lookup("tooLarge0");
+            fail("Should have thrown NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testUnknownOperation() throws Exception {
+        assertTrue(ProtocolTestUtils.sendBatch(root(), 1, (byte) 0x7F) instanceof OperationNotSupportedException);
+        assertNull(ProtocolTestUtils.sendBatch(root(), 0));
+        // the channel is still usable
+        localContext.bind("afterUnknown", "After");
+        try {
+            assertEquals("After", remoteContext.lookup("afterUnknown"));
+        } finally {
+            localContext.unbind("afterUnknown");
+        }
+    }
+}
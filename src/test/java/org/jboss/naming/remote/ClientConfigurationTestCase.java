@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.client.InitialContextFactory;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The client properties file, as cached by the {@link InitialContextFactory}.
+ */
+public class ClientConfigurationTestCase {
+    private static TestNamingServer server;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    private File directory;
+    private ClassLoader previous;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.start();
+        localContext.bind("test", "TestValue");
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        server.stop();
+    }
+
+    @Before
+    public void before() throws Exception {
+        directory = File.createTempFile("naming-client", "");
+        directory.delete();
+        directory.mkdir();
+        previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[] {directory.toURI().toURL()}, previous));
+    }
+
+    @After
+    public void after() {
+        Thread.currentThread().setContextClassLoader(previous);
+        new File(directory, "jboss-naming-client.properties").delete();
+        directory.delete();
+        InitialContextFactory.reloadConfiguration();
+    }
+
+    @Test
+    public void testReloadConfiguration() throws Exception {
+        writeClientProperties(TestNamingServer.PROVIDER_URL);
+        assertEquals("TestValue", lookup("test"));
+
+        // the file is read once per class loader
+        writeClientProperties("remote://localhost:7998");
+        assertEquals("TestValue", lookup("test"));
+
+        InitialContextFactory.reloadConfiguration();
+        try {
+            lookup("test");
+            fail("Expected the changed provider URL to be used");
+        } catch (NamingException expected) {
+        }
+
+        writeClientProperties(TestNamingServer.PROVIDER_URL);
+        InitialContextFactory.reloadConfiguration();
+        assertEquals("TestValue", lookup("test"));
+    }
+
+    private Object lookup(final String name) throws NamingException {
+        final Properties env = new Properties();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, InitialContextFactory.class.getName());
+        final Context context = new InitialContext(env);
+        try {
+            return context.lookup(name);
+        } finally {
+            context.close();
+        }
+    }
+
+    private void writeClientProperties(final String providerUrl) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(Context.PROVIDER_URL, providerUrl);
+        final OutputStream out = new FileOutputStream(new File(directory, "jboss-naming-client.properties"));
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+}
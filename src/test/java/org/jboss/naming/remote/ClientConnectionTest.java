@@ -24,11 +24,14 @@ package org.jboss.naming.remote;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.naming.Binding;
@@ -40,15 +43,20 @@ import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
 import javax.naming.Reference;
 import javax.naming.StringRefAddr;
 import javax.naming.spi.ObjectFactory;
 
 import org.jboss.ejb.client.ContextSelector;
 import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.naming.remote.client.BatchOperation;
 import org.jboss.naming.remote.client.InitialContextFactory;
+import org.jboss.naming.remote.client.NamingPipeline;
 import org.jboss.naming.remote.client.RemoteContext;
 import org.jboss.naming.remote.protocol.IoFutureHelper;
+import org.jboss.naming.remote.protocol.v1.ProtocolTestUtils;
 import org.jboss.naming.remote.server.RemoteNamingService;
 import org.jboss.remoting3.Connection;
 import org.jboss.remoting3.Endpoint;
@@ -79,9 +87,12 @@ import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.xnio.Options.SSL_ENABLED;
@@ -129,6 +140,49 @@ public class ClientConnectionTest {
         localContext.unbind("test");
     }
 
+    @Test
+    public void testLookupLargeObject() throws Exception {
+        // well above the compression threshold
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append("TestValue").append(i);
+        }
+        localContext.bind("test", value.toString());
+        try {
+            assertEquals(value.toString(), remoteContext.lookup("test"));
+        } finally {
+            localContext.unbind("test");
+        }
+    }
+
+    @Test
+    public void testLookupRawValues() throws Exception {
+        localContext.bind("string", "TestValue");
+        localContext.bind("bytes", new byte[] {1, 2, 3});
+        localContext.bind("int", 42);
+        localContext.bind("long", Long.MAX_VALUE);
+        localContext.bind("char", 'x');
+        localContext.bind("boolean", Boolean.TRUE);
+        localContext.bind("double", 1.5d);
+        try {
+            assertEquals("TestValue", remoteContext.lookup("string"));
+            assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) remoteContext.lookup("bytes"));
+            assertEquals(42, remoteContext.lookup("int"));
+            assertEquals(Long.MAX_VALUE, remoteContext.lookup("long"));
+            assertEquals('x', remoteContext.lookup("char"));
+            assertEquals(Boolean.TRUE, remoteContext.lookup("boolean"));
+            assertEquals(1.5d, remoteContext.lookup("double"));
+            final Context root = (Context) remoteContext.lookup("");
+            for (String name : new String[] {"string", "bytes", "int", "long", "char", "boolean", "double"}) {
+                assertTrue(name, ProtocolTestUtils.isSentRaw(root, name));
+            }
+        } finally {
+            for (String name : new String[] {"string", "bytes", "int", "long", "char", "boolean", "double"}) {
+                localContext.unbind(name);
+            }
+        }
+    }
+
     @Test
     public void testLookupNotFound() throws Exception {
         try {
@@ -138,6 +192,24 @@ public class ClientConnectionTest {
         }
     }
 
+    @Test
+    public void testLookupNotFoundErrorCode() throws Exception {
+        final StringBuilder name = new StringBuilder();
+        while (name.length() < 70000) {
+            name.append("missing");
+        }
+        try {
+            remoteContext.lookup(name.toString());
+            fail("Should have thrown NameNotFound");
+        } catch (NameNotFoundException expected) {
+            assertEquals(name.toString(), expected.getExplanation());
+            // rebuilt from the error code rather than unmarshalled, so the server side frames are not there
+            for (StackTraceElement element : expected.getStackTrace()) {
+                assertFalse(element.toString(), element.getClassName().equals(MockContext.class.getName()));
+            }
+        }
+    }
+
     @Test
     public void testLookupContext() throws Exception {
         localContext.createSubcontext("test");
@@ -163,6 +235,46 @@ public class ClientConnectionTest {
         }
     }
 
+    @Test
+    public void testTraverseSubContexts() throws Exception {
+        localContext.createSubcontext("test").createSubcontext("a").createSubcontext("b").bind("nested", "TestValue");
+        try {
+            final Context test = (Context) remoteContext.lookup("test");
+            final Context a = (Context) test.lookup("a");
+            final Context b = (Context) a.lookup("b");
+            assertEquals("test/a/b", b.getNameInNamespace());
+            // each context looked up got its own handle, which resolves names relative to it on the server
+            final int handle = ProtocolTestUtils.getHandle(b);
+            assertTrue(handle >= 0);
+            assertFalse(handle == ProtocolTestUtils.getHandle(a));
+            assertEquals("TestValue", ProtocolTestUtils.lookup(a, handle, "nested"));
+            assertEquals("TestValue", ProtocolTestUtils.lookup(test, ProtocolTestUtils.getHandle(a), "b/nested"));
+            assertEquals("TestValue", b.lookup("nested"));
+            assertEquals("TestValue", a.lookup("b/nested"));
+            assertEquals(remoteContext.list("test/a/b").next().getName(), a.list("b").next().getName());
+            assertEquals(remoteContext.listBindings("test/a/b").next().getName(), test.listBindings("a/b").next().getName());
+
+            b.bind("bound", "BoundValue");
+            assertEquals("BoundValue", localContext.lookup("test/a/b/bound"));
+        } finally {
+            localContext.destroySubcontext("test");
+        }
+    }
+
+    @Test
+    public void testUnknownContextHandle() throws Exception {
+        localContext.createSubcontext("test").bind("nested", "TestValue");
+        try {
+            final Context test = (Context) remoteContext.lookup("test");
+            ProtocolTestUtils.lookup(test, ProtocolTestUtils.getHandle(test) + 1000, "nested");
+            fail("Expected an unknown context handle to be rejected");
+        } catch (NamingException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Unknown context handle"));
+        } finally {
+            localContext.destroySubcontext("test");
+        }
+    }
+
     @Test
     public void testLookupNested() throws Exception {
         localContext.createSubcontext("test").bind("nested", "TestValue");
@@ -187,6 +299,20 @@ public class ClientConnectionTest {
         }
     }
 
+    @Test
+    public void testLookupImmutableReference() throws Exception {
+        final Name name = new CompositeName("test");
+        final Reference reference = new Reference(StringBuilder.class.getName(), new StringRefAddr(RemoteContext.IMMUTABLE_REFERENCE, "true"),
+                MutableObjectFactory.class.getName(), null);
+        try {
+            localContext.bind(name, reference);
+            final Object result = remoteContext.lookup(name);
+            assertSame(result, remoteContext.lookup(name));
+        } finally {
+            localContext.unbind(name);
+        }
+    }
+
     public static class TestObjectFactory implements ObjectFactory {
         @Override
         public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
@@ -194,6 +320,13 @@ public class ClientConnectionTest {
         }
     }
 
+    public static class MutableObjectFactory implements ObjectFactory {
+        @Override
+        public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
+            return new StringBuilder();
+        }
+    }
+
     @Test
     public void testLookupLinkRef() throws Exception {
         try {
@@ -206,6 +339,20 @@ public class ClientConnectionTest {
         }
     }
 
+    @Test
+    public void testLookupLinkRefChain() throws Exception {
+        try {
+            localContext.bind("test", "testValue");
+            localContext.bind("link", new LinkRef("./test"));
+            localContext.bind("outer", new LinkRef("./link"));
+            assertEquals("testValue", remoteContext.lookup("outer"));
+        } finally {
+            localContext.unbind("test");
+            localContext.unbind("link");
+            localContext.unbind("outer");
+        }
+    }
+
     @Test
     public void testBind() throws Exception {
         remoteContext.bind("test", "TestValue");
@@ -362,6 +509,58 @@ public class ClientConnectionTest {
     }
 
 
+    @Test
+    public void testBatch() throws Exception {
+        localContext.createSubcontext("test").bind("existing", "Existing");
+        try {
+            final RemoteContext test = (RemoteContext) remoteContext.lookup("test");
+            final List<NamingException> results = test.batch(Arrays.asList(
+                    BatchOperation.bind(new CompositeName("bound"), "Bound"),
+                    BatchOperation.rebind(new CompositeName("existing"), "Rebound"),
+                    BatchOperation.unbind(new CompositeName("missing"))), false);
+            assertEquals(3, results.size());
+            assertNull(results.get(0));
+            assertNull(results.get(1));
+            assertTrue(results.get(2) instanceof NameNotFoundException);
+            assertEquals("Bound", localContext.lookup("test/bound"));
+            assertEquals("Rebound", localContext.lookup("test/existing"));
+
+            try {
+                test.batch(Arrays.asList(BatchOperation.unbind(new CompositeName("bound"))), true);
+                fail("Should have thrown OperationNotSupportedException");
+            } catch (OperationNotSupportedException expected) {
+            }
+            assertEquals("Bound", localContext.lookup("test/bound"));
+        } finally {
+            localContext.destroySubcontext("test");
+        }
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        localContext.createSubcontext("test");
+        try {
+            final NamingPipeline pipeline = ((RemoteContext) remoteContext.lookup("test")).pipeline();
+            for (int i = 0; i < 100; i++) {
+                pipeline.bind(new CompositeName("value" + i), "Value" + i);
+            }
+            assertEquals(100, pipeline.awaitAll().size());
+            assertEquals("Value42", localContext.lookup("test/value42"));
+
+            final Future<Object> first = pipeline.lookup(new CompositeName("value0"));
+            pipeline.lookup(new CompositeName("missing"));
+            pipeline.lookup(new CompositeName("value99"));
+            try {
+                pipeline.awaitAll();
+                fail("Should have thrown NameNotFound");
+            } catch (NameNotFoundException expected) {
+            }
+            assertEquals("Value0", first.get());
+        } finally {
+            localContext.destroySubcontext("test");
+        }
+    }
+
     @Test
     public void testRename() throws Exception {
         localContext.bind("test", "TestValue1");
@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.LinkRef;
+import javax.naming.Reference;
+
+import org.jboss.naming.remote.client.LookupCache;
+import org.jboss.naming.remote.client.LookupCacheConfiguration;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lookups answered from the client side {@link LookupCache}, filled by the prefetch done when the naming store is created.
+ */
+public class ClientLookupCacheTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.start();
+
+        localContext.createSubcontext("app");
+        localContext.bind("app/first", "First");
+        localContext.createSubcontext("app/nested");
+        localContext.bind("app/nested/second", "Second");
+
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(LookupCacheConfiguration.CACHE_SIZE, "1048576");
+        properties.put(LookupCacheConfiguration.CACHE_TTL, "0");
+        properties.put(LookupCacheConfiguration.CACHE_PREFETCH, "app");
+        remoteContext = server.createInitialContext(properties);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+    }
+
+    @Test
+    public void testPrefetchWithoutLimit() throws Exception {
+        localContext.createSubcontext("unlimited");
+        localContext.bind("unlimited/first", "First");
+        localContext.bind("unlimited/second", "Second");
+        try {
+            final org.jboss.naming.remote.client.RemoteContext unlimited = (org.jboss.naming.remote.client.RemoteContext) remoteContext.lookup("unlimited");
+            // zero entries means no limit
+            assertEquals(2, unlimited.prefetch("", 0, 0));
+            localContext.rebind("unlimited/first", "Changed");
+            assertEquals("First", remoteContext.lookup("unlimited/first"));
+        } finally {
+            localContext.unbind("unlimited/first");
+            localContext.unbind("unlimited/second");
+            localContext.destroySubcontext("unlimited");
+        }
+    }
+
+    @Test
+    public void testPrefetchSkipsReferences() throws Exception {
+        localContext.createSubcontext("refs");
+        localContext.bind("refs/value", "Value");
+        localContext.bind("refs/link", new LinkRef("refs/value"));
+        localContext.bind("refs/reference", new Reference(String.class.getName()));
+        try {
+            final org.jboss.naming.remote.client.RemoteContext refs = (org.jboss.naming.remote.client.RemoteContext) remoteContext.lookup("refs");
+            // a lookup would resolve the link and the reference, so they are not snapshot
+            assertEquals(1, refs.prefetch("", 0, 0));
+            localContext.rebind("refs/link", "Changed");
+            assertEquals("Changed", remoteContext.lookup("refs/link"));
+        } finally {
+            localContext.unbind("refs/value");
+            localContext.unbind("refs/link");
+            localContext.unbind("refs/reference");
+            localContext.destroySubcontext("refs");
+        }
+    }
+
+    @Test
+    public void testPrefetchedLookup() throws Exception {
+        // changed behind the client's back, the prefetched value is still served
+        localContext.rebind("app/first", "Changed");
+        assertEquals("First", remoteContext.lookup("app/first"));
+        assertEquals("Second", ((Context) remoteContext.lookup("app/nested")).lookup("second"));
+
+        // the client's own writes invalidate the cached value
+        remoteContext.rebind("app/first", "Rebound");
+        assertEquals("Rebound", remoteContext.lookup("app/first"));
+        assertEquals("Rebound", remoteContext.lookup("app/first"));
+    }
+
+    @Test
+    public void testConditionalLookup() throws Exception {
+        localContext.bind("versioned", "First");
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(LookupCacheConfiguration.CACHE_SIZE, "1048576");
+        properties.put(LookupCacheConfiguration.CACHE_TTL, "1");
+        final Context context = server.createInitialContext(properties);
+        try {
+            assertEquals("First", context.lookup("versioned"));
+            Thread.sleep(10);
+            // expired, confirmed unchanged by the server
+            assertEquals("First", context.lookup("versioned"));
+            localContext.rebind("versioned", "Second");
+            Thread.sleep(10);
+            assertEquals("Second", context.lookup("versioned"));
+        } finally {
+            context.close();
+            localContext.unbind("versioned");
+        }
+    }
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        final File file = File.createTempFile("lookup-cache", ".bin");
+        try {
+            final LookupCache cache = new LookupCache(16, 0, TimeUnit.SECONDS);
+            cache.put(new CompositeName("a/one"), new byte[] {1, 2, 3}, 1, cache.getGeneration());
+            cache.put(new CompositeName("a/two"), new byte[] {4, 5}, 2, cache.getGeneration());
+            // without a version it could not be revalidated
+            cache.put(new CompositeName("a/three"), new byte[] {6}, cache.getGeneration());
+            cache.store(file);
+
+            final LookupCache loaded = new LookupCache(4, 0, TimeUnit.SECONDS);
+            assertEquals(2, loaded.load(file));
+            // only the most recently used entry fits
+            assertNull(loaded.getVersioned(new CompositeName("a/one")));
+            assertArrayEquals(new byte[] {4, 5}, loaded.getVersioned(new CompositeName("a/two")).getResponse());
+            // not served until the server confirmed it
+            assertNull(loaded.get(new CompositeName("a/two")));
+            loaded.renew(new CompositeName("a/two"), 2, loaded.getGeneration());
+            assertArrayEquals(new byte[] {4, 5}, loaded.get(new CompositeName("a/two")));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testStoredFileIsPrivate() throws Exception {
+        final File directory = File.createTempFile("lookup-cache", ".dir");
+        assertTrue(directory.delete() && directory.mkdir());
+        final File file = new File(directory, "cache.bin");
+        try {
+            final LookupCache cache = new LookupCache(16, 0, TimeUnit.SECONDS);
+            cache.put(new CompositeName("a"), new byte[] {1}, 1, cache.getGeneration());
+            cache.store(file);
+            // replaces the existing file
+            cache.store(file);
+
+            assertArrayEquals(new String[] {"cache.bin"}, directory.list());
+            if (Files.getFileStore(file.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE), Files.getPosixFilePermissions(file.toPath()));
+            }
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testCacheFilePerConnection() throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty(LookupCacheConfiguration.CACHE_SIZE, "1048576");
+        properties.setProperty(LookupCacheConfiguration.CACHE_FILE, "lookup-cache.bin");
+        properties.setProperty(Context.SECURITY_PRINCIPAL, "alice");
+        final LookupCacheConfiguration alice = LookupCacheConfiguration.fromProperties(properties);
+        properties.setProperty(Context.SECURITY_PRINCIPAL, "bob");
+        final LookupCacheConfiguration bob = LookupCacheConfiguration.fromProperties(properties);
+
+        assertEquals(alice.getFile("remote://a:4447"), alice.getFile("remote://a:4447"));
+        assertFalse(alice.getFile("remote://a:4447").equals(alice.getFile("remote://b:4447")));
+        assertFalse(alice.getFile("remote://a:4447").equals(bob.getFile("remote://a:4447")));
+        assertFalse(alice.equals(bob));
+    }
+}
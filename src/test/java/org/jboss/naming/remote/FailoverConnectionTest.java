@@ -5,10 +5,13 @@ import java.net.SocketAddress;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 
+import javax.naming.CompositeName;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
+import org.jboss.naming.remote.client.NamingPipeline;
+import org.jboss.naming.remote.client.RemoteContext;
 import org.jboss.naming.remote.server.RemoteNamingService;
 import org.jboss.remoting3.Endpoint;
 import org.jboss.remoting3.Remoting;
@@ -93,5 +96,25 @@ public class FailoverConnectionTest {
         }
     }
 
+    @Test
+    public void testHaPipeline() throws Exception {
+        Endpoint server1 = createServer(7999);
+        Endpoint server2 = createServer(8999);
+        try {
+            Properties env = new Properties();
+            env.put(Context.INITIAL_CONTEXT_FACTORY, org.jboss.naming.remote.client.InitialContextFactory.class.getName());
+            env.put(Context.PROVIDER_URL, "remote://localhost:7999,remote://localhost:8999");
+            env.put("jboss.naming.client.ejb.context", "false");
+            InitialContext context = new InitialContext(env);
 
+            NamingPipeline pipeline = ((RemoteContext) context.lookup("")).pipeline();
+            assertEquals(SERVER + 7999, pipeline.lookup(new CompositeName("serverId")).get());
+            server1.close();
+            assertEquals(SERVER + 8999, pipeline.lookup(new CompositeName("serverId")).get());
+            context.close();
+        } finally {
+            server1.close();
+            server2.close();
+        }
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+
+import org.jboss.naming.remote.protocol.v1.ProtocolTestUtils;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Requests and responses of concurrent callers gathered into frames by both the client and the server.
+ */
+public class FramedRequestsTestCase {
+    private static final int THREADS = 64;
+
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        System.setProperty("jboss.naming.client.frame.window", "200");
+        System.setProperty("jboss.naming.client.frame.size", "8");
+
+        server = new TestNamingServer(localContext);
+        server.getService().setFrameWindow(100, TimeUnit.MICROSECONDS);
+        server.getService().setMaxFrameSize(8);
+        server.start();
+
+        for (int i = 0; i < THREADS; i++) {
+            localContext.bind("entry" + i, "Value" + i);
+        }
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+        System.clearProperty("jboss.naming.client.frame.window");
+        System.clearProperty("jboss.naming.client.frame.size");
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < THREADS; i++) {
+                    final String name = "entry" + i;
+                    results.add(executor.submit(new Callable<Object>() {
+                        public Object call() throws Exception {
+                            return remoteContext.lookup(name);
+                        }
+                    }));
+                }
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("Value" + (i % THREADS), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertTrue(ProtocolTestUtils.getFramesWritten((Context) remoteContext.lookup("")) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSingleRequests() throws Exception {
+        try {
+            remoteContext.lookup("missing");
+            fail("Should have thrown a NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+        remoteContext.bind("added", "Added");
+        assertEquals("Added", remoteContext.lookup("added"));
+    }
+}
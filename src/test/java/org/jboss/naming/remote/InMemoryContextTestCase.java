@@ -0,0 +1,361 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.ContextNotEmptyException;
+import javax.naming.NameClassPair;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.event.EventContext;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingExceptionEvent;
+import javax.naming.event.ObjectChangeListener;
+
+import org.jboss.naming.remote.server.AtomicBatchContext;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.jboss.naming.remote.server.LookupResponseCache;
+import org.jboss.naming.remote.server.RemoteNamingService;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A {@link RemoteNamingService} backed by an {@link InMemoryContext}.
+ */
+public class InMemoryContextTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.getService().setLookupResponseCache(new LookupResponseCache(1024 * 1024, 0, TimeUnit.SECONDS));
+        server.start();
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+    }
+
+    @Test
+    public void testNestedOperations() throws Exception {
+        localContext.createSubcontext("nested");
+        localContext.bind("nested/value", "TestValue");
+        assertEquals("TestValue", remoteContext.lookup("nested/value"));
+        assertEquals("TestValue", ((Context) remoteContext.lookup("nested")).lookup("value"));
+
+        // changes made directly to the local context have to be seen through the lookup response cache
+        localContext.rebind("nested/value", "OtherValue");
+        assertEquals("OtherValue", remoteContext.lookup("nested/value"));
+
+        localContext.rename("nested/value", "nested/renamed");
+        assertEquals("OtherValue", remoteContext.lookup("nested/renamed"));
+        try {
+            remoteContext.lookup("nested/value");
+            fail("Should have thrown NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+
+        final NamingEnumeration<Binding> bindings = remoteContext.listBindings("nested");
+        assertTrue(bindings.hasMore());
+        assertEquals("renamed", bindings.next().getName());
+
+        localContext.unbind("nested/renamed");
+        localContext.destroySubcontext("nested");
+    }
+
+    @Test
+    public void testSubContextOperations() throws Exception {
+        localContext.createSubcontext("sub");
+        try {
+            final Context sub = (Context) remoteContext.lookup("sub");
+            sub.bind("value", "First");
+            sub.rebind("value", "Second");
+            assertEquals("Second", localContext.lookup("sub/value"));
+
+            sub.rename("value", "renamed");
+            assertEquals("Second", localContext.lookup("sub/renamed"));
+            final NamingEnumeration<NameClassPair> names = sub.list("");
+            assertTrue(names.hasMore());
+            assertEquals("renamed", names.next().getName());
+            final NamingEnumeration<Binding> bindings = sub.listBindings("");
+            assertTrue(bindings.hasMore());
+            assertEquals("Second", bindings.next().getObject());
+
+            sub.unbind("renamed");
+            try {
+                localContext.lookup("sub/renamed");
+                fail("Should have thrown NameNotFoundException");
+            } catch (NameNotFoundException expected) {
+            }
+
+            sub.createSubcontext("child");
+            assertTrue(localContext.lookup("sub/child") instanceof Context);
+            sub.destroySubcontext("child");
+            try {
+                localContext.lookup("sub/child");
+                fail("Should have thrown NameNotFoundException");
+            } catch (NameNotFoundException expected) {
+            }
+        } finally {
+            localContext.destroySubcontext("sub");
+        }
+    }
+
+    @Test
+    public void testBindRacingDestroy() throws Exception {
+        final InMemoryContext context = new InMemoryContext();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                context.createSubcontext("racing");
+                final Future<Boolean> bound = executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        try {
+                            context.bind("racing/value", "TestValue");
+                            return true;
+                        } catch (NameNotFoundException e) {
+                            return false;
+                        }
+                    }
+                });
+                final Future<Boolean> destroyed = executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        try {
+                            context.destroySubcontext("racing");
+                            return true;
+                        } catch (ContextNotEmptyException e) {
+                            return false;
+                        }
+                    }
+                });
+                // exactly one of them wins, a successful bind is never lost with its context
+                if (bound.get()) {
+                    assertFalse(destroyed.get());
+                    assertEquals("TestValue", context.lookup("racing/value"));
+                    context.unbind("racing/value");
+                    context.destroySubcontext("racing");
+                } else {
+                    assertTrue(destroyed.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testListeners() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        final NamespaceChangeListener listener = new NamespaceChangeListener() {
+            public void objectAdded(final NamingEvent event) {
+                events.add("added " + event.getNewBinding().getName());
+            }
+
+            public void objectRemoved(final NamingEvent event) {
+                events.add("removed " + event.getOldBinding().getName());
+            }
+
+            public void objectRenamed(final NamingEvent event) {
+                events.add("renamed " + event.getOldBinding().getName() + " " + event.getNewBinding().getName());
+            }
+
+            public void namingExceptionThrown(final NamingExceptionEvent event) {
+            }
+        };
+        localContext.createSubcontext("events");
+        localContext.addNamingListener("events", EventContext.ONELEVEL_SCOPE, listener);
+        try {
+            remoteContext.bind("events/first", "One");
+            remoteContext.rename("events/first", "events/second");
+            remoteContext.unbind("events/second");
+            remoteContext.bind("ignored", "Two");
+        } finally {
+            localContext.removeNamingListener(listener);
+        }
+        assertEquals(3, events.size());
+        assertEquals("added events/first", events.get(0));
+        assertEquals("renamed events/first events/second", events.get(1));
+        assertEquals("removed events/second", events.get(2));
+        localContext.unbind("ignored");
+        localContext.destroySubcontext("events");
+    }
+
+    @Test
+    public void testAtomicBatchEvents() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        final NamespaceChangeListener listener = new NamespaceChangeListener() {
+            public void objectAdded(final NamingEvent event) {
+                events.add("added " + event.getNewBinding().getName());
+            }
+
+            public void objectRemoved(final NamingEvent event) {
+                events.add("removed " + event.getOldBinding().getName());
+            }
+
+            public void objectRenamed(final NamingEvent event) {
+            }
+
+            public void namingExceptionThrown(final NamingExceptionEvent event) {
+            }
+        };
+        localContext.createSubcontext("atomic").bind("existing", "Existing");
+        localContext.addNamingListener("atomic", EventContext.ONELEVEL_SCOPE, listener);
+        try {
+            try {
+                localContext.applyAtomically(new AtomicBatchContext.Batch() {
+                    public void apply(final Context context) throws NamingException {
+                        context.bind("atomic/first", "One");
+                        context.unbind("atomic/existing");
+                        context.createSubcontext("atomic/sub").bind("nested", "Nested");
+                        assertTrue(events.isEmpty());
+                        context.unbind("atomic/missing/name");
+                    }
+                });
+                fail("Should have thrown NameNotFoundException");
+            } catch (NameNotFoundException expected) {
+            }
+            assertTrue(events.isEmpty());
+            assertEquals("Existing", localContext.lookup("atomic/existing"));
+            final NamingEnumeration<NameClassPair> remaining = localContext.list("atomic");
+            assertEquals("existing", remaining.next().getName());
+            assertFalse(remaining.hasMore());
+
+            localContext.applyAtomically(new AtomicBatchContext.Batch() {
+                public void apply(final Context context) throws NamingException {
+                    context.bind("atomic/first", "One");
+                    context.unbind("atomic/existing");
+                    assertTrue(events.isEmpty());
+                }
+            });
+            assertEquals(2, events.size());
+            assertEquals("added atomic/first", events.get(0));
+            assertEquals("removed atomic/existing", events.get(1));
+        } finally {
+            localContext.removeNamingListener(listener);
+        }
+        localContext.unbind("atomic/first");
+        localContext.destroySubcontext("atomic");
+    }
+
+    @Test
+    public void testListingDuringBatch() throws Exception {
+        final InMemoryContext context = new InMemoryContext();
+        context.bind("listed", "Listed");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            context.applyAtomically(new AtomicBatchContext.Batch() {
+                public void apply(final Context batchContext) throws NamingException {
+                    batchContext.bind("added", "Added");
+                    // the batch holds the lock of the tree, a listing must not wait for it
+                    final Future<Integer> listed = executor.submit(new Callable<Integer>() {
+                        public Integer call() throws Exception {
+                            int count = 0;
+                            final NamingEnumeration<Binding> bindings = context.listBindings("");
+                            while (bindings.hasMore()) {
+                                bindings.next();
+                                count++;
+                            }
+                            return count;
+                        }
+                    });
+                    try {
+                        assertTrue(listed.get(5, TimeUnit.SECONDS) > 0);
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventsInChangeOrder() throws Exception {
+        final InMemoryContext context = new InMemoryContext();
+        context.bind("changing", 0);
+        final List<Object[]> changes = Collections.synchronizedList(new ArrayList<Object[]>());
+        context.addNamingListener("changing", EventContext.OBJECT_SCOPE, new ObjectChangeListener() {
+            public void objectChanged(final NamingEvent event) {
+                changes.add(new Object[] {event.getOldBinding().getObject(), event.getNewBinding().getObject()});
+            }
+
+            public void namingExceptionThrown(final NamingExceptionEvent event) {
+            }
+        });
+        final int threads = 4;
+        final int rebinds = 500;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                final int first = 1 + t * rebinds;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        for (int i = first; i < first + rebinds; i++) {
+                            context.rebind("changing", i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // each event has to start from the value the previous one ended with
+        assertEquals(threads * rebinds, changes.size());
+        Object current = 0;
+        for (Object[] change : changes) {
+            assertEquals(current, change[0]);
+            current = change[1];
+        }
+        assertEquals(current, context.lookup("changing"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bindings listed without their objects, which are looked up when first asked for.
+ */
+public class LazyBindingsTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+    private static Context eagerContext;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.start();
+
+        localContext.createSubcontext("app");
+        localContext.bind("app/first", "First");
+        localContext.bind("app/second", 2);
+        localContext.createSubcontext("app/nested");
+        localContext.bind("app/nested/third", "Third");
+
+        remoteContext = server.createInitialContext(Collections.singletonMap(RemoteContext.LAZY_BINDINGS, "true"));
+        eagerContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        eagerContext.close();
+        server.stop();
+    }
+
+    @Test
+    public void testListBindings() throws Exception {
+        final Map<String, Binding> bindings = listBindings(remoteContext);
+        assertEquals(3, bindings.size());
+        assertEquals(String.class.getName(), bindings.get("first").getClassName());
+        assertEquals(Integer.class.getName(), bindings.get("second").getClassName());
+        assertEquals(Context.class.getName(), bindings.get("nested").getClassName());
+
+        // the objects are only fetched now, so they reflect the change
+        localContext.rebind("app/first", "Changed");
+        try {
+            assertTrue(bindings.get("first").toString(), bindings.get("first").toString().endsWith("<not looked up>"));
+            assertEquals("Changed", bindings.get("first").getObject());
+            assertEquals(2, bindings.get("second").getObject());
+            assertTrue(bindings.get("nested").getObject() instanceof Context);
+            assertEquals("Third", ((Context) bindings.get("nested").getObject()).lookup("third"));
+        } finally {
+            localContext.rebind("app/first", "First");
+        }
+    }
+
+    @Test
+    public void testEagerByDefault() throws Exception {
+        final Map<String, Binding> bindings = listBindings(eagerContext);
+        assertEquals(3, bindings.size());
+        localContext.rebind("app/first", "Changed");
+        try {
+            assertEquals("First", bindings.get("first").getObject());
+        } finally {
+            localContext.rebind("app/first", "First");
+        }
+    }
+
+    private static Map<String, Binding> listBindings(final Context context) throws Exception {
+        final Map<String, Binding> bindings = new HashMap<String, Binding>();
+        final NamingEnumeration<Binding> results = context.listBindings("app");
+        while (results.hasMore()) {
+            final Binding binding = results.next();
+            bindings.put(binding.getName(), binding);
+        }
+        return bindings;
+    }
+}
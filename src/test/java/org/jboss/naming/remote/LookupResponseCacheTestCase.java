@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+
+import org.jboss.naming.remote.server.LookupResponseCache;
+import org.jboss.naming.remote.server.RequestLane;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Lookups served from the server side {@link LookupResponseCache}, on the receiving thread where possible.
+ */
+public class LookupResponseCacheTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+    private static final LookupResponseCache cache = new LookupResponseCache(1024 * 1024, 0, TimeUnit.SECONDS);
+
+    private static final AtomicInteger dispatchedLookups = new AtomicInteger();
+
+    private static final Context localContext = new MockContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        // as an older client, so cached raw values have to be marshalled for it
+        System.setProperty("jboss.naming.client.capabilities.disabled", "raw-values");
+        server = new TestNamingServer(localContext);
+        server.getService().setLookupResponseCache(cache);
+        server.getService().setInlineBudget(1, TimeUnit.SECONDS);
+        final Executor executor = server.getService().getExecutor();
+        server.getService().setExecutor(RequestLane.LOOKUP, new Executor() {
+            public void execute(final Runnable command) {
+                dispatchedLookups.incrementAndGet();
+                executor.execute(command);
+            }
+        });
+        server.start();
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+        System.clearProperty("jboss.naming.client.capabilities.disabled");
+    }
+
+    @Test
+    public void testRepeatedLookup() throws Exception {
+        localContext.bind("cached", "TestValue");
+        final long hits = cache.getHitCount();
+        assertEquals("TestValue", remoteContext.lookup("cached"));
+        assertEquals("TestValue", remoteContext.lookup("cached"));
+        assertEquals(hits + 1, cache.getHitCount());
+        remoteContext.unbind("cached");
+    }
+
+    @Test
+    public void testConvertedResponseCached() throws Exception {
+        localContext.bind("converted", "TestValue");
+        final Name name = new CompositeName("converted");
+        assertEquals("TestValue", remoteContext.lookup("converted"));
+        final byte[] response = cache.get(name);
+        final byte[] converted = cache.getConverted(name, response);
+        assertNotNull(converted);
+        final long size = cache.getSize();
+        assertEquals("TestValue", remoteContext.lookup("converted"));
+        assertSame(converted, cache.getConverted(name, response));
+        assertEquals(size, cache.getSize());
+        remoteContext.unbind("converted");
+    }
+
+    @Test
+    public void testHitHandledOnReceivingThread() throws Exception {
+        localContext.bind("inline", "TestValue");
+        final int dispatched = dispatchedLookups.get();
+        assertEquals("TestValue", remoteContext.lookup("inline"));
+        assertEquals(dispatched + 1, dispatchedLookups.get());
+        // let the writer of the first response finish, a hit is only answered inline while nothing else is written
+        Thread.sleep(100);
+        assertEquals("TestValue", remoteContext.lookup("inline"));
+        assertEquals(dispatched + 1, dispatchedLookups.get());
+        remoteContext.unbind("inline");
+    }
+
+    @Test
+    public void testInvalidatedByRemoteOperations() throws Exception {
+        remoteContext.bind("changing", "First");
+        assertEquals("First", remoteContext.lookup("changing"));
+        remoteContext.rebind("changing", "Second");
+        assertEquals("Second", remoteContext.lookup("changing"));
+        remoteContext.unbind("changing");
+        try {
+            remoteContext.lookup("changing");
+            fail("Should have thrown NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testSubtreeInvalidation() throws Exception {
+        final LookupResponseCache cache = new LookupResponseCache(1024, 0, TimeUnit.SECONDS);
+        for (String name : new String[] {"a", "a/b", "a/b/c", "a/d/e", "ab", "f"}) {
+            cache.put(new CompositeName(name), new byte[1], cache.getGeneration());
+        }
+        assertEquals(6, cache.getSize());
+        cache.invalidate(new CompositeName("a/b"));
+        assertNotNull(cache.get(new CompositeName("a")));
+        assertNull(cache.get(new CompositeName("a/b")));
+        assertNull(cache.get(new CompositeName("a/b/c")));
+        assertNotNull(cache.get(new CompositeName("a/d/e")));
+        assertEquals(4, cache.getSize());
+
+        cache.invalidate(new CompositeName("a"));
+        assertNull(cache.get(new CompositeName("a/d/e")));
+        assertNotNull(cache.get(new CompositeName("ab")));
+        assertNotNull(cache.get(new CompositeName("f")));
+        assertEquals(2, cache.getSize());
+
+        // a response computed before an invalidation is not cached
+        final long generation = cache.getGeneration();
+        cache.invalidate(new CompositeName("g"));
+        cache.put(new CompositeName("g"), new byte[1], generation);
+        assertNull(cache.get(new CompositeName("g")));
+    }
+
+    @Test
+    public void testEvictionSparesReferencedEntries() throws Exception {
+        final LookupResponseCache cache = new LookupResponseCache(3, 0, TimeUnit.SECONDS);
+        final Name[] names = {new CompositeName("x/a"), new CompositeName("x/b"), new CompositeName("x/c")};
+        for (Name name : names) {
+            cache.put(name, new byte[1], cache.getGeneration());
+        }
+        assertNotNull(cache.get(names[0]));
+        assertNotNull(cache.get(names[2]));
+        cache.put(new CompositeName("x/d"), new byte[1], cache.getGeneration());
+        assertEquals(3, cache.getSize());
+        assertNull(cache.get(names[1]));
+        assertNotNull(cache.get(names[0]));
+        assertNotNull(cache.get(names[2]));
+
+        // evicted names no longer take part in invalidations
+        cache.invalidate(new CompositeName("x"));
+        assertEquals(0, cache.getSize());
+    }
+}
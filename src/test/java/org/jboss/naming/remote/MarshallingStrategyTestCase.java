@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+import org.jboss.naming.remote.client.LookupCacheConfiguration;
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.protocol.ConfiguredMarshallingStrategy;
+import org.jboss.naming.remote.protocol.MarshallingStrategies;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A marshalling strategy other than the default, negotiated when the channel is opened.
+ */
+public class MarshallingStrategyTestCase {
+    private static final CountingStrategy strategy = new CountingStrategy();
+
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final InMemoryContext localContext = new InMemoryContext();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        MarshallingStrategies.register(strategy);
+        System.setProperty("jboss.naming.client.marshalling.strategies", "unknown, counting");
+
+        server = new TestNamingServer(localContext);
+        server.start();
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+        System.clearProperty("jboss.naming.client.marshalling.strategies");
+    }
+
+    @Test
+    public void testNegotiatedStrategy() throws Exception {
+        final int marshalled = strategy.marshallers.get();
+        final int unmarshalled = strategy.unmarshallers.get();
+
+        final List<String> value = new ArrayList<String>(Arrays.asList("a", "b"));
+        remoteContext.bind("list", value);
+        assertEquals(value, localContext.lookup("list"));
+        assertEquals(value, remoteContext.lookup("list"));
+
+        assertTrue(strategy.marshallers.get() > marshalled);
+        assertTrue(strategy.unmarshallers.get() > unmarshalled);
+    }
+
+    @Test
+    public void testClientLookupCacheNotUsed() throws Exception {
+        localContext.createSubcontext("cached");
+        localContext.bind("cached/value", "First");
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(LookupCacheConfiguration.CACHE_SIZE, "1048576");
+        properties.put(LookupCacheConfiguration.CACHE_TTL, "0");
+        final Context context = server.createInitialContext(properties);
+        try {
+            // the client cache only holds responses of the default strategy, as it is shared and may be persisted
+            assertEquals(0, ((RemoteContext) context.lookup("cached")).prefetch("", 0, 0));
+            assertEquals("First", context.lookup("cached/value"));
+            localContext.rebind("cached/value", "Second");
+            assertEquals("Second", context.lookup("cached/value"));
+        } finally {
+            context.close();
+            localContext.unbind("cached/value");
+            localContext.destroySubcontext("cached");
+        }
+    }
+
+    @Test
+    public void testChoose() {
+        final List<String> offered = Arrays.asList("river", "counting");
+        assertSame(strategy, MarshallingStrategies.choose(offered, "counting,river"));
+        assertSame(MarshallingStrategies.DEFAULT, MarshallingStrategies.choose(offered, "river,counting"));
+        assertSame(MarshallingStrategies.DEFAULT, MarshallingStrategies.choose(Arrays.asList("river"), "counting"));
+        assertSame(MarshallingStrategies.DEFAULT, MarshallingStrategies.choose(offered, null));
+    }
+
+    private static class CountingStrategy extends ConfiguredMarshallingStrategy {
+        private final AtomicInteger marshallers = new AtomicInteger();
+        private final AtomicInteger unmarshallers = new AtomicInteger();
+
+        private CountingStrategy() {
+            super("counting", Marshalling.getProvidedMarshallerFactory("river"), configuration());
+        }
+
+        private static MarshallingConfiguration configuration() {
+            final MarshallingConfiguration configuration = new MarshallingConfiguration();
+            configuration.setVersion(3);
+            configuration.setBufferSize(1024);
+            return configuration;
+        }
+
+        public Marshaller createMarshaller() throws IOException {
+            marshallers.incrementAndGet();
+            return super.createMarshaller();
+        }
+
+        public Unmarshaller createUnmarshaller(final ClassLoader classLoader) throws IOException {
+            unmarshallers.incrementAndGet();
+            return super.createUnmarshaller(classLoader);
+        }
+    }
+}
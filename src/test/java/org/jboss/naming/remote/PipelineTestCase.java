@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.client.NamingPipeline;
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pipelined operations, which keep the order a write and the operations around it were issued in.
+ */
+public class PipelineTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static volatile CountDownLatch gate;
+    private static final AtomicInteger gatedLookups = new AtomicInteger();
+
+    /** Binds slowly, so operations issued after a bind would overtake it, and holds lookups of gated names */
+    private static final InMemoryContext localContext = new InMemoryContext() {
+        public void bind(final Name name, final Object object) throws NamingException {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.bind(name, object);
+        }
+
+        public Object lookup(final Name name) throws NamingException {
+            if (name.size() > 0 && name.get(0).startsWith("gated")) {
+                gatedLookups.incrementAndGet();
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.lookup(name);
+        }
+    };
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        System.setProperty(NamingPipeline.PIPELINE_WINDOW, "2");
+        server = new TestNamingServer(localContext);
+        server.start();
+        localContext.bind("gated", "Gated");
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+        System.clearProperty(NamingPipeline.PIPELINE_WINDOW);
+    }
+
+    private static NamingPipeline pipeline() throws NamingException {
+        return ((RemoteContext) remoteContext.lookup("")).pipeline();
+    }
+
+    @Test
+    public void testWriteOrder() throws Exception {
+        final NamingPipeline pipeline = pipeline();
+        final List<Future<Object>> bound = new ArrayList<Future<Object>>();
+        final List<Future<Object>> rebound = new ArrayList<Future<Object>>();
+        final List<Future<Object>> unbound = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 20; i++) {
+            final CompositeName name = new CompositeName("ordered" + i);
+            pipeline.bind(name, "First" + i);
+            bound.add(pipeline.lookup(name));
+            pipeline.rebind(name, "Second" + i);
+            rebound.add(pipeline.lookup(name));
+            pipeline.unbind(name);
+            unbound.add(pipeline.lookup(name));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals("First" + i, bound.get(i).get());
+            assertEquals("Second" + i, rebound.get(i).get());
+            try {
+                unbound.get(i).get();
+                fail("Should have thrown NameNotFoundException");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof NameNotFoundException);
+            }
+        }
+    }
+
+    @Test
+    public void testReadsOverlap() throws Exception {
+        final NamingPipeline pipeline = pipeline();
+        gatedLookups.set(0);
+        gate = new CountDownLatch(1);
+        try {
+            pipeline.lookup(new CompositeName("gated"));
+            pipeline.lookup(new CompositeName("gated"));
+            awaitGatedLookups(2);
+        } finally {
+            gate.countDown();
+        }
+        assertEquals(2, pipeline.awaitAll().size());
+    }
+
+    @Test
+    public void testWindowSharedByPipelines() throws Exception {
+        final NamingPipeline first = pipeline();
+        final NamingPipeline second = pipeline();
+        gatedLookups.set(0);
+        gate = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            first.lookup(new CompositeName("gated"));
+            first.lookup(new CompositeName("gated"));
+            awaitGatedLookups(2);
+            final Future<Future<Object>> issued = executor.submit(new Callable<Future<Object>>() {
+                public Future<Object> call() throws Exception {
+                    return second.lookup(new CompositeName("gated"));
+                }
+            });
+            try {
+                issued.get(300, TimeUnit.MILLISECONDS);
+                fail("The window of the channel should have been full");
+            } catch (TimeoutException expected) {
+            }
+            assertFalse(issued.isDone());
+            gate.countDown();
+            assertEquals("Gated", issued.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS));
+            assertEquals(2, first.awaitAll().size());
+        } finally {
+            gate.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitGatedLookups(final int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (gatedLookups.get() < count) {
+            assertTrue("Only " + gatedLookups.get() + " lookups reached the server", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
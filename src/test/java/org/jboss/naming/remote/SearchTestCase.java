@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Binding;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.client.SearchResults;
+import org.jboss.naming.remote.server.InMemoryContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pattern searches run on the server.
+ */
+public class SearchTestCase {
+    private static TestNamingServer server;
+    private static Context remoteContext;
+
+    private static final AtomicInteger objectsRead = new AtomicInteger();
+    private static final ThreadLocal<Boolean> listing = new ThreadLocal<Boolean>();
+
+    /** Counts the objects read, which a search has no need for, other than by the listing itself */
+    private static final InMemoryContext localContext = new InMemoryContext() {
+        public Object lookup(final Name name) throws NamingException {
+            if (listing.get() == null) {
+                objectsRead.incrementAndGet();
+            }
+            return super.lookup(name);
+        }
+
+        public NamingEnumeration<NameClassPair> list(final Name name) throws NamingException {
+            listing.set(Boolean.TRUE);
+            try {
+                return super.list(name);
+            } finally {
+                listing.remove();
+            }
+        }
+
+        public NamingEnumeration<Binding> listBindings(final Name name) throws NamingException {
+            objectsRead.incrementAndGet();
+            return super.listBindings(name);
+        }
+    };
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        server = new TestNamingServer(localContext);
+        server.start();
+
+        localContext.createSubcontext("services");
+        localContext.bind("services/orders", "Orders");
+        localContext.bind("services/ordersAdmin", "OrdersAdmin");
+        localContext.bind("services/billing", "Billing");
+        localContext.createSubcontext("services/legacy");
+        localContext.bind("services/legacy/orders", "LegacyOrders");
+        localContext.createSubcontext("services/legacy/old");
+        localContext.bind("services/legacy/old/orders", "OldOrders");
+
+        remoteContext = server.createInitialContext();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        remoteContext.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        final RemoteContext services = (RemoteContext) remoteContext.lookup("services");
+        assertEquals(set("orders", "ordersAdmin"), names(services.search("", "orders*", 0, 0)));
+        assertEquals(set("orders", "legacy/orders", "legacy/old/orders"), names(services.search("", "**orders", 0, 0)));
+        assertEquals(set("orders", "legacy/orders"), names(services.search("", "**orders", 2, 0)));
+        assertEquals(set("legacy/orders", "legacy/old"), names(services.search("", "legacy/*", 0, 0)));
+        assertEquals(set("old/orders"), names(services.search("legacy", "o??/orders", 0, 0)));
+        assertEquals(1, names(services.search("", "**", 0, 1)).size());
+        assertEquals(String.class.getName(), services.search("", "billing", 0, 0).next().getClassName());
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final RemoteContext services = (RemoteContext) remoteContext.lookup("services");
+        assertFalse(services.search("", "**orders", 0, 0).isTruncated());
+        assertFalse(services.search("", "orders*", 0, 2).isTruncated());
+
+        final SearchResults limited = services.search("", "**orders", 0, 2);
+        assertTrue(limited.isTruncated());
+        assertEquals(2, limited.getMatches().size());
+    }
+
+    @Test
+    public void testNoObjectsRead() throws Exception {
+        final RemoteContext services = (RemoteContext) remoteContext.lookup("services");
+        objectsRead.set(0);
+        assertEquals(set("orders", "legacy/orders", "legacy/old/orders"), names(services.search("", "**orders", 0, 0)));
+        assertEquals(0, objectsRead.get());
+    }
+
+    private static Set<String> names(final NamingEnumeration<NameClassPair> results) throws Exception {
+        final Set<String> names = new HashSet<String>();
+        while (results.hasMore()) {
+            names.add(results.next().getName());
+        }
+        return names;
+    }
+
+    private static Set<String> set(final String... names) {
+        final Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+}
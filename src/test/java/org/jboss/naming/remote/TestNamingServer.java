@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.jboss.naming.remote.server.RemoteNamingService;
+import org.jboss.remoting3.Endpoint;
+import org.jboss.remoting3.Remoting;
+import org.jboss.remoting3.remote.RemoteConnectionProviderFactory;
+import org.jboss.remoting3.spi.NetworkServerProvider;
+import org.xnio.OptionMap;
+import org.xnio.Xnio;
+import org.xnio.channels.AcceptingChannel;
+
+/**
+ * A naming server on localhost:7999 for the test cases which run against a single server. Configure the service
+ * through {@link #getService()} before calling {@link #start()}, and {@link #stop()} it once the test is done.
+ */
+public class TestNamingServer {
+    public static final String PROVIDER_URL = "remote://localhost:7999";
+
+    private final Endpoint endpoint;
+    private final AcceptingChannel<?> acceptor;
+    private final ExecutorService executor;
+    private final RemoteNamingService service;
+
+    public TestNamingServer(final Context localContext) throws IOException {
+        endpoint = Remoting.createEndpoint("RemoteNaming", Xnio.getInstance(), OptionMap.EMPTY);
+        endpoint.addConnectionProvider("remote", new RemoteConnectionProviderFactory(), OptionMap.EMPTY);
+
+        final NetworkServerProvider nsp = endpoint.getConnectionProviderInterface("remote", NetworkServerProvider.class);
+        acceptor = nsp.createServer(new InetSocketAddress("localhost", 7999), TestUtils.createOptionMap(), new TestUtils.DefaultAuthenticationHandler(), null);
+        executor = Executors.newFixedThreadPool(10);
+        service = new RemoteNamingService(localContext, executor);
+    }
+
+    public RemoteNamingService getService() {
+        return service;
+    }
+
+    public void start() throws IOException {
+        service.start(endpoint);
+    }
+
+    /**
+     * Create a client context connected to this server.
+     *
+     * @param properties Additional environment properties, may be empty
+     * @return The context
+     * @throws NamingException If the context could not be created
+     */
+    public Context createInitialContext(final Map<String, String> properties) throws NamingException {
+        final Properties env = new Properties();
+        env.put(Context.INITIAL_CONTEXT_FACTORY, org.jboss.naming.remote.client.InitialContextFactory.class.getName());
+        env.put(Context.PROVIDER_URL, PROVIDER_URL);
+        env.put("jboss.naming.client.ejb.context", "false");
+        env.putAll(properties);
+        return new InitialContext(env);
+    }
+
+    public Context createInitialContext() throws NamingException {
+        return createInitialContext(Collections.<String, String>emptyMap());
+    }
+
+    public void stop() throws IOException {
+        try {
+            service.stop();
+        } finally {
+            try {
+                acceptor.close();
+            } finally {
+                endpoint.close();
+                executor.shutdown();
+            }
+        }
+    }
+}
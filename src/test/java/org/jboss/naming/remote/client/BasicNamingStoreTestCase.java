@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.CompositeName;
+import javax.naming.LinkRef;
+import javax.naming.Name;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A {@link RemoteContext} over a naming store which only implements {@link RemoteNamingStore}, as implementations
+ * written before {@link ExtendedRemoteNamingStore} do.
+ */
+public class BasicNamingStoreTestCase {
+    private final Map<Name, Object> bindings = new HashMap<Name, Object>();
+    private RemoteContext context;
+
+    @Before
+    public void before() {
+        final RemoteNamingStore namingStore = (RemoteNamingStore) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {RemoteNamingStore.class}, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                final String operation = method.getName();
+                if (operation.equals("lookup")) {
+                    if (!bindings.containsKey(args[0])) {
+                        throw new NameNotFoundException(args[0].toString());
+                    }
+                    return bindings.get(args[0]);
+                } else if (operation.equals("bind") || operation.equals("rebind")) {
+                    bindings.put((Name) args[0], args[1]);
+                } else if (operation.equals("unbind")) {
+                    if (bindings.remove(args[0]) == null) {
+                        throw new NameNotFoundException(args[0].toString());
+                    }
+                } else if (!operation.startsWith("close")) {
+                    throw new UnsupportedOperationException(operation);
+                }
+                return null;
+            }
+        });
+        context = new RemoteContext(namingStore, new Hashtable<String, Object>());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        final List<NamingException> results = context.batch(Arrays.asList(
+                BatchOperation.bind(new CompositeName("a"), "A"),
+                BatchOperation.unbind(new CompositeName("missing")),
+                BatchOperation.rebind(new CompositeName("a"), "B")), false);
+        assertEquals(3, results.size());
+        assertNull(results.get(0));
+        assertTrue(results.get(1) instanceof NameNotFoundException);
+        assertNull(results.get(2));
+        assertEquals("B", context.lookup("a"));
+
+        try {
+            context.batch(Arrays.asList(BatchOperation.unbind(new CompositeName("a"))), true);
+            fail("Expected atomic batches to be rejected");
+        } catch (OperationNotSupportedException expected) {
+        }
+        assertEquals("B", context.lookup("a"));
+    }
+
+    @Test
+    public void testRelativeLink() throws Exception {
+        context.bind("target", "Target");
+        context.bind("link", new LinkRef("./target"));
+        assertEquals("Target", context.lookup("link"));
+    }
+
+    @Test
+    public void testUnsupportedOperations() throws Exception {
+        assertEquals(0, context.prefetch("", 0, 0));
+        try {
+            context.search("", "*", 0, 0);
+            fail("Expected searches to be rejected");
+        } catch (OperationNotSupportedException expected) {
+        }
+        try {
+            context.pipeline();
+            fail("Expected pipelines to be rejected");
+        } catch (OperationNotSupportedException expected) {
+        }
+    }
+}
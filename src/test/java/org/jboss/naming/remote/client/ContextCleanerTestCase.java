@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.client;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CompositeName;
+import javax.naming.NamingException;
+
+import org.jboss.remoting3.Endpoint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The close tasks of contexts which are never closed.
+ */
+public class ContextCleanerTestCase {
+    @Test
+    public void testUnreachableContextCleaned() throws Exception {
+        final RecordingTask task = new RecordingTask();
+        createContext(null, task);
+        awaitGarbageCollection(task.closed, 10000);
+
+        assertEquals(1, task.count.get());
+        assertTrue(task.unreachable);
+    }
+
+    @Test
+    public void testCleanupWaitsForOperationInFlight() throws Exception {
+        final CountDownLatch connecting = new CountDownLatch(1);
+        final CountDownLatch refuse = new CountDownLatch(1);
+        // a connect which takes as long as the test wants it to
+        final Endpoint endpoint = (Endpoint) Proxy.newProxyInstance(Endpoint.class.getClassLoader(), new Class<?>[] {Endpoint.class}, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if (method.getName().equals("connect")) {
+                    connecting.countDown();
+                    refuse.await();
+                    throw new IOException("Connection refused");
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        final HaRemoteNamingStore store = new HaRemoteNamingStore(Collections.singletonList(new RemoteNamingStoreConnectionInfo(endpoint,
+                new URI("remote://localhost:7999"), null, 1000, null, 1000, null)), false);
+        final RecordingTask task = new RecordingTask();
+        createContext(store, task);
+
+        final Thread lookup = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    store.lookup(new CompositeName("test"));
+                } catch (NamingException expected) {
+                }
+            }
+        });
+        lookup.start();
+        assertTrue(connecting.await(10, TimeUnit.SECONDS));
+        awaitGarbageCollection(new CountDownLatch(1), 1500);
+        assertEquals(0, task.count.get());
+
+        refuse.countDown();
+        lookup.join(10000);
+        awaitGarbageCollection(task.closed, 10000);
+        assertEquals(1, task.count.get());
+        assertTrue(task.unreachable);
+    }
+
+    @Test
+    public void testClosedContextNotCleanedAgain() throws Exception {
+        final RecordingTask task = new RecordingTask();
+        createContext(null, task).close();
+        assertEquals(1, task.count.get());
+        assertFalse(task.unreachable);
+
+        final CountDownLatch never = new CountDownLatch(1);
+        awaitGarbageCollection(never, 1500);
+        assertEquals(1, task.count.get());
+    }
+
+    @Test
+    public void testCleanerThread() throws Exception {
+        createContext(null, new RecordingTask()).close();
+        Thread cleaner = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("naming-client-context-cleaner")) {
+                cleaner = thread;
+            }
+        }
+        assertNotNull(cleaner);
+        assertTrue(cleaner.isDaemon());
+        assertNull(cleaner.getContextClassLoader());
+    }
+
+    private static RemoteContext createContext(final RemoteNamingStore store, final RemoteContext.CloseTask task) {
+        return new RemoteContext(store, new Hashtable<String, Object>(), Collections.singletonList(task));
+    }
+
+    private static void awaitGarbageCollection(final CountDownLatch latch, final long timeout) throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        while (!latch.await(100, TimeUnit.MILLISECONDS) && System.currentTimeMillis() < end) {
+            System.gc();
+        }
+    }
+
+    private static class RecordingTask implements RemoteContext.CloseTask {
+        private final AtomicInteger count = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile boolean unreachable;
+
+        public void close(final boolean isFinalize) {
+            unreachable = isFinalize;
+            count.incrementAndGet();
+            closed.countDown();
+        }
+    }
+}
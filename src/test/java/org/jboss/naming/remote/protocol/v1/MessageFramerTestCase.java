@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+import org.jboss.remoting3.MessageOutputStream;
+import org.junit.Test;
+
+import static org.jboss.naming.remote.protocol.v1.Constants.FRAME;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writing and reading frames, against a channel which records the messages written to it.
+ */
+public class MessageFramerTestCase {
+    private final List<byte[]> written = Collections.synchronizedList(new ArrayList<byte[]>());
+    private final Attachments attachments = new Attachments();
+    private final Channel channel = (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Channel.class}, new InvocationHandler() {
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            if (method.getName().equals("getAttachments")) {
+                return attachments;
+            }
+            if (method.getName().equals("writeMessage")) {
+                return new RecordingOutputStream();
+            }
+            if (method.getName().equals("toString")) {
+                return "test channel";
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+    });
+
+    @Test
+    public void testFrameWritten() throws Exception {
+        Capabilities.of(Capabilities.FRAMES).attachTo(channel);
+        MessageFramer.attach(channel, 10, TimeUnit.SECONDS, 2);
+        final MessageFramer framer = MessageFramer.forChannel(channel);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Void>> writes = new ArrayList<Future<Void>>();
+            for (final byte[] message : Arrays.asList(message(1), message(2))) {
+                writes.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        framer.write(message);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> write : writes) {
+                write.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, framer.getFramesWritten());
+        assertEquals(1, written.size());
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(written.get(0)));
+        assertEquals(FRAME, input.readByte());
+        input.readInt();
+        final List<byte[]> messages = MessageFramer.readFrame(channel, input);
+        assertEquals(2, messages.size());
+        assertEquals(3, messages.get(0)[5] + messages.get(1)[5]);
+    }
+
+    @Test
+    public void testUnframedWrite() throws Exception {
+        MessageFramer.attach(channel, 10, TimeUnit.SECONDS, 2);
+        final MessageFramer framer = MessageFramer.forChannel(channel);
+        final long start = System.nanoTime();
+        final boolean previous = MessageFramer.enterUnframed();
+        try {
+            framer.write(message(1));
+        } finally {
+            MessageFramer.exitUnframed(previous);
+        }
+        framer.write(new byte[MessageFramer.MAX_FRAMED_MESSAGE_LENGTH + 1]);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, framer.getFramesWritten());
+        assertEquals(2, written.size());
+        assertArrayEquals(message(1), written.get(0));
+    }
+
+    @Test
+    public void testFrameNotNegotiated() throws Exception {
+        try {
+            MessageFramer.readFrame(channel, frame(1, 6));
+            fail("Should have thrown IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testFrameLimits() throws Exception {
+        Capabilities.of(Capabilities.FRAMES).attachTo(channel);
+        assertEquals(1, MessageFramer.readFrame(channel, frame(1, 6)).size());
+        for (DataInputStream input : Arrays.asList(frame(MessageFramer.MAX_FRAME_MESSAGES + 1, 6), frame(Integer.MAX_VALUE, 6), frame(-1, 6),
+                frame(1, MessageFramer.MAX_FRAMED_MESSAGE_LENGTH + 1), frame(1, Integer.MAX_VALUE), frame(1, -1))) {
+            try {
+                MessageFramer.readFrame(channel, input);
+                fail("Should have thrown IOException");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    private static byte[] message(final int value) {
+        return new byte[] {0x01, 0, 0, 0, (byte) value, (byte) value};
+    }
+
+    /**
+     * A frame claiming to hold count messages, the first of which claims the given length, followed by one message.
+     */
+    private static DataInputStream frame(final int count, final int length) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(count);
+        output.writeInt(length);
+        output.write(message(1));
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private final class RecordingOutputStream extends MessageOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        public void write(final int b) {
+            bytes.write(b);
+        }
+
+        public void write(final byte[] b, final int off, final int len) {
+            bytes.write(b, off, len);
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+            written.add(bytes.toByteArray());
+        }
+
+        public MessageOutputStream cancel() {
+            return this;
+        }
+    }
+}
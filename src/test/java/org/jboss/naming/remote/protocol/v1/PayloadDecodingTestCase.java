@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jboss.naming.remote.protocol.Capabilities;
+import org.jboss.remoting3.Attachments;
+import org.jboss.remoting3.Channel;
+import org.jboss.remoting3.RemotingOptions;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.jboss.naming.remote.protocol.v1.Constants.DEFLATE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Decoding compressed message bodies, against a channel with a configurable maximum inbound message size.
+ */
+public class PayloadDecodingTestCase {
+    private final Attachments attachments = new Attachments();
+    private Long maxInboundMessageSize;
+    private final Channel channel = (Channel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Channel.class}, new InvocationHandler() {
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            if (method.getName().equals("getAttachments")) {
+                return attachments;
+            }
+            if (method.getName().equals("getOption") && args[0] == RemotingOptions.MAX_INBOUND_MESSAGE_SIZE) {
+                return maxInboundMessageSize;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+    });
+
+    @Before
+    public void before() {
+        Capabilities.of(Capabilities.COMPRESSION).attachTo(channel);
+    }
+
+    @Test
+    public void testWithinLimit() throws Exception {
+        maxInboundMessageSize = 1024L * 1024;
+        final byte[] body = new byte[100 * 1024];
+        new Random(1).nextBytes(body);
+        final DataInputStream payload = ReadUtil.decodePayload(channel, deflated(body));
+        try {
+            assertArrayEquals(body, ReadUtil.readRemaining(payload));
+        } finally {
+            payload.close();
+        }
+    }
+
+    @Test
+    public void testCompressionBombOverChannelLimit() throws Exception {
+        maxInboundMessageSize = 1024L * 1024;
+        assertRejected(deflated(new byte[4 * 1024 * 1024]));
+    }
+
+    @Test
+    public void testCompressionBombOverDefaultLimit() throws Exception {
+        maxInboundMessageSize = Long.MAX_VALUE;
+        assertRejected(deflated(new byte[(int) ReadUtil.DEFAULT_MAX_INFLATED_SIZE + 1]));
+    }
+
+    private void assertRejected(final DataInputStream message) throws IOException {
+        // a few KB on the wire
+        assertTrue(message.available() < 128 * 1024);
+        final DataInputStream payload = ReadUtil.decodePayload(channel, message);
+        try {
+            final byte[] buffer = new byte[8192];
+            while (payload.read(buffer) != -1) {
+            }
+            fail("Should have thrown IOException");
+        } catch (IOException expected) {
+        } finally {
+            payload.close();
+        }
+    }
+
+    private static DataInputStream deflated(final byte[] body) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(DEFLATE);
+        final DeflaterOutputStream deflater = new DeflaterOutputStream(bytes);
+        deflater.write(body);
+        deflater.close();
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
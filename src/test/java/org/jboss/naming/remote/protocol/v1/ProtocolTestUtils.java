@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.protocol.v1;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NamingException;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.naming.remote.client.HaRemoteNamingStore;
+import org.jboss.naming.remote.client.LookupCache;
+import org.jboss.naming.remote.client.RemoteContext;
+import org.jboss.naming.remote.client.RemoteNamingStore;
+import org.jboss.remoting3.Channel;
+import org.xnio.IoFuture;
+
+import static org.jboss.naming.remote.protocol.v1.WriteUtil.prepareForMarshalling;
+
+/**
+ * Access to the protocol beneath remote contexts, for the test cases.
+ */
+public final class ProtocolTestUtils {
+
+    private ProtocolTestUtils() {
+    }
+
+    /**
+     * Get the handle the server issued for a context.
+     *
+     * @param context A context returned by a remote lookup
+     * @return The handle, or -1 if the context has none
+     */
+    public static int getHandle(final Context context) throws Exception {
+        final RemoteNamingStore namingStore = getNamingStore(context);
+        return namingStore instanceof ContextHandleNamingStore ? ((ContextHandleNamingStore) namingStore).getHandle().getId() : -1;
+    }
+
+    /**
+     * Look up a name relative to a handle, sending nothing but the handle and the name.
+     *
+     * @param context A context returned by a remote lookup, whose channel is used
+     * @param handle  The handle, not necessarily the one of the context
+     * @param name    The name relative to the context of the handle
+     * @return The result
+     */
+    public static Object lookup(final Context context, final int handle, final String name) throws Exception {
+        final ContextHandle relativeTo = new ContextHandle(handle, new CompositeName());
+        return ((ContextHandleNamingStore) getNamingStore(context)).getNamingStore().lookup(new CompositeName(name), relativeTo);
+    }
+
+    /**
+     * Send a batch request with the given operation types and nothing else, as a client not using the
+     * {@link RemoteNamingStoreV1} could.
+     *
+     * @param context A context connected directly to the server, whose channel is used
+     * @param count   The number of operations the request claims to hold
+     * @param types   The types of the operations actually written
+     * @return The exception the server responded with, or null if it did not reject the request
+     */
+    public static Exception sendBatch(final Context context, final int count, final byte... types) throws Exception {
+        final Channel channel = getChannel(context);
+
+        final BaseProtocolCommand<List<NamingException>, ProtocolIoFuture<List<NamingException>>> command = batchCommand();
+        final ProtocolIoFuture<List<NamingException>> future = new ProtocolIoFuture<List<NamingException>>();
+        final int correlationId = command.reserveNextCorrelationId(future);
+        try {
+            WriteUtil.write(channel, new WriteUtil.Writer() {
+                public void write(final DataOutput output) throws IOException {
+                    output.writeByte(command.getCommandId());
+                    output.writeInt(correlationId);
+                    final Marshaller marshaller = prepareForMarshalling(output);
+                    marshaller.writeBoolean(false);
+                    marshaller.writeInt(count);
+                    for (byte type : types) {
+                        marshaller.writeByte(type);
+                    }
+                    marshaller.finish();
+                }
+            });
+            if (future.await(10, TimeUnit.SECONDS) != IoFuture.Status.FAILED) {
+                return null;
+            }
+            return future.getHeldException();
+        } finally {
+            command.releaseCorrelationId(correlationId);
+        }
+    }
+
+    /**
+     * Look a name up and tell whether the server answered with a raw value.
+     *
+     * @param context A context connected directly to the server
+     * @param name    The name to look up
+     * @return true if the result was sent as a raw value rather than marshalled
+     */
+    public static boolean isSentRaw(final Context context, final String name) throws Exception {
+        // the cache records the response exactly as it was received
+        final LookupCache cache = new LookupCache(1024 * 1024, 0, TimeUnit.SECONDS);
+        final Name lookupName = new CompositeName(name);
+        Protocol.LOOKUP.execute(getChannel(context), lookupName, cache);
+        final byte[] response = cache.get(lookupName);
+        return response != null && response[0] == Constants.RAW_VALUE;
+    }
+
+    /**
+     * Get the number of frames holding several requests the client wrote.
+     *
+     * @param context A context connected directly to the server
+     * @return The number of frames, or -1 if the channel does not gather requests into frames
+     */
+    public static int getFramesWritten(final Context context) throws Exception {
+        final MessageFramer framer = MessageFramer.forChannel(getChannel(context));
+        return framer == null ? -1 : framer.getFramesWritten();
+    }
+
+    private static Channel getChannel(final Context context) throws Exception {
+        RemoteNamingStore namingStore = getNamingStore(context);
+        if (namingStore instanceof HaRemoteNamingStore) {
+            final Method method = HaRemoteNamingStore.class.getDeclaredMethod("namingStore");
+            method.setAccessible(true);
+            namingStore = (RemoteNamingStore) method.invoke(namingStore);
+        }
+        final Field field = RemoteNamingStoreV1.class.getDeclaredField("channel");
+        field.setAccessible(true);
+        return (Channel) field.get(namingStore);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BaseProtocolCommand<List<NamingException>, ProtocolIoFuture<List<NamingException>>> batchCommand() {
+        return (BaseProtocolCommand<List<NamingException>, ProtocolIoFuture<List<NamingException>>>) Protocol.BATCH;
+    }
+
+    private static RemoteNamingStore getNamingStore(final Context context) throws Exception {
+        final Field field = RemoteContext.class.getDeclaredField("namingStore");
+        field.setAccessible(true);
+        return (RemoteNamingStore) field.get(context);
+    }
+}
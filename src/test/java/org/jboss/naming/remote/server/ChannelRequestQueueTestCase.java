@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.naming.remote.server;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Admission of a channel's requests by the {@link ChannelRequestQueue}, using an executor which runs tasks on demand.
+ */
+public class ChannelRequestQueueTestCase {
+
+    @Test
+    public void testInFlightCap() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 2, 2);
+        final List<String> events = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            submit(queue, RequestLane.LOOKUP, "lookup" + i, events);
+        }
+        assertEquals(2, executor.tasks.size());
+        assertEquals(2, queue.getInFlight());
+        assertEquals(2, queue.getQueued());
+        assertEquals(1, queue.getRejected());
+        assertEquals("rejected lookup4", events.get(0));
+
+        executor.runNext();
+        // the completion admits the next waiting request
+        assertEquals(2, executor.tasks.size());
+        assertEquals(2, queue.getInFlight());
+        assertEquals(1, queue.getQueued());
+
+        executor.runAll();
+        assertEquals(0, queue.getInFlight());
+        assertEquals(0, queue.getQueued());
+        assertEquals(4, queue.getCompleted());
+        assertEquals(2, queue.getPeakQueued());
+    }
+
+    @Test
+    public void testDispatchContinuesAfterRejection() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 1, 0);
+        final List<String> events = new ArrayList<String>();
+        submit(queue, RequestLane.LOOKUP, "first", events);
+        submit(queue, RequestLane.LOOKUP, "second", events);
+        submit(queue, RequestLane.LOOKUP, "third", events);
+        assertEquals(1, executor.tasks.size());
+        assertEquals(2, queue.getQueued());
+
+        executor.rejectNext = 1;
+        executor.runNext();
+        // second was rejected by the executor, third must still be admitted
+        assertEquals(1, executor.tasks.size());
+        assertEquals(1, queue.getInFlight());
+        assertEquals(0, queue.getQueued());
+        assertEquals(1, queue.getRejected());
+
+        executor.runAll();
+        assertEquals(0, queue.getInFlight());
+        assertEquals("[ran first, rejected second, ran third]", events.toString());
+    }
+
+    @Test
+    public void testRejectedWithNothingWaiting() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 1, 0);
+        final List<String> events = new ArrayList<String>();
+        executor.rejectNext = 1;
+        submit(queue, RequestLane.LOOKUP, "first", events);
+        assertEquals(0, queue.getInFlight());
+        submit(queue, RequestLane.LOOKUP, "second", events);
+        executor.runAll();
+        assertEquals("[rejected first, ran second]", events.toString());
+    }
+
+    @Test
+    public void testLanePriority() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 1, 0);
+        final List<String> events = new ArrayList<String>();
+        submit(queue, RequestLane.LIST, "first", events);
+        submit(queue, RequestLane.WRITE, "bind", events);
+        submit(queue, RequestLane.LIST, "list", events);
+        submit(queue, RequestLane.LOOKUP, "lookup", events);
+        assertEquals(1, queue.getQueued(RequestLane.WRITE));
+        executor.runAll();
+        assertEquals("[ran first, ran lookup, ran list, ran bind]", events.toString());
+    }
+
+    @Test
+    public void testLookupsDoNotStarveOtherLanes() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 1, 0);
+        final List<String> events = new ArrayList<String>();
+        submit(queue, RequestLane.LOOKUP, "first", events);
+        submit(queue, RequestLane.LIST, "list", events);
+        submit(queue, RequestLane.WRITE, "bind", events);
+        for (int i = 0; i < 10; i++) {
+            submit(queue, RequestLane.LOOKUP, "lookup" + i, events);
+        }
+        executor.runAll();
+        assertEquals("[ran first, ran lookup0, ran lookup1, ran lookup2, ran lookup3, ran list, ran bind, ran lookup4, "
+                + "ran lookup5, ran lookup6, ran lookup7, ran lookup8, ran lookup9]", events.toString());
+    }
+
+    @Test
+    public void testBlockedWriteDoesNotHoldUpLookups() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ChannelRequestQueue queue = new ChannelRequestQueue(null, new RemoteNamingService(null, executor), 0, 0);
+            final CountDownLatch writeStarted = new CountDownLatch(1);
+            final CountDownLatch releaseWrite = new CountDownLatch(1);
+            final CountDownLatch lookupDone = new CountDownLatch(1);
+            final Runnable rejection = new Runnable() {
+                public void run() {
+                }
+            };
+            queue.submit(RequestLane.WRITE, new Runnable() {
+                public void run() {
+                    writeStarted.countDown();
+                    try {
+                        releaseWrite.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, rejection);
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+
+            final Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    queue.submit(RequestLane.LOOKUP, new Runnable() {
+                        public void run() {
+                            lookupDone.countDown();
+                        }
+                    }, rejection);
+                }
+            });
+            reader.start();
+            // the lookup of another thread completes while the write is still running
+            assertTrue(lookupDone.await(5, TimeUnit.SECONDS));
+
+            releaseWrite.countDown();
+            reader.join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static void submit(final ChannelRequestQueue queue, final RequestLane lane, final String name, final List<String> events) {
+        queue.submit(lane, new Runnable() {
+            public void run() {
+                events.add("ran " + name);
+            }
+        }, new Runnable() {
+            public void run() {
+                events.add("rejected " + name);
+            }
+        });
+    }
+
+    static class ManualExecutor implements Executor {
+        final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+        int rejectNext;
+
+        public void execute(final Runnable command) {
+            if (rejectNext > 0) {
+                rejectNext--;
+                throw new RejectedExecutionException();
+            }
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.removeFirst().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+}